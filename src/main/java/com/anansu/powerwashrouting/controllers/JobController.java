@@ -4,6 +4,8 @@ import com.anansu.powerwashrouting.db.JobRepository;
 import com.anansu.powerwashrouting.model.Job;
 import com.anansu.powerwashrouting.model.JobStatus;
 import com.anansu.powerwashrouting.model.ServiceType;
+import com.anansu.powerwashrouting.service.JobProximityService;
+import com.anansu.powerwashrouting.service.TravelPrefetchService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +22,12 @@ public class JobController {
     @Autowired
     private JobRepository jobRepository;
 
+    @Autowired
+    private TravelPrefetchService travelPrefetchService;
+
+    @Autowired
+    private JobProximityService jobProximityService;
+
     @GetMapping
     public ResponseEntity<List<Job>> getAllJobs(
             @RequestParam(required = false) JobStatus status,
@@ -52,6 +60,30 @@ public class JobController {
         return ResponseEntity.ok(jobRepository.findEstimatesForDateRange(startDate, endDate));
     }
 
+    /**
+     * Scheduled jobs within a radius of a location, nearest first
+     */
+    @GetMapping("/nearby")
+    public ResponseEntity<List<Job>> getNearbyJobs(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "10") double radiusKm) {
+
+        return ResponseEntity.ok(jobProximityService.findJobsWithinRadius(latitude, longitude, radiusKm));
+    }
+
+    /**
+     * The scheduled jobs nearest to a location
+     */
+    @GetMapping("/nearest")
+    public ResponseEntity<List<Job>> getNearestJobs(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "10") int count) {
+
+        return ResponseEntity.ok(jobProximityService.findNearestJobs(latitude, longitude, count));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Job> getJob(@PathVariable Long id) {
         return jobRepository.findById(id)
@@ -62,6 +94,7 @@ public class JobController {
     @PostMapping
     public ResponseEntity<Job> createJob(@RequestBody Job job) {
         Job savedJob = jobRepository.save(job);
+        travelPrefetchService.prefetch(savedJob);
         return ResponseEntity.ok(savedJob);
     }
 
@@ -70,7 +103,9 @@ public class JobController {
         return jobRepository.findById(id)
                 .map(existingJob -> {
                     job.setId(id);
-                    return ResponseEntity.ok(jobRepository.save(job));
+                    Job savedJob = jobRepository.save(job);
+                    travelPrefetchService.prefetch(savedJob);
+                    return ResponseEntity.ok(savedJob);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -1,22 +1,34 @@
 package com.anansu.powerwashrouting.controllers;
 
-import com.anansu.powerwashrouting.db.RouteRepository;
 import com.anansu.powerwashrouting.db.VehicleRepository;
+import com.anansu.powerwashrouting.dto.RouteDetails;
+import com.anansu.powerwashrouting.dto.RouteSummary;
 import com.anansu.powerwashrouting.model.Job;
 import com.anansu.powerwashrouting.model.JobStatus;
 import com.anansu.powerwashrouting.model.Route;
 import com.anansu.powerwashrouting.model.ServiceType;
+import com.anansu.powerwashrouting.service.GeocodeCache;
+import com.anansu.powerwashrouting.service.MapsApiClient;
+import com.anansu.powerwashrouting.service.TravelPrefetchService;
+import com.anansu.powerwashrouting.service.RouteEventService;
 import com.anansu.powerwashrouting.service.RouteOptimizationService;
+import com.anansu.powerwashrouting.service.RouteQueryService;
+import com.anansu.powerwashrouting.service.RouteSolvingService;
 import com.anansu.powerwashrouting.service.SchedulerService;
+import com.anansu.powerwashrouting.service.TravelTimeCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/routing")
@@ -26,24 +38,74 @@ public class RoutingController {
     @Autowired
     private RouteOptimizationService routeOptimizationService;
 
+    @Autowired
+    private RouteSolvingService routeSolvingService;
+
+    @Autowired
+    private RouteEventService routeEventService;
+
     @Autowired
     private SchedulerService schedulingService;
 
     @Autowired
-    private RouteRepository routeRepository;
+    private RouteQueryService routeQueryService;
 
     @Autowired
     private VehicleRepository vehicleRepository;
 
+    @Autowired
+    private TravelTimeCache travelTimeCache;
+
+    @Autowired
+    private MapsApiClient mapsApiClient;
+
+    @Autowired
+    private TravelPrefetchService travelPrefetchService;
+
+    @Autowired
+    private GeocodeCache geocodeCache;
+
     /**
-     * Generate optimized routes for a specific date
+     * Start generating optimized routes for a specific date in the background
      */
     @PostMapping("/generate-routes")
-    public ResponseEntity<List<Route>> generateRoutes(
+    public ResponseEntity<RouteSolvingService.SolveStatus> generateRoutes(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
 
-        List<Route> routes = routeOptimizationService.generateOptimizedRoutes(date);
-        return ResponseEntity.ok(routes);
+        RouteSolvingService.SolveStatus status = routeSolvingService.startSolving(date);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header("Location", "/api/routing/solves/" + status.getProblemId())
+                .body(status);
+    }
+
+    /**
+     * Get the progress of a route generation
+     */
+    @GetMapping("/solves/{problemId}")
+    public ResponseEntity<RouteSolvingService.SolveStatus> getSolveStatus(@PathVariable UUID problemId) {
+        return routeSolvingService.getStatus(problemId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Get the best solution found so far by a route generation
+     */
+    @GetMapping("/solves/{problemId}/solution")
+    public ResponseEntity<RouteSolvingService.SolvePlan> getBestSolution(@PathVariable UUID problemId) {
+        return routeSolvingService.getBestPlan(problemId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Stop a route generation early and keep the best solution found so far
+     */
+    @DeleteMapping("/solves/{problemId}")
+    public ResponseEntity<RouteSolvingService.SolveStatus> terminateSolving(@PathVariable UUID problemId) {
+        return routeSolvingService.terminateEarly(problemId)
+                .map(status -> ResponseEntity.status(HttpStatus.ACCEPTED).body(status))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     /**
@@ -52,9 +114,11 @@ public class RoutingController {
     @PostMapping("/reoptimize-routes")
     public ResponseEntity<List<Route>> reoptimizeRoutes(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
-            @RequestParam List<Long> vehicleIds) {
+            @RequestParam List<Long> vehicleIds,
+            @RequestParam(defaultValue = "false") boolean warmStart,
+            @RequestParam(defaultValue = "false") boolean pinStarted) {
 
-        List<Route> routes = routeOptimizationService.reoptimizeRoutes(date, vehicleIds);
+        List<Route> routes = routeOptimizationService.reoptimizeRoutes(date, vehicleIds, warmStart, pinStarted);
         return ResponseEntity.ok(routes);
     }
 
@@ -62,22 +126,40 @@ public class RoutingController {
      * Get routes for a specific date
      */
     @GetMapping("/routes")
-    public ResponseEntity<List<Route>> getRoutes(
+    public ResponseEntity<List<RouteDetails>> getRoutes(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
 
-        List<Route> routes = routeRepository.findByRouteDate(date);
-        return ResponseEntity.ok(routes);
+        return ResponseEntity.ok(routeQueryService.getRoutes(date));
+    }
+
+    /**
+     * Get a lightweight summary of each route for a specific date
+     */
+    @GetMapping("/routes/summary")
+    public ResponseEntity<List<RouteSummary>> getRouteSummaries(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+
+        return ResponseEntity.ok(routeQueryService.getRouteSummaries(date));
+    }
+
+    /**
+     * Stream solver progress and route changes for a specific date as Server-Sent Events
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamRouteEvents(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return routeEventService.subscribe(date);
     }
 
     /**
      * Get route details for a specific vehicle and date
      */
     @GetMapping("/routes/{vehicleId}")
-    public ResponseEntity<Route> getRouteForVehicle(
+    public ResponseEntity<RouteDetails> getRouteForVehicle(
             @PathVariable Long vehicleId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
 
-        return routeRepository.findByVehicleIdAndRouteDate(vehicleId, date)
+        return routeQueryService.getRoute(vehicleId, date)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -95,17 +177,19 @@ public class RoutingController {
     }
 
     /**
-     * Schedule emergency job
+     * Schedule emergency job. Answers once the solver has placed it or after a short wait; the
+     * saved routes follow through the solve status and the dashboard events.
      */
     @PostMapping("/emergency-job")
-    public ResponseEntity<Route> scheduleEmergencyJob(@RequestBody EmergencyJobRequest request) {
-        Route route = schedulingService.scheduleEmergencyJob(
+    public ResponseEntity<RouteSolvingService.EmergencyPlacement> scheduleEmergencyJob(
+            @RequestBody EmergencyJobRequest request) {
+        RouteSolvingService.EmergencyPlacement placement = schedulingService.scheduleEmergencyJob(
                 request.getCustomerId(),
                 request.getAddress(),
                 request.getServiceType(),
                 request.getPreferredTime()
         );
-        return ResponseEntity.ok(route);
+        return ResponseEntity.ok(placement);
     }
 
     /**
@@ -127,9 +211,9 @@ public class RoutingController {
     public ResponseEntity<Map<String, Object>> getRouteStatistics(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
 
-        List<Route> routes = routeRepository.findByRouteDate(date);
+        List<RouteSummary> routes = routeQueryService.getRouteSummaries(date);
 
-        int totalStops = routes.stream().mapToInt(r -> r.getStops().size()).sum();
+        int totalStops = routes.stream().mapToInt(r -> r.getStopCount()).sum();
         int totalDuration = routes.stream().mapToInt(r -> r.getTotalDurationMinutes()).sum();
         double totalDistance = routes.stream().mapToDouble(r -> r.getTotalDistanceKm()).sum();
         double totalFuelCost = routes.stream().mapToDouble(r -> r.getEstimatedFuelCost()).sum();
@@ -146,6 +230,38 @@ public class RoutingController {
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * Travel time cache hits, misses and evictions since startup
+     */
+    @GetMapping("/travel-cache/stats")
+    public ResponseEntity<TravelTimeCache.CacheStats> getTravelCacheStatistics() {
+        return ResponseEntity.ok(travelTimeCache.getStats());
+    }
+
+    /**
+     * Geocode cache hits, misses and evictions since startup
+     */
+    @GetMapping("/geocode-cache/stats")
+    public ResponseEntity<GeocodeCache.GeocodeStats> getGeocodeCacheStatistics() {
+        return ResponseEntity.ok(geocodeCache.getStats());
+    }
+
+    /**
+     * Maps API client latency, errors, retries and circuit breaker state since startup
+     */
+    @GetMapping("/maps-client/stats")
+    public ResponseEntity<MapsApiClient.ClientStats> getMapsClientStatistics() {
+        return ResponseEntity.ok(mapsApiClient.getStats());
+    }
+
+    /**
+     * Background travel time prefetches for new and rescheduled jobs since startup
+     */
+    @GetMapping("/prefetch/stats")
+    public ResponseEntity<TravelPrefetchService.PrefetchStats> getPrefetchStatistics() {
+        return ResponseEntity.ok(travelPrefetchService.getStats());
+    }
+
     /**
      * Update job status
      */
@@ -0,0 +1,17 @@
+package com.anansu.powerwashrouting.db;
+
+import com.anansu.powerwashrouting.model.GeocodeEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface GeocodeEntryRepository extends JpaRepository<GeocodeEntry, Long> {
+
+    Optional<GeocodeEntry> findByNormalizedAddress(String normalizedAddress);
+
+    List<GeocodeEntry> findByNormalizedAddressIn(Collection<String> normalizedAddresses);
+}
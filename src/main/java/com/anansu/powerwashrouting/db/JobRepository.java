@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -51,17 +52,31 @@ public interface JobRepository extends JpaRepository<Job, Long> {
     List<Job> findWeatherDependentJobs(@Param("startDate") LocalDateTime startDate,
                                        @Param("endDate") LocalDateTime endDate);
 
-    // Simplified distance query using Haversine formula in JPQL (H2 compatible)
-    @Query("SELECT j FROM Job j WHERE j.status = 'SCHEDULED' " +
-            "AND (6371 * acos(cos(radians(:latitude)) * cos(radians(j.latitude)) * " +
-            "cos(radians(j.longitude) - radians(:longitude)) + sin(radians(:latitude)) * " +
-            "sin(radians(j.latitude)))) <= :radiusKm " +
-            "ORDER BY (6371 * acos(cos(radians(:latitude)) * cos(radians(j.latitude)) * " +
-            "cos(radians(j.longitude) - radians(:longitude)) + sin(radians(:latitude)) * " +
-            "sin(radians(j.latitude))))")
-    List<Job> findJobsWithinRadius(@Param("latitude") Double latitude,
-                                   @Param("longitude") Double longitude,
-                                   @Param("radiusKm") Double radiusKm);
+    /**
+     * Jobs of a status in the given grid cells and bounding box (cells first, so the
+     * status/grid cell index narrows the rows before the coordinates are compared)
+     */
+    @Query("SELECT j FROM Job j WHERE j.status = :status AND j.gridCell IN :cells " +
+            "AND j.latitude BETWEEN :minLatitude AND :maxLatitude " +
+            "AND j.longitude BETWEEN :minLongitude AND :maxLongitude")
+    List<Job> findByStatusInGridCells(@Param("status") JobStatus status,
+                                      @Param("cells") Collection<Long> cells,
+                                      @Param("minLatitude") double minLatitude,
+                                      @Param("maxLatitude") double maxLatitude,
+                                      @Param("minLongitude") double minLongitude,
+                                      @Param("maxLongitude") double maxLongitude);
+
+    /**
+     * Jobs of a status in a bounding box, for boxes covering too many grid cells to list
+     */
+    @Query("SELECT j FROM Job j WHERE j.status = :status " +
+            "AND j.latitude BETWEEN :minLatitude AND :maxLatitude " +
+            "AND j.longitude BETWEEN :minLongitude AND :maxLongitude")
+    List<Job> findByStatusInBoundingBox(@Param("status") JobStatus status,
+                                        @Param("minLatitude") double minLatitude,
+                                        @Param("maxLatitude") double maxLatitude,
+                                        @Param("minLongitude") double minLongitude,
+                                        @Param("maxLongitude") double maxLongitude);
 
     @Query("SELECT j FROM Job j WHERE j.customerId = :customerId " +
             "AND j.recurring = true AND j.status != 'CANCELLED'")
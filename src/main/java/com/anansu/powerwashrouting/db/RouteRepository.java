@@ -1,5 +1,6 @@
 package com.anansu.powerwashrouting.db;
 
+import com.anansu.powerwashrouting.dto.RouteSummary;
 import com.anansu.powerwashrouting.model.Route;
 import com.anansu.powerwashrouting.model.RouteStatus;
 import com.anansu.powerwashrouting.model.Vehicle;
@@ -10,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -23,6 +25,35 @@ public interface RouteRepository extends JpaRepository<Route, Long> {
 
     Optional<Route> findByVehicleIdAndRouteDate(Long vehicleId, LocalDate routeDate);
 
+    /**
+     * Routes of a date with their vehicles, stops and jobs, in one query
+     */
+    @Query("SELECT DISTINCT r FROM Route r JOIN FETCH r.vehicle LEFT JOIN FETCH r.stops s LEFT JOIN FETCH s.job " +
+            "WHERE r.routeDate = :routeDate ORDER BY r.id")
+    List<Route> findWithStopsByRouteDate(@Param("routeDate") LocalDate routeDate);
+
+    @Query("SELECT DISTINCT r FROM Route r JOIN FETCH r.vehicle LEFT JOIN FETCH r.stops s LEFT JOIN FETCH s.job " +
+            "WHERE r.vehicle.id = :vehicleId AND r.routeDate = :routeDate")
+    Optional<Route> findWithStopsByVehicleIdAndRouteDate(@Param("vehicleId") Long vehicleId,
+                                                         @Param("routeDate") LocalDate routeDate);
+
+    /**
+     * Summary of each route of a date, with stops counted in the database instead of loaded
+     */
+    @Query("SELECT new com.anansu.powerwashrouting.dto.RouteSummary(" +
+            "r.id, v.id, v.licensePlate, SIZE(r.stops), r.totalDurationMinutes, r.totalDistanceKm, " +
+            "r.estimatedFuelCost, r.status) " +
+            "FROM Route r JOIN r.vehicle v WHERE r.routeDate = :routeDate ORDER BY r.id")
+    List<RouteSummary> findSummariesByRouteDate(@Param("routeDate") LocalDate routeDate);
+
+    /**
+     * Routes of several vehicles on a date with their stops and jobs, in one query
+     */
+    @Query("SELECT DISTINCT r FROM Route r LEFT JOIN FETCH r.stops s LEFT JOIN FETCH s.job " +
+            "WHERE r.routeDate = :routeDate AND r.vehicle.id IN :vehicleIds")
+    List<Route> findWithStopsByRouteDateAndVehicleIds(@Param("routeDate") LocalDate routeDate,
+                                                      @Param("vehicleIds") Collection<Long> vehicleIds);
+
     List<Route> findByStatus(RouteStatus status);
 
     @Query("SELECT r FROM Route r WHERE r.routeDate BETWEEN :startDate AND :endDate")
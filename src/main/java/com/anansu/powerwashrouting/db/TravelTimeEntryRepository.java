@@ -0,0 +1,17 @@
+package com.anansu.powerwashrouting.db;
+
+import com.anansu.powerwashrouting.model.TravelTimeEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TravelTimeEntryRepository extends JpaRepository<TravelTimeEntry, Long> {
+
+    Optional<TravelTimeEntry> findByCacheKey(String cacheKey);
+
+    List<TravelTimeEntry> findByCacheKeyIn(Collection<String> cacheKeys);
+}
@@ -0,0 +1,52 @@
+package com.anansu.powerwashrouting.dto;
+
+import com.anansu.powerwashrouting.model.Route;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A saved route with its stops in visiting order
+ */
+public class RouteDetails {
+    private Long id;
+    private LocalDate routeDate;
+    private Long vehicleId;
+    private String licensePlate;
+    private String status;
+    private LocalDateTime startTime;
+    private LocalDateTime endTime;
+    private Double totalDistanceKm;
+    private Integer totalDurationMinutes;
+    private Double estimatedFuelCost;
+    private List<StopDetails> stops;
+
+    public RouteDetails(Route route) {
+        this.id = route.getId();
+        this.routeDate = route.getRouteDate();
+        this.vehicleId = route.getVehicle().getId();
+        this.licensePlate = route.getVehicle().getLicensePlate();
+        this.status = route.getStatus() != null ? route.getStatus().name() : null;
+        this.startTime = route.getStartTime();
+        this.endTime = route.getEndTime();
+        this.totalDistanceKm = route.getTotalDistanceKm();
+        this.totalDurationMinutes = route.getTotalDurationMinutes();
+        this.estimatedFuelCost = route.getEstimatedFuelCost();
+        this.stops = route.getStops().stream().map(StopDetails::new).collect(Collectors.toList());
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public LocalDate getRouteDate() { return routeDate; }
+    public Long getVehicleId() { return vehicleId; }
+    public String getLicensePlate() { return licensePlate; }
+    public String getStatus() { return status; }
+    public LocalDateTime getStartTime() { return startTime; }
+    public LocalDateTime getEndTime() { return endTime; }
+    public Double getTotalDistanceKm() { return totalDistanceKm; }
+    public Integer getTotalDurationMinutes() { return totalDurationMinutes; }
+    public Double getEstimatedFuelCost() { return estimatedFuelCost; }
+    public List<StopDetails> getStops() { return stops; }
+}
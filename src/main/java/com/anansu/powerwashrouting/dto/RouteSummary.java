@@ -0,0 +1,52 @@
+package com.anansu.powerwashrouting.dto;
+
+import com.anansu.powerwashrouting.model.Route;
+import com.anansu.powerwashrouting.model.RouteStatus;
+
+/**
+ * The route fields the dashboard shows, without the entity graph behind them
+ */
+public class RouteSummary {
+    private Long id;
+    private Long vehicleId;
+    private String licensePlate;
+    private int stopCount;
+    private Integer totalDurationMinutes;
+    private Double totalDistanceKm;
+    private Double estimatedFuelCost;
+    private String status;
+
+    public RouteSummary(Route route) {
+        this.id = route.getId();
+        this.vehicleId = route.getVehicle().getId();
+        this.licensePlate = route.getVehicle().getLicensePlate();
+        this.stopCount = route.getStops().size();
+        this.totalDurationMinutes = route.getTotalDurationMinutes();
+        this.totalDistanceKm = route.getTotalDistanceKm();
+        this.estimatedFuelCost = route.getEstimatedFuelCost();
+        this.status = route.getStatus() != null ? route.getStatus().name() : null;
+    }
+
+    public RouteSummary(Long id, Long vehicleId, String licensePlate, Integer stopCount,
+                        Integer totalDurationMinutes, Double totalDistanceKm, Double estimatedFuelCost,
+                        RouteStatus status) {
+        this.id = id;
+        this.vehicleId = vehicleId;
+        this.licensePlate = licensePlate;
+        this.stopCount = stopCount != null ? stopCount : 0;
+        this.totalDurationMinutes = totalDurationMinutes;
+        this.totalDistanceKm = totalDistanceKm;
+        this.estimatedFuelCost = estimatedFuelCost;
+        this.status = status != null ? status.name() : null;
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public Long getVehicleId() { return vehicleId; }
+    public String getLicensePlate() { return licensePlate; }
+    public int getStopCount() { return stopCount; }
+    public Integer getTotalDurationMinutes() { return totalDurationMinutes; }
+    public Double getTotalDistanceKm() { return totalDistanceKm; }
+    public Double getEstimatedFuelCost() { return estimatedFuelCost; }
+    public String getStatus() { return status; }
+}
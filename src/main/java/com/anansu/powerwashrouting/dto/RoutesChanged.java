@@ -0,0 +1,25 @@
+package com.anansu.powerwashrouting.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Saved routes of a date that changed, as sent to the dashboard
+ */
+public class RoutesChanged {
+    private LocalDate date;
+    private List<RouteSummary> routes;
+    private Set<Long> affectedVehicleIds;
+
+    public RoutesChanged(LocalDate date, List<RouteSummary> routes, Set<Long> affectedVehicleIds) {
+        this.date = date;
+        this.routes = routes;
+        this.affectedVehicleIds = affectedVehicleIds;
+    }
+
+    // Getters
+    public LocalDate getDate() { return date; }
+    public List<RouteSummary> getRoutes() { return routes; }
+    public Set<Long> getAffectedVehicleIds() { return affectedVehicleIds; }
+}
@@ -0,0 +1,72 @@
+package com.anansu.powerwashrouting.dto;
+
+import com.anansu.powerwashrouting.model.Job;
+import com.anansu.powerwashrouting.model.JobStatus;
+import com.anansu.powerwashrouting.model.Priority;
+import com.anansu.powerwashrouting.model.RouteStop;
+import com.anansu.powerwashrouting.model.ServiceType;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stop of a route with the job it serves
+ */
+public class StopDetails {
+    private Long id;
+    private Integer sequenceNumber;
+    private Long jobId;
+    private String customerId;
+    private String address;
+    private Double latitude;
+    private Double longitude;
+    private ServiceType serviceType;
+    private Priority priority;
+    private JobStatus jobStatus;
+    private boolean emergency;
+    private LocalDateTime estimatedArrivalTime;
+    private LocalDateTime estimatedDepartureTime;
+    private LocalDateTime actualArrivalTime;
+    private LocalDateTime actualDepartureTime;
+    private Double distanceFromPreviousKm;
+    private Integer travelTimeFromPreviousMinutes;
+
+    public StopDetails(RouteStop stop) {
+        Job job = stop.getJob();
+        this.id = stop.getId();
+        this.sequenceNumber = stop.getSequenceNumber();
+        this.jobId = job.getId();
+        this.customerId = job.getCustomerId();
+        this.address = job.getAddress();
+        this.latitude = job.getLatitude();
+        this.longitude = job.getLongitude();
+        this.serviceType = job.getServiceType();
+        this.priority = job.getPriority();
+        this.jobStatus = job.getStatus();
+        this.emergency = job.isEmergency();
+        this.estimatedArrivalTime = stop.getEstimatedArrivalTime();
+        this.estimatedDepartureTime = stop.getEstimatedDepartureTime();
+        this.actualArrivalTime = stop.getActualArrivalTime();
+        this.actualDepartureTime = stop.getActualDepartureTime();
+        this.distanceFromPreviousKm = stop.getDistanceFromPreviousKm();
+        this.travelTimeFromPreviousMinutes = stop.getTravelTimeFromPreviousMinutes();
+    }
+
+    // Getters
+    public Long getId() { return id; }
+    public Integer getSequenceNumber() { return sequenceNumber; }
+    public Long getJobId() { return jobId; }
+    public String getCustomerId() { return customerId; }
+    public String getAddress() { return address; }
+    public Double getLatitude() { return latitude; }
+    public Double getLongitude() { return longitude; }
+    public ServiceType getServiceType() { return serviceType; }
+    public Priority getPriority() { return priority; }
+    public JobStatus getJobStatus() { return jobStatus; }
+    public boolean isEmergency() { return emergency; }
+    public LocalDateTime getEstimatedArrivalTime() { return estimatedArrivalTime; }
+    public LocalDateTime getEstimatedDepartureTime() { return estimatedDepartureTime; }
+    public LocalDateTime getActualArrivalTime() { return actualArrivalTime; }
+    public LocalDateTime getActualDepartureTime() { return actualDepartureTime; }
+    public Double getDistanceFromPreviousKm() { return distanceFromPreviousKm; }
+    public Integer getTravelTimeFromPreviousMinutes() { return travelTimeFromPreviousMinutes; }
+}
@@ -0,0 +1,48 @@
+package com.anansu.powerwashrouting.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persisted geocoding result for one normalized address
+ */
+@Entity
+@Table(name = "geocode_cache")
+public class GeocodeEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 500)
+    private String normalizedAddress;
+
+    private double latitude;
+    private double longitude;
+
+    @Column(nullable = false)
+    private LocalDateTime fetchedAt;
+
+    // Constructors, getters, setters
+    public GeocodeEntry() {}
+
+    public GeocodeEntry(String normalizedAddress) {
+        this.normalizedAddress = normalizedAddress;
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getNormalizedAddress() { return normalizedAddress; }
+    public void setNormalizedAddress(String normalizedAddress) { this.normalizedAddress = normalizedAddress; }
+
+    public double getLatitude() { return latitude; }
+    public void setLatitude(double latitude) { this.latitude = latitude; }
+
+    public double getLongitude() { return longitude; }
+    public void setLongitude(double longitude) { this.longitude = longitude; }
+
+    public LocalDateTime getFetchedAt() { return fetchedAt; }
+    public void setFetchedAt(LocalDateTime fetchedAt) { this.fetchedAt = fetchedAt; }
+}
@@ -1,5 +1,6 @@
 package com.anansu.powerwashrouting.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 import java.math.BigDecimal;
@@ -8,8 +9,13 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "jobs")
 public class Job {
+    // Jobs are bucketed into cells of this many degrees of latitude and longitude (about 5.5 km north-south)
+    public static final double GRID_CELL_DEGREES = 0.05;
+    public static final int GRID_COLUMNS = (int) Math.round(360 / GRID_CELL_DEGREES);
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_seq")
+    @SequenceGenerator(name = "job_seq", sequenceName = "jobs_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -24,6 +30,11 @@ public class Job {
     @Column(nullable = false)
     private Double longitude;
 
+    // Grid cell of the location, kept in step with it so proximity queries can use an index (see V2 migration)
+    @JsonIgnore
+    @Column(name = "grid_cell")
+    private Long gridCell;
+
     @Enumerated(EnumType.STRING)
     private ServiceType serviceType;
 
@@ -69,6 +80,24 @@ public class Job {
         this.estimatedDurationMinutes = serviceType.getDefaultDurationMinutes();
     }
 
+    @PrePersist
+    @PreUpdate
+    void updateGridCell() {
+        this.gridCell = latitude != null && longitude != null ? gridCellOf(latitude, longitude) : null;
+    }
+
+    public static int gridRowOf(double latitude) {
+        return (int) Math.floor((latitude + 90) / GRID_CELL_DEGREES);
+    }
+
+    public static int gridColumnOf(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / GRID_CELL_DEGREES), GRID_COLUMNS);
+    }
+
+    public static long gridCellOf(double latitude, double longitude) {
+        return (long) gridRowOf(latitude) * GRID_COLUMNS + gridColumnOf(longitude);
+    }
+
     // Getters and setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -85,6 +114,8 @@ public class Job {
     public Double getLongitude() { return longitude; }
     public void setLongitude(Double longitude) { this.longitude = longitude; }
 
+    public Long getGridCell() { return gridCell; }
+
     public ServiceType getServiceType() { return serviceType; }
     public void setServiceType(ServiceType serviceType) {
         this.serviceType = serviceType;
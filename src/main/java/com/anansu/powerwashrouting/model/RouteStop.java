@@ -1,5 +1,6 @@
 package com.anansu.powerwashrouting.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
@@ -8,9 +9,12 @@ import java.time.LocalDateTime;
 @Table(name = "route_stops")
 public class RouteStop {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "route_stop_seq")
+    @SequenceGenerator(name = "route_stop_seq", sequenceName = "route_stops_seq", allocationSize = 50)
     private Long id;
 
+    // Serialized as part of its route; writing the route again would recurse
+    @JsonIgnore
     @ManyToOne
     @JoinColumn(name = "route_id", nullable = false)
     private Route route;
@@ -0,0 +1,48 @@
+package com.anansu.powerwashrouting.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persisted travel time between two rounded locations for one departure time-of-day bucket
+ */
+@Entity
+@Table(name = "travel_time_cache")
+public class TravelTimeEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String cacheKey;
+
+    private double distanceKm;
+    private int durationMinutes;
+
+    @Column(nullable = false)
+    private LocalDateTime fetchedAt;
+
+    // Constructors, getters, setters
+    public TravelTimeEntry() {}
+
+    public TravelTimeEntry(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getCacheKey() { return cacheKey; }
+    public void setCacheKey(String cacheKey) { this.cacheKey = cacheKey; }
+
+    public double getDistanceKm() { return distanceKm; }
+    public void setDistanceKm(double distanceKm) { this.distanceKm = distanceKm; }
+
+    public int getDurationMinutes() { return durationMinutes; }
+    public void setDurationMinutes(int durationMinutes) { this.durationMinutes = durationMinutes; }
+
+    public LocalDateTime getFetchedAt() { return fetchedAt; }
+    public void setFetchedAt(LocalDateTime fetchedAt) { this.fetchedAt = fetchedAt; }
+}
@@ -0,0 +1,71 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.GoogleMapsService.TravelMatrix;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import org.optaplanner.core.api.solver.change.ProblemChange;
+import org.optaplanner.core.api.solver.change.ProblemChangeDirector;
+
+import java.time.LocalDateTime;
+
+/**
+ * Adds a customer to a problem that is being solved (real-time planning). The solver keeps its
+ * current routes, inserts the new customer with its construction heuristic and continues with
+ * local search from there, instead of starting over.
+ *
+ * The customer's location is appended to the travel times. Only the working solution knows the
+ * current matrix layout, so that happens here, on the solver thread while it is paused; travel to
+ * and from the new location is therefore only read from the travel cache, which the caller warms
+ * before handing over the change. Legs missing from the cache get a straight-line estimate.
+ */
+public class AddCustomerProblemChange implements ProblemChange<VehicleRoutingSolution> {
+
+    private final Customer customer;
+    private final GoogleMapsService googleMapsService;
+
+    public AddCustomerProblemChange(Customer customer, GoogleMapsService googleMapsService) {
+        this.customer = customer;
+        this.googleMapsService = googleMapsService;
+    }
+
+    @Override
+    public void doChange(VehicleRoutingSolution workingSolution, ProblemChangeDirector problemChangeDirector) {
+        if (workingSolution.getCustomers().stream().anyMatch(existing -> existing.getId().equals(customer.getId()))) {
+            return; // Already part of this solve
+        }
+
+        TravelTimes travelMatrix = extendTravelMatrix(workingSolution);
+        problemChangeDirector.addProblemFact(travelMatrix, workingSolution::setTravelMatrix);
+        for (OptimizationVehicle vehicle : workingSolution.getVehicles()) {
+            problemChangeDirector.changeProblemProperty(vehicle, v -> v.setTravelMatrix(travelMatrix));
+        }
+        for (Customer existing : workingSolution.getCustomers()) {
+            problemChangeDirector.changeProblemProperty(existing, c -> c.setTravelMatrix(travelMatrix));
+        }
+
+        customer.setLocationIndex(travelMatrix.getSize() - 1);
+        customer.setTravelMatrix(travelMatrix);
+        problemChangeDirector.addEntity(customer, workingSolution.getCustomers()::add);
+    }
+
+    private TravelTimes extendTravelMatrix(VehicleRoutingSolution workingSolution) {
+        LocalDateTime departureTime = workingSolution.getWorkStart();
+        TravelTimes travelTimes = workingSolution.getTravelMatrix();
+        if (travelTimes instanceof SparseTravelGraph sparseGraph) {
+            return sparseGraph.withLocation(customer.getLocation(), googleMapsService, departureTime);
+        }
+        if (!(travelTimes instanceof TravelTimeMatrix travelMatrix)) {
+            throw new IllegalStateException("Cannot add customer " + customer.getId() + ": no location can be appended to "
+                    + (travelTimes == null ? "missing travel times" : travelTimes.getClass().getSimpleName()));
+        }
+
+        // Locations in matrix order: the depot, then every customer at its own index
+        Location[] locations = new Location[travelMatrix.getSize()];
+        locations[0] = workingSolution.getDepot();
+        workingSolution.getCustomers().forEach(existing -> locations[existing.getLocationIndex()] = existing.getLocation());
+
+        Location[] newLocation = {customer.getLocation()};
+        TravelMatrix toNewLocation = googleMapsService.getCachedTravelMatrix(locations, newLocation, departureTime);
+        TravelMatrix fromNewLocation = googleMapsService.getCachedTravelMatrix(newLocation, locations, departureTime);
+        return travelMatrix.withLocation(toNewLocation, fromNewLocation, locations, customer.getLocation());
+    }
+}
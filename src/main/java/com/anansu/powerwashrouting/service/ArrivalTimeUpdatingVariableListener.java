@@ -0,0 +1,85 @@
+package com.anansu.powerwashrouting.service;
+
+import org.optaplanner.core.api.domain.variable.VariableListener;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+
+import java.util.Objects;
+
+/**
+ * Keeps arrival, wait and departure minutes of a chain up to date. After a move only the
+ * changed customer and the stops behind it are visited, and the walk stops as soon as an
+ * arrival time comes out unchanged, so constraints can read the times directly.
+ */
+public class ArrivalTimeUpdatingVariableListener implements VariableListener<VehicleRoutingSolution, Customer> {
+
+    @Override
+    public void beforeEntityAdded(ScoreDirector<VehicleRoutingSolution> scoreDirector, Customer customer) {
+        // Do nothing
+    }
+
+    @Override
+    public void afterEntityAdded(ScoreDirector<VehicleRoutingSolution> scoreDirector, Customer customer) {
+        updateArrivalTime(scoreDirector, customer);
+    }
+
+    @Override
+    public void beforeVariableChanged(ScoreDirector<VehicleRoutingSolution> scoreDirector, Customer customer) {
+        // Do nothing
+    }
+
+    @Override
+    public void afterVariableChanged(ScoreDirector<VehicleRoutingSolution> scoreDirector, Customer customer) {
+        updateArrivalTime(scoreDirector, customer);
+    }
+
+    @Override
+    public void beforeEntityRemoved(ScoreDirector<VehicleRoutingSolution> scoreDirector, Customer customer) {
+        // Do nothing
+    }
+
+    @Override
+    public void afterEntityRemoved(ScoreDirector<VehicleRoutingSolution> scoreDirector, Customer customer) {
+        // Do nothing
+    }
+
+    private void updateArrivalTime(ScoreDirector<VehicleRoutingSolution> scoreDirector, Customer sourceCustomer) {
+        Standstill previousStandstill = sourceCustomer.getPreviousStandstill();
+        Customer shadowCustomer = sourceCustomer;
+        Integer arrivalMinute = calculateArrivalMinute(previousStandstill, shadowCustomer);
+
+        while (shadowCustomer != null && !Objects.equals(shadowCustomer.getArrivalMinute(), arrivalMinute)) {
+            Integer waitMinutes = calculateWaitMinutes(shadowCustomer, arrivalMinute);
+            Integer departureMinute = arrivalMinute == null ? null
+                    : arrivalMinute + waitMinutes + shadowCustomer.getServiceTimeMinutes();
+
+            scoreDirector.beforeVariableChanged(shadowCustomer, "arrivalMinute");
+            shadowCustomer.setArrivalMinute(arrivalMinute);
+            scoreDirector.afterVariableChanged(shadowCustomer, "arrivalMinute");
+
+            scoreDirector.beforeVariableChanged(shadowCustomer, "waitMinutes");
+            shadowCustomer.setWaitMinutes(waitMinutes);
+            scoreDirector.afterVariableChanged(shadowCustomer, "waitMinutes");
+
+            scoreDirector.beforeVariableChanged(shadowCustomer, "departureMinute");
+            shadowCustomer.setDepartureMinute(departureMinute);
+            scoreDirector.afterVariableChanged(shadowCustomer, "departureMinute");
+
+            previousStandstill = shadowCustomer;
+            shadowCustomer = shadowCustomer.getNextCustomer();
+            arrivalMinute = calculateArrivalMinute(previousStandstill, shadowCustomer);
+        }
+    }
+
+    static Integer calculateArrivalMinute(Standstill previousStandstill, Customer customer) {
+        if (customer == null || previousStandstill == null || previousStandstill.getDepartureMinute() == null) {
+            return null;
+        }
+        return previousStandstill.getDepartureMinute() + customer.getTravelMinutesFrom(previousStandstill);
+    }
+
+    static Integer calculateWaitMinutes(Customer customer, Integer arrivalMinute) {
+        if (arrivalMinute == null) return null;
+        if (customer.getReadyMinute() == null) return 0;
+        return Math.max(0, customer.getReadyMinute() - arrivalMinute);
+    }
+}
@@ -0,0 +1,562 @@
+package com.anansu.powerwashrouting.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Contraction hierarchy over a {@link RoadNetwork} for fast shortest-path queries.
+ *
+ * Preprocessing contracts the nodes one by one, least important first, and adds shortcut edges
+ * so that distances between the remaining nodes stay the same. Afterwards every shortest path
+ * goes up in importance and then down, so a query only searches upward from both ends. The
+ * search spaces are a few hundred nodes even on a metro-size network.
+ *
+ * Many-to-many matrices use buckets: one backward search per target leaves its distances at
+ * the nodes it reaches, then one forward search per source combines them.
+ */
+public class ContractionHierarchy {
+
+    private static final int FILE_MAGIC = 0x43483031; // "CH01"
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // Nodes touched per witness search while preprocessing; more finds fewer shortcuts but is slower
+    private static final int WITNESS_SEARCH_LIMIT = 500;
+
+    // Grid cell size for snapping locations to the nearest node (about 500 m)
+    private static final double GRID_CELL_DEGREES = 0.005;
+
+    private final int nodeCount;
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    // Upward edges in compressed sparse row form: edges of node v are first[v] .. first[v + 1]
+    private final int[] forwardFirst;
+    private final int[] forwardTo;
+    private final int[] forwardTime;
+    private final int[] forwardMeters;
+    private final int[] backwardFirst;
+    private final int[] backwardTo;
+    private final int[] backwardTime;
+    private final int[] backwardMeters;
+
+    private final Map<Long, int[]> grid = new HashMap<>();
+
+    private ContractionHierarchy(double[] latitudes, double[] longitudes,
+                                 int[] forwardFirst, int[] forwardTo, int[] forwardTime, int[] forwardMeters,
+                                 int[] backwardFirst, int[] backwardTo, int[] backwardTime, int[] backwardMeters) {
+        this.nodeCount = latitudes.length;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.forwardFirst = forwardFirst;
+        this.forwardTo = forwardTo;
+        this.forwardTime = forwardTime;
+        this.forwardMeters = forwardMeters;
+        this.backwardFirst = backwardFirst;
+        this.backwardTo = backwardTo;
+        this.backwardTime = backwardTime;
+        this.backwardMeters = backwardMeters;
+        buildGrid();
+    }
+
+    public static ContractionHierarchy build(RoadNetwork network) {
+        return new Contractor(network).contract();
+    }
+
+    public int getNodeCount() { return nodeCount; }
+    public double getLatitude(int node) { return latitudes[node]; }
+    public double getLongitude(int node) { return longitudes[node]; }
+
+    /**
+     * Shortest travel times (tenths of a second) and the lengths of those paths (meters) from every
+     * source node to every target node, row-major. Unreachable pairs, and nodes given as -1, get
+     * Integer.MAX_VALUE time.
+     */
+    public void manyToMany(int[] sources, int[] targets, int[] times, int[] meters) {
+        Arrays.fill(times, UNREACHABLE);
+        Search search = new Search(nodeCount);
+
+        // Backward searches: collect (node, target, time, meters) entries
+        IntList bucketNode = new IntList();
+        IntList bucketTarget = new IntList();
+        IntList bucketTime = new IntList();
+        IntList bucketMeters = new IntList();
+        for (int t = 0; t < targets.length; t++) {
+            if (targets[t] < 0) continue;
+            search.run(targets[t], backwardFirst, backwardTo, backwardTime, backwardMeters,
+                    forwardFirst, forwardTo, forwardTime);
+            for (int i = 0; i < search.settled.size; i++) {
+                int node = search.settled.values[i];
+                bucketNode.add(node);
+                bucketTarget.add(t);
+                bucketTime.add(search.time[node]);
+                bucketMeters.add(search.meters[node]);
+            }
+            search.reset();
+        }
+
+        // Group the entries by node
+        int[] bucketFirst = new int[nodeCount + 1];
+        for (int i = 0; i < bucketNode.size; i++) bucketFirst[bucketNode.values[i] + 1]++;
+        for (int v = 0; v < nodeCount; v++) bucketFirst[v + 1] += bucketFirst[v];
+        int[] fill = Arrays.copyOf(bucketFirst, nodeCount);
+        int[] order = new int[bucketNode.size];
+        for (int i = 0; i < bucketNode.size; i++) order[fill[bucketNode.values[i]]++] = i;
+
+        // Forward searches meet the buckets
+        for (int s = 0; s < sources.length; s++) {
+            if (sources[s] < 0) continue;
+            search.run(sources[s], forwardFirst, forwardTo, forwardTime, forwardMeters,
+                    backwardFirst, backwardTo, backwardTime);
+            int row = s * targets.length;
+            for (int i = 0; i < search.settled.size; i++) {
+                int node = search.settled.values[i];
+                for (int b = bucketFirst[node]; b < bucketFirst[node + 1]; b++) {
+                    int entry = order[b];
+                    int time = search.time[node] + bucketTime.values[entry];
+                    int cell = row + bucketTarget.values[entry];
+                    if (time < times[cell]) {
+                        times[cell] = time;
+                        meters[cell] = search.meters[node] + bucketMeters.values[entry];
+                    }
+                }
+            }
+            search.reset();
+        }
+    }
+
+    /**
+     * Node closest to the location within maxMeters, or -1
+     */
+    public int nearestNode(double latitude, double longitude, double maxMeters) {
+        long row = (long) Math.floor(latitude / GRID_CELL_DEGREES);
+        long column = (long) Math.floor(longitude / GRID_CELL_DEGREES);
+        double cellMeters = GRID_CELL_DEGREES * 111_000 * Math.cos(Math.toRadians(latitude));
+        int maxRing = (int) Math.ceil(maxMeters / cellMeters) + 1;
+
+        int best = -1;
+        double bestMeters = maxMeters;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            for (long r = row - ring; r <= row + ring; r++) {
+                for (long c = column - ring; c <= column + ring; c++) {
+                    if (Math.max(Math.abs(r - row), Math.abs(c - column)) != ring) continue;
+                    int[] nodes = grid.get(cellKey(r, c));
+                    if (nodes == null) continue;
+                    for (int node : nodes) {
+                        double distance = GeoKernel.distanceMeters(latitude, longitude, latitudes[node], longitudes[node]);
+                        if (distance <= bestMeters) {
+                            best = node;
+                            bestMeters = distance;
+                        }
+                    }
+                }
+            }
+            // Nodes in the next ring are at least this many cells away
+            if (best >= 0 && bestMeters <= ring * cellMeters) break;
+        }
+        return best;
+    }
+
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(nodeCount);
+            for (int v = 0; v < nodeCount; v++) {
+                out.writeDouble(latitudes[v]);
+                out.writeDouble(longitudes[v]);
+            }
+            for (int[] array : new int[][]{forwardFirst, forwardTo, forwardTime, forwardMeters,
+                    backwardFirst, backwardTo, backwardTime, backwardMeters}) {
+                out.writeInt(array.length);
+                for (int value : array) out.writeInt(value);
+            }
+        }
+    }
+
+    public static ContractionHierarchy load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException("Not a contraction hierarchy file: " + file);
+            }
+            int nodeCount = in.readInt();
+            double[] latitudes = new double[nodeCount];
+            double[] longitudes = new double[nodeCount];
+            for (int v = 0; v < nodeCount; v++) {
+                latitudes[v] = in.readDouble();
+                longitudes[v] = in.readDouble();
+            }
+            int[][] arrays = new int[8][];
+            for (int a = 0; a < arrays.length; a++) {
+                arrays[a] = new int[in.readInt()];
+                for (int i = 0; i < arrays[a].length; i++) arrays[a][i] = in.readInt();
+            }
+            return new ContractionHierarchy(latitudes, longitudes,
+                    arrays[0], arrays[1], arrays[2], arrays[3], arrays[4], arrays[5], arrays[6], arrays[7]);
+        }
+    }
+
+    private void buildGrid() {
+        Map<Long, IntList> cells = new HashMap<>();
+        for (int v = 0; v < nodeCount; v++) {
+            long key = cellKey((long) Math.floor(latitudes[v] / GRID_CELL_DEGREES),
+                    (long) Math.floor(longitudes[v] / GRID_CELL_DEGREES));
+            cells.computeIfAbsent(key, k -> new IntList()).add(v);
+        }
+        cells.forEach((key, nodes) -> grid.put(key, Arrays.copyOf(nodes.values, nodes.size)));
+    }
+
+    private static long cellKey(long row, long column) {
+        return (row << 32) ^ (column & 0xffffffffL);
+    }
+
+    /**
+     * Preprocessing: node ordering by edge difference with lazy updates, bounded witness searches
+     */
+    private static final class Contractor {
+        private final RoadNetwork network;
+        private final int n;
+        private final Adjacency[] out;
+        private final Adjacency[] in;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbours;
+        private final int[] level; // Longest chain of contracted nodes below this one
+
+        // Witness search state, reused
+        private final int[] witnessTime;
+        private final IntList witnessTouched = new IntList();
+        private final LongHeap witnessHeap = new LongHeap();
+
+        Contractor(RoadNetwork network) {
+            this.network = network;
+            this.n = network.getNodeCount();
+            this.out = new Adjacency[n];
+            this.in = new Adjacency[n];
+            for (int v = 0; v < n; v++) {
+                out[v] = new Adjacency();
+                in[v] = new Adjacency();
+            }
+            this.contracted = new boolean[n];
+            this.contractedNeighbours = new int[n];
+            this.level = new int[n];
+            this.witnessTime = new int[n];
+            Arrays.fill(witnessTime, UNREACHABLE);
+
+            for (int e = 0; e < network.getEdgeCount(); e++) {
+                addEdge(network.getEdgeFrom(e), network.getEdgeTo(e), network.getEdgeTime(e), network.getEdgeMeters(e));
+            }
+        }
+
+        ContractionHierarchy contract() {
+            // Priorities are offset to stay positive inside the packed heap entries
+            final long offset = 1L << 30;
+            LongHeap queue = new LongHeap();
+            for (int v = 0; v < n; v++) {
+                queue.push((priority(v) + offset) << 32 | v);
+            }
+
+            int[] rank = new int[n];
+            int nextRank = 0;
+            while (!queue.isEmpty()) {
+                int v = (int) queue.pop();
+                int current = priority(v);
+                if (!queue.isEmpty() && current + offset > (queue.peek() >>> 32)) {
+                    queue.push((current + offset) << 32 | v);
+                    continue;
+                }
+
+                contractNode(v, false);
+                contracted[v] = true;
+                rank[v] = nextRank++;
+                for (int i = 0; i < out[v].size; i++) neighbourContracted(out[v].to[i], v);
+                for (int i = 0; i < in[v].size; i++) neighbourContracted(in[v].to[i], v);
+            }
+
+            return toHierarchy(rank);
+        }
+
+        private void neighbourContracted(int neighbour, int v) {
+            contractedNeighbours[neighbour]++;
+            level[neighbour] = Math.max(level[neighbour], level[v] + 1);
+        }
+
+        private int priority(int v) {
+            int degree = 0;
+            for (int i = 0; i < out[v].size; i++) if (!contracted[out[v].to[i]]) degree++;
+            for (int i = 0; i < in[v].size; i++) if (!contracted[in[v].to[i]]) degree++;
+            // Edge difference, plus terms that spread contraction evenly and keep the hierarchy shallow
+            return 2 * (contractNode(v, true) - degree) + contractedNeighbours[v] + level[v];
+        }
+
+        /**
+         * Shortcuts needed to contract v; adds them unless simulating
+         */
+        private int contractNode(int v, boolean simulate) {
+            int shortcuts = 0;
+            Adjacency incoming = in[v];
+            Adjacency outgoing = out[v];
+
+            for (int i = 0; i < incoming.size; i++) {
+                int u = incoming.to[i];
+                if (contracted[u]) continue;
+
+                int maxTime = -1;
+                for (int j = 0; j < outgoing.size; j++) {
+                    int w = outgoing.to[j];
+                    if (!contracted[w] && w != u) maxTime = Math.max(maxTime, incoming.time[i] + outgoing.time[j]);
+                }
+                if (maxTime < 0) continue;
+
+                witnessSearch(u, v, maxTime);
+                for (int j = 0; j < outgoing.size; j++) {
+                    int w = outgoing.to[j];
+                    if (contracted[w] || w == u) continue;
+                    int viaTime = incoming.time[i] + outgoing.time[j];
+                    if (witnessTime[w] > viaTime) {
+                        shortcuts++;
+                        if (!simulate) addEdge(u, w, viaTime, incoming.meters[i] + outgoing.meters[j]);
+                    }
+                }
+                resetWitnessSearch();
+            }
+            return shortcuts;
+        }
+
+        private void witnessSearch(int source, int ignored, int maxTime) {
+            witnessTime[source] = 0;
+            witnessTouched.add(source);
+            witnessHeap.push(source);
+
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && settled < WITNESS_SEARCH_LIMIT) {
+                long entry = witnessHeap.pop();
+                int node = (int) entry;
+                int time = (int) (entry >>> 32);
+                if (time > witnessTime[node]) continue;
+                if (time > maxTime) break;
+                settled++;
+
+                Adjacency edges = out[node];
+                for (int i = 0; i < edges.size; i++) {
+                    int next = edges.to[i];
+                    if (next == ignored || contracted[next]) continue;
+                    int nextTime = time + edges.time[i];
+                    if (nextTime < witnessTime[next]) {
+                        if (witnessTime[next] == UNREACHABLE) witnessTouched.add(next);
+                        witnessTime[next] = nextTime;
+                        witnessHeap.push((long) nextTime << 32 | next);
+                    }
+                }
+            }
+        }
+
+        private void resetWitnessSearch() {
+            for (int i = 0; i < witnessTouched.size; i++) witnessTime[witnessTouched.values[i]] = UNREACHABLE;
+            witnessTouched.size = 0;
+            witnessHeap.clear();
+        }
+
+        private void addEdge(int from, int to, int time, int meters) {
+            out[from].put(to, time, meters);
+            in[to].put(from, time, meters);
+        }
+
+        /**
+         * Keep the edges that go up in rank: u -> w in the forward graph when w ranks higher,
+         * otherwise w <- u in the backward graph of w
+         */
+        private ContractionHierarchy toHierarchy(int[] rank) {
+            int[] forwardFirst = new int[n + 1];
+            int[] backwardFirst = new int[n + 1];
+            for (int u = 0; u < n; u++) {
+                for (int i = 0; i < out[u].size; i++) {
+                    int w = out[u].to[i];
+                    if (rank[u] < rank[w]) forwardFirst[u + 1]++;
+                    else backwardFirst[w + 1]++;
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                forwardFirst[v + 1] += forwardFirst[v];
+                backwardFirst[v + 1] += backwardFirst[v];
+            }
+
+            int[] forwardTo = new int[forwardFirst[n]], forwardTime = new int[forwardFirst[n]], forwardMeters = new int[forwardFirst[n]];
+            int[] backwardTo = new int[backwardFirst[n]], backwardTime = new int[backwardFirst[n]], backwardMeters = new int[backwardFirst[n]];
+            int[] forwardFill = Arrays.copyOf(forwardFirst, n);
+            int[] backwardFill = Arrays.copyOf(backwardFirst, n);
+            for (int u = 0; u < n; u++) {
+                for (int i = 0; i < out[u].size; i++) {
+                    int w = out[u].to[i];
+                    if (rank[u] < rank[w]) {
+                        int slot = forwardFill[u]++;
+                        forwardTo[slot] = w;
+                        forwardTime[slot] = out[u].time[i];
+                        forwardMeters[slot] = out[u].meters[i];
+                    } else {
+                        int slot = backwardFill[w]++;
+                        backwardTo[slot] = u;
+                        backwardTime[slot] = out[u].time[i];
+                        backwardMeters[slot] = out[u].meters[i];
+                    }
+                }
+            }
+
+            double[] latitudes = new double[n];
+            double[] longitudes = new double[n];
+            for (int v = 0; v < n; v++) {
+                latitudes[v] = network.getLatitude(v);
+                longitudes[v] = network.getLongitude(v);
+            }
+            return new ContractionHierarchy(latitudes, longitudes,
+                    forwardFirst, forwardTo, forwardTime, forwardMeters,
+                    backwardFirst, backwardTo, backwardTime, backwardMeters);
+        }
+    }
+
+    /**
+     * Upward Dijkstra search that settles its whole search space. A node that can be reached
+     * faster from an already reached higher node (found through the opposite graph's edges) is
+     * "stalled": its distance is not a shortest one, so it is neither expanded nor reported.
+     */
+    private static final class Search {
+        final int[] time;
+        final int[] meters;
+        final IntList settled = new IntList();
+        private final IntList touched = new IntList();
+        private final LongHeap heap = new LongHeap();
+
+        Search(int nodeCount) {
+            time = new int[nodeCount];
+            meters = new int[nodeCount];
+            Arrays.fill(time, UNREACHABLE);
+        }
+
+        void run(int source, int[] first, int[] to, int[] edgeTime, int[] edgeMeters,
+                 int[] stallFirst, int[] stallTo, int[] stallTime) {
+            time[source] = 0;
+            meters[source] = 0;
+            touched.add(source);
+            heap.push(source);
+
+            while (!heap.isEmpty()) {
+                long entry = heap.pop();
+                int node = (int) entry;
+                if ((int) (entry >>> 32) > time[node]) continue;
+                if (isStalled(node, stallFirst, stallTo, stallTime)) continue;
+                settled.add(node);
+
+                for (int e = first[node]; e < first[node + 1]; e++) {
+                    int next = to[e];
+                    int nextTime = time[node] + edgeTime[e];
+                    if (nextTime < time[next]) {
+                        if (time[next] == UNREACHABLE) touched.add(next);
+                        time[next] = nextTime;
+                        meters[next] = meters[node] + edgeMeters[e];
+                        heap.push((long) nextTime << 32 | next);
+                    }
+                }
+            }
+        }
+
+        private boolean isStalled(int node, int[] stallFirst, int[] stallTo, int[] stallTime) {
+            for (int e = stallFirst[node]; e < stallFirst[node + 1]; e++) {
+                int higher = stallTo[e];
+                if (time[higher] != UNREACHABLE && time[higher] + stallTime[e] < time[node]) return true;
+            }
+            return false;
+        }
+
+        void reset() {
+            for (int i = 0; i < touched.size; i++) time[touched.values[i]] = UNREACHABLE;
+            touched.size = 0;
+            settled.size = 0;
+        }
+    }
+
+    /**
+     * Edges of one node while preprocessing; parallel edges keep the fastest
+     */
+    private static final class Adjacency {
+        int[] to = new int[4];
+        int[] time = new int[4];
+        int[] meters = new int[4];
+        int size;
+
+        void put(int target, int edgeTime, int edgeMeters) {
+            for (int i = 0; i < size; i++) {
+                if (to[i] == target) {
+                    if (edgeTime < time[i]) {
+                        time[i] = edgeTime;
+                        meters[i] = edgeMeters;
+                    }
+                    return;
+                }
+            }
+            if (size == to.length) {
+                to = Arrays.copyOf(to, size * 2);
+                time = Arrays.copyOf(time, size * 2);
+                meters = Arrays.copyOf(meters, size * 2);
+            }
+            to[size] = target;
+            time[size] = edgeTime;
+            meters[size] = edgeMeters;
+            size++;
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * Binary min-heap of longs; entries pack a key in the high bits and a node in the low bits
+     */
+    private static final class LongHeap {
+        private long[] heap = new long[64];
+        private int size;
+
+        boolean isEmpty() { return size == 0; }
+        long peek() { return heap[0]; }
+        void clear() { size = 0; }
+
+        void push(long value) {
+            if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heap[parent] <= value) break;
+                heap[i] = heap[parent];
+                i = parent;
+            }
+            heap[i] = value;
+        }
+
+        long pop() {
+            long top = heap[0];
+            long last = heap[--size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) break;
+                if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+                if (heap[child] >= last) break;
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = last;
+            return top;
+        }
+    }
+}
@@ -4,16 +4,24 @@ package com.anansu.powerwashrouting.service;
 import com.anansu.powerwashrouting.model.ServiceType;
 import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
 import org.optaplanner.core.api.domain.entity.PlanningEntity;
+import org.optaplanner.core.api.domain.entity.PlanningPin;
+import org.optaplanner.core.api.domain.lookup.PlanningId;
+import org.optaplanner.core.api.domain.variable.AnchorShadowVariable;
+import org.optaplanner.core.api.domain.variable.CustomShadowVariable;
 import org.optaplanner.core.api.domain.variable.PlanningVariable;
+import org.optaplanner.core.api.domain.variable.PlanningVariableGraphType;
+import org.optaplanner.core.api.domain.variable.PlanningVariableReference;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
-@PlanningEntity
-public class Customer {
+@PlanningEntity(difficultyComparatorClass = CustomerDifficultyComparator.class)
+public class Customer implements Standstill {
 
     private Long id;
     private Location location;
+    private int locationIndex;
+    private TravelTimes travelMatrix;
     private ServiceType serviceType;
     private int serviceTimeMinutes;
     private int requiredCrewSize;
@@ -23,9 +31,23 @@ public class Customer {
     private LocalDateTime preferredTime;
     private BigDecimal quoteValue;
 
+    // Time window in minutes since midnight of the route date (null when open)
+    private Integer readyMinute;
+    private Integer dueMinute;
+    private Integer preferredMinute;
+
+    // Stops the crew has already started stay where they are when re-optimizing
+    private boolean pinned;
+
     // Planning variables
+    private Standstill previousStandstill;
+
+    // Shadow variables
     private OptimizationVehicle vehicle;
-    private Customer previousCustomer;
+    private Customer nextCustomer;
+    private Integer arrivalMinute;
+    private Integer departureMinute;
+    private Integer waitMinutes;
 
     public Customer() {}
 
@@ -35,26 +57,111 @@ public class Customer {
         this.serviceType = serviceType;
     }
 
-    @PlanningVariable(valueRangeProviderRefs = {"vehicleRange"})
+    /**
+     * Copy of the problem facts of a customer, not yet assigned to any vehicle
+     */
+    public Customer(Customer original) {
+        this.id = original.id;
+        this.location = original.location;
+        this.locationIndex = original.locationIndex;
+        this.travelMatrix = original.travelMatrix;
+        this.serviceType = original.serviceType;
+        this.serviceTimeMinutes = original.serviceTimeMinutes;
+        this.requiredCrewSize = original.requiredCrewSize;
+        this.priority = original.priority;
+        this.earliestStartTime = original.earliestStartTime;
+        this.latestStartTime = original.latestStartTime;
+        this.preferredTime = original.preferredTime;
+        this.quoteValue = original.quoteValue;
+        this.readyMinute = original.readyMinute;
+        this.dueMinute = original.dueMinute;
+        this.preferredMinute = original.preferredMinute;
+    }
+
+    @PlanningVariable(valueRangeProviderRefs = {"vehicleRange", "customerRange"},
+            graphType = PlanningVariableGraphType.CHAINED)
+    public Standstill getPreviousStandstill() {
+        return previousStandstill;
+    }
+
+    public void setPreviousStandstill(Standstill previousStandstill) {
+        this.previousStandstill = previousStandstill;
+    }
+
+    @Override
+    @AnchorShadowVariable(sourceVariableName = "previousStandstill")
     public OptimizationVehicle getVehicle() {
         return vehicle;
     }
 
     public void setVehicle(OptimizationVehicle vehicle) {
         this.vehicle = vehicle;
-        // Maintain bidirectional relationship
-        if (vehicle != null && !vehicle.getCustomers().contains(this)) {
-            vehicle.getCustomers().add(this);
-        }
+    }
+
+    @Override
+    public Customer getNextCustomer() {
+        return nextCustomer;
+    }
+
+    @Override
+    public void setNextCustomer(Customer nextCustomer) {
+        this.nextCustomer = nextCustomer;
+    }
+
+    @CustomShadowVariable(variableListenerClass = ArrivalTimeUpdatingVariableListener.class,
+            sources = {@PlanningVariableReference(variableName = "previousStandstill")})
+    public Integer getArrivalMinute() {
+        return arrivalMinute;
+    }
+
+    public void setArrivalMinute(Integer arrivalMinute) {
+        this.arrivalMinute = arrivalMinute;
+    }
+
+    @Override
+    @CustomShadowVariable(variableListenerRef = @PlanningVariableReference(variableName = "arrivalMinute"))
+    public Integer getDepartureMinute() {
+        return departureMinute;
+    }
+
+    public void setDepartureMinute(Integer departureMinute) {
+        this.departureMinute = departureMinute;
+    }
+
+    @CustomShadowVariable(variableListenerRef = @PlanningVariableReference(variableName = "arrivalMinute"))
+    public Integer getWaitMinutes() {
+        return waitMinutes;
+    }
+
+    public void setWaitMinutes(Integer waitMinutes) {
+        this.waitMinutes = waitMinutes;
+    }
+
+    @PlanningPin
+    public boolean isPinned() {
+        return pinned;
+    }
+
+    public void setPinned(boolean pinned) {
+        this.pinned = pinned;
     }
 
     // Getters and setters
+    @PlanningId
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
+    @Override
     public Location getLocation() { return location; }
     public void setLocation(Location location) { this.location = location; }
 
+    @Override
+    public int getLocationIndex() { return locationIndex; }
+    public void setLocationIndex(int locationIndex) { this.locationIndex = locationIndex; }
+
+    public TravelTimes getTravelMatrix() { return travelMatrix; }
+    public void setTravelMatrix(TravelTimes travelMatrix) { this.travelMatrix = travelMatrix; }
+
     public ServiceType getServiceType() { return serviceType; }
     public void setServiceType(ServiceType serviceType) { this.serviceType = serviceType; }
 
@@ -88,6 +195,54 @@ public class Customer {
         this.latestStartTime = latest;
     }
 
+    public Integer getReadyMinute() { return readyMinute; }
+    public void setReadyMinute(Integer readyMinute) { this.readyMinute = readyMinute; }
+
+    public Integer getDueMinute() { return dueMinute; }
+    public void setDueMinute(Integer dueMinute) { this.dueMinute = dueMinute; }
+
+    public Integer getPreferredMinute() { return preferredMinute; }
+    public void setPreferredMinute(Integer preferredMinute) { this.preferredMinute = preferredMinute; }
+
+    /**
+     * Minute the crew starts working: on arrival, or at the start of the time window if early
+     */
+    public Integer getServiceStartMinute() {
+        if (arrivalMinute == null) return null;
+        return arrivalMinute + (waitMinutes != null ? waitMinutes : 0);
+    }
+
+    /**
+     * Minutes the crew starts after the latest allowed start time
+     */
+    public int getLateMinutes() {
+        if (arrivalMinute == null || dueMinute == null) return 0;
+        return Math.max(0, arrivalMinute - dueMinute);
+    }
+
+    public int getTravelMinutesFrom(Standstill standstill) {
+        return travelMatrix.getTravelMinutes(standstill.getLocationIndex(), locationIndex);
+    }
+
+    public int getDistanceMetersFrom(Standstill standstill) {
+        return travelMatrix.getDistanceMeters(standstill.getLocationIndex(), locationIndex);
+    }
+
+    public int getTravelMinutesToDepot() {
+        return travelMatrix.getTravelMinutes(locationIndex, vehicle.getLocationIndex());
+    }
+
+    public int getDistanceMetersToDepot() {
+        return travelMatrix.getDistanceMeters(locationIndex, vehicle.getLocationIndex());
+    }
+
+    /**
+     * Whether this customer is the last stop before the vehicle returns to the depot
+     */
+    public boolean isLastStop() {
+        return nextCustomer == null;
+    }
+
     @Override
     public String toString() {
         return "Customer{" +
@@ -96,12 +251,4 @@ public class Customer {
                 ", vehicle=" + (vehicle != null ? vehicle.getId() : "null") +
                 '}';
     }
-
-    public Customer getPreviousCustomer() {
-        return previousCustomer;
-    }
-
-    public void setPreviousCustomer(Customer previousCustomer) {
-        this.previousCustomer = previousCustomer;
-    }
 }
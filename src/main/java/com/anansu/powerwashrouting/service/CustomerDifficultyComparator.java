@@ -0,0 +1,22 @@
+package com.anansu.powerwashrouting.service;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+
+/**
+ * Orders customers from easiest to hardest to place, so the construction heuristic
+ * inserts high priority and high value jobs first while routes are still empty.
+ */
+public class CustomerDifficultyComparator implements Comparator<Customer> {
+
+    private static final Comparator<Customer> COMPARATOR = Comparator
+            .comparingInt(Customer::getPriority)
+            .thenComparing(customer -> customer.getQuoteValue() != null ? customer.getQuoteValue() : BigDecimal.ZERO)
+            .thenComparingInt(Customer::getServiceTimeMinutes)
+            .thenComparing(Customer::getId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    @Override
+    public int compare(Customer a, Customer b) {
+        return COMPARATOR.compare(a, b);
+    }
+}
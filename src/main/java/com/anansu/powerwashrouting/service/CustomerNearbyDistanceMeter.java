@@ -0,0 +1,16 @@
+package com.anansu.powerwashrouting.service;
+
+import org.optaplanner.core.impl.heuristic.selector.common.nearby.NearbyDistanceMeter;
+
+/**
+ * Distance used by nearby selection: how far a customer is from a standstill it could follow
+ * (or swap with), read from the precomputed travel matrix. Road meters rather than minutes,
+ * because many short legs round to the same minute and would tie.
+ */
+public class CustomerNearbyDistanceMeter implements NearbyDistanceMeter<Customer, Standstill> {
+
+    @Override
+    public double getNearbyDistance(Customer origin, Standstill destination) {
+        return origin.getDistanceMetersFrom(destination);
+    }
+}
@@ -0,0 +1,157 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+
+/**
+ * Great-circle distances over a fixed set of locations. Radians, cos(latitude) and the unit vector
+ * of every location are computed once, so a distance is a few multiplications and one asin instead
+ * of the full haversine per pair.
+ *
+ * The batch methods work on flat arrays in two simple loops (squared chord lengths, then arc
+ * lengths) that the JIT can unroll and vectorize.
+ */
+public final class GeoKernel {
+
+    public static final double EARTH_RADIUS_METERS = 6_371_000;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] cosLatitudes;
+    private final double[] x;
+    private final double[] y;
+    private final double[] z;
+
+    private GeoKernel(double[] latitudeDegrees, double[] longitudeDegrees) {
+        int size = latitudeDegrees.length;
+        this.latitudes = new double[size];
+        this.longitudes = new double[size];
+        this.cosLatitudes = new double[size];
+        this.x = new double[size];
+        this.y = new double[size];
+        this.z = new double[size];
+        for (int i = 0; i < size; i++) {
+            latitudes[i] = Math.toRadians(latitudeDegrees[i]);
+            longitudes[i] = Math.toRadians(longitudeDegrees[i]);
+            cosLatitudes[i] = Math.cos(latitudes[i]);
+            x[i] = cosLatitudes[i] * Math.cos(longitudes[i]);
+            y[i] = cosLatitudes[i] * Math.sin(longitudes[i]);
+            z[i] = Math.sin(latitudes[i]);
+        }
+    }
+
+    public static GeoKernel of(double[] latitudeDegrees, double[] longitudeDegrees) {
+        return new GeoKernel(latitudeDegrees, longitudeDegrees);
+    }
+
+    public static GeoKernel of(Location... locations) {
+        double[] latitudeDegrees = new double[locations.length];
+        double[] longitudeDegrees = new double[locations.length];
+        for (int i = 0; i < locations.length; i++) {
+            latitudeDegrees[i] = locations[i].getLatitude();
+            longitudeDegrees[i] = locations[i].getLongitude();
+        }
+        return new GeoKernel(latitudeDegrees, longitudeDegrees);
+    }
+
+    /**
+     * Distance between two points given in degrees, for one-off pairs
+     */
+    public static double distanceMeters(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLat = Math.toRadians(latitude2 - latitude1);
+        double dLon = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return EARTH_RADIUS_METERS * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    public static double distanceMeters(Location from, Location to) {
+        return distanceMeters(from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude());
+    }
+
+    public int size() { return latitudes.length; }
+
+    public double distanceMeters(int from, int to) {
+        double dx = x[from] - x[to];
+        double dy = y[from] - y[to];
+        double dz = z[from] - z[to];
+        return arcMeters(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Distance from location {@code from} of this set to location {@code to} of another set
+     */
+    public double distanceMeters(int from, GeoKernel other, int to) {
+        double dx = x[from] - other.x[to];
+        double dy = y[from] - other.y[to];
+        double dz = z[from] - other.z[to];
+        return arcMeters(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * Distances from one point (in degrees) to every location of this set
+     */
+    public void distancesFrom(double latitude, double longitude, double[] meters) {
+        double latitudeRadians = Math.toRadians(latitude);
+        double longitudeRadians = Math.toRadians(longitude);
+        double cosLatitude = Math.cos(latitudeRadians);
+        distancesFrom(cosLatitude * Math.cos(longitudeRadians), cosLatitude * Math.sin(longitudeRadians),
+                Math.sin(latitudeRadians), meters, 0);
+    }
+
+    /**
+     * Distances from location {@code from} of this set to every location of this set
+     */
+    public void distancesFrom(int from, double[] meters) {
+        distancesFrom(x[from], y[from], z[from], meters, 0);
+    }
+
+    /**
+     * Row-major matrix of distances from every location of this set to every location of
+     * {@code destinations}
+     */
+    public double[] distanceMatrix(GeoKernel destinations) {
+        int columns = destinations.size();
+        double[] meters = new double[size() * columns];
+        for (int i = 0; i < size(); i++) {
+            destinations.distancesFrom(x[i], y[i], z[i], meters, i * columns);
+        }
+        return meters;
+    }
+
+    private void distancesFrom(double fromX, double fromY, double fromZ, double[] meters, int offset) {
+        int size = x.length;
+        for (int j = 0; j < size; j++) {
+            double dx = fromX - x[j];
+            double dy = fromY - y[j];
+            double dz = fromZ - z[j];
+            meters[offset + j] = dx * dx + dy * dy + dz * dz;
+        }
+        for (int j = 0; j < size; j++) {
+            meters[offset + j] = arcMeters(meters[offset + j]);
+        }
+    }
+
+    /**
+     * Bearing of every location of this set seen from an origin (in degrees), counter-clockwise
+     * from east in radians. Uses an equirectangular projection, which is accurate enough for
+     * ordering locations within a metro area.
+     */
+    public double[] bearingsFrom(double latitude, double longitude) {
+        double latitudeRadians = Math.toRadians(latitude);
+        double longitudeRadians = Math.toRadians(longitude);
+        double cosLatitude = Math.cos(latitudeRadians);
+        double[] bearings = new double[size()];
+        for (int i = 0; i < bearings.length; i++) {
+            bearings[i] = Math.atan2(latitudes[i] - latitudeRadians, (longitudes[i] - longitudeRadians) * cosLatitude);
+        }
+        return bearings;
+    }
+
+    public double getCosLatitude(int index) { return cosLatitudes[index]; }
+
+    private static double arcMeters(double squaredChord) {
+        // Chord of the unit sphere to arc length; clamped against rounding for antipodal points
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(squaredChord) / 2));
+    }
+}
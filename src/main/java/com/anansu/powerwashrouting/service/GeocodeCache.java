@@ -0,0 +1,236 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.db.GeocodeEntryRepository;
+import com.anansu.powerwashrouting.model.GeocodeEntry;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of geocoded addresses, so repeat customers and recurring jobs are geocoded once.
+ * Addresses are normalized first (case, whitespace, punctuation, common street suffixes), so
+ * small spelling differences share an entry.
+ *
+ * The memory tier is a bounded LRU map. Behind it, entries are stored in the database, so they
+ * survive restarts; stored entries older than the TTL are geocoded again.
+ */
+@Service
+public class GeocodeCache {
+
+    private static final Map<String, String> ABBREVIATIONS = Map.ofEntries(
+            Map.entry("street", "st"), Map.entry("avenue", "ave"), Map.entry("road", "rd"),
+            Map.entry("drive", "dr"), Map.entry("boulevard", "blvd"), Map.entry("lane", "ln"),
+            Map.entry("court", "ct"), Map.entry("place", "pl"), Map.entry("terrace", "ter"),
+            Map.entry("parkway", "pkwy"), Map.entry("highway", "hwy"), Map.entry("suite", "ste"),
+            Map.entry("apartment", "apt"), Map.entry("north", "n"), Map.entry("south", "s"),
+            Map.entry("east", "e"), Map.entry("west", "w"));
+
+    private final GeocodeEntryRepository repository;
+    private final TransactionTemplate writeTransaction;
+
+    private final int maxMemoryEntries;
+    private final Duration diskTimeToLive;
+
+    private final Map<String, Location> memory;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public GeocodeCache(GeocodeEntryRepository repository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${routing.geocode-cache.memory-max-entries:10000}") int maxMemoryEntries,
+                        @Value("${routing.geocode-cache.disk-ttl-days:180}") int diskTimeToLiveDays) {
+        this.repository = repository;
+        this.maxMemoryEntries = maxMemoryEntries;
+        this.diskTimeToLive = Duration.ofDays(diskTimeToLiveDays);
+
+        // Cache writes must never roll back (or be rolled back with) the caller's transaction
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.memory = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Location> eldest) {
+                if (size() > GeocodeCache.this.maxMemoryEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cache key of an address: lower case, single spaces, no punctuation, common suffixes abbreviated
+     */
+    public static String normalize(String address) {
+        String[] words = address.toLowerCase(Locale.ROOT)
+                .replaceAll("[^a-z0-9,# ]", " ")
+                .replace(",", " , ")
+                .trim()
+                .split("\\s+");
+
+        StringBuilder sb = new StringBuilder();
+        for (String word : words) {
+            if (sb.length() > 0 && !word.equals(",")) sb.append(' ');
+            sb.append(ABBREVIATIONS.getOrDefault(word, word));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Cached location, or null when neither tier has a fresh entry
+     */
+    public Location get(String address) {
+        String key = normalize(address);
+
+        Location location;
+        synchronized (memory) {
+            location = memory.get(key);
+        }
+        if (location != null) {
+            memoryHits.incrementAndGet();
+            return location;
+        }
+
+        GeocodeEntry entry = repository.findByNormalizedAddress(key).orElse(null);
+        if (isFresh(entry)) {
+            diskHits.incrementAndGet();
+            return remember(entry);
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Cached locations of many addresses, keyed by the address as given. Memory misses are looked
+     * up in the database with one query; addresses without a fresh entry are left out.
+     */
+    public Map<String, Location> getAll(Collection<String> addresses) {
+        Map<String, Location> found = new HashMap<>();
+        Map<String, List<String>> missingByKey = new HashMap<>();
+
+        synchronized (memory) {
+            for (String address : addresses) {
+                String key = normalize(address);
+                Location location = memory.get(key);
+                if (location != null) {
+                    memoryHits.incrementAndGet();
+                    found.put(address, location);
+                } else {
+                    missingByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(address);
+                }
+            }
+        }
+
+        if (!missingByKey.isEmpty()) {
+            for (GeocodeEntry entry : repository.findByNormalizedAddressIn(missingByKey.keySet())) {
+                if (!isFresh(entry)) continue;
+                Location location = remember(entry);
+                for (String address : missingByKey.remove(entry.getNormalizedAddress())) {
+                    diskHits.incrementAndGet();
+                    found.put(address, location);
+                }
+            }
+            missingByKey.values().forEach(missing -> misses.addAndGet(missing.size()));
+        }
+
+        return found;
+    }
+
+    /**
+     * Store a location returned by the geocoder in both tiers
+     */
+    public void put(String address, Location location) {
+        String key = normalize(address);
+        synchronized (memory) {
+            memory.put(key, location);
+        }
+
+        try {
+            writeTransaction.executeWithoutResult(status -> {
+                GeocodeEntry entry = repository.findByNormalizedAddress(key).orElseGet(() -> new GeocodeEntry(key));
+                entry.setLatitude(location.getLatitude());
+                entry.setLongitude(location.getLongitude());
+                entry.setFetchedAt(LocalDateTime.now());
+                repository.save(entry);
+            });
+        } catch (Exception e) {
+            // Another thread stored the same address first, or the database is busy; memory still has it
+            System.err.println("Could not persist geocode for " + key + ": " + e.getMessage());
+        }
+    }
+
+    public GeocodeStats getStats() {
+        int memoryEntries;
+        synchronized (memory) {
+            memoryEntries = memory.size();
+        }
+        return new GeocodeStats(memoryHits.get(), diskHits.get(), misses.get(), evictions.get(),
+                memoryEntries, repository.count());
+    }
+
+    private boolean isFresh(GeocodeEntry entry) {
+        return entry != null && entry.getFetchedAt().isAfter(LocalDateTime.now().minus(diskTimeToLive));
+    }
+
+    private Location remember(GeocodeEntry entry) {
+        Location location = new Location(entry.getLatitude(), entry.getLongitude());
+        synchronized (memory) {
+            memory.put(entry.getNormalizedAddress(), location);
+        }
+        return location;
+    }
+
+    public static class GeocodeStats {
+        private long memoryHits;
+        private long storedHits;
+        private long misses;
+        private long evictions;
+        private int memoryAddresses;
+        private long storedAddresses;
+
+        public GeocodeStats(long memoryHits, long storedHits, long misses, long evictions,
+                            int memoryAddresses, long storedAddresses) {
+            this.memoryHits = memoryHits;
+            this.storedHits = storedHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.memoryAddresses = memoryAddresses;
+            this.storedAddresses = storedAddresses;
+        }
+
+        // Getters
+        public long getMemoryHits() { return memoryHits; }
+        public long getStoredHits() { return storedHits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public int getMemoryAddresses() { return memoryAddresses; }
+        public long getStoredAddresses() { return storedAddresses; }
+
+        /**
+         * Share of address lookups answered without calling the geocoder
+         */
+        public double getHitRate() {
+            long lookups = memoryHits + storedHits + misses;
+            return lookups == 0 ? 0 : (double) (memoryHits + storedHits) / lookups;
+        }
+    }
+}
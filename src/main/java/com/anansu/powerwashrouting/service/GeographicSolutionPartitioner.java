@@ -0,0 +1,165 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.partitionedsearch.partitioner.SolutionPartitioner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Splits a routing day into geographic sectors for partitioned search. Customers are swept by
+ * their bearing from the depot and cut into sectors of roughly equal service time; vehicles are
+ * shared out in proportion to each sector's workload. Each sector is then solved on its own thread.
+ */
+public class GeographicSolutionPartitioner implements SolutionPartitioner<VehicleRoutingSolution> {
+
+    // Target number of customers per partition, set from the solver config
+    private int partitionSize = 150;
+
+    public void setPartitionSize(int partitionSize) {
+        this.partitionSize = partitionSize;
+    }
+
+    @Override
+    public List<VehicleRoutingSolution> splitWorkingSolution(ScoreDirector<VehicleRoutingSolution> scoreDirector,
+                                                             Integer runnablePartThreadLimit) {
+        VehicleRoutingSolution solution = scoreDirector.getWorkingSolution();
+        List<Customer> customers = sweepOrder(solution.getDepot(), solution.getCustomers());
+        List<OptimizationVehicle> vehicles = solution.getVehicles();
+
+        int partitionCount = Math.min(vehicles.size(),
+                Math.max(1, (int) Math.ceil((double) customers.size() / partitionSize)));
+        if (partitionCount <= 1) {
+            return List.of(createPartition(solution, vehicles, customers));
+        }
+
+        List<List<Customer>> sectors = splitByServiceTime(customers, partitionCount);
+        List<List<OptimizationVehicle>> fleets = shareVehicles(vehicles, sectors);
+
+        List<VehicleRoutingSolution> partitions = new ArrayList<>();
+        for (int i = 0; i < sectors.size(); i++) {
+            partitions.add(createPartition(solution, fleets.get(i), sectors.get(i)));
+        }
+
+        System.out.println("Partitioned " + customers.size() + " customers and " + vehicles.size()
+                + " vehicles into " + partitions.size() + " geographic sectors");
+        return partitions;
+    }
+
+    /**
+     * Customers ordered by bearing from the depot, starting just after the widest empty wedge
+     * so that no sector straddles a dense area
+     */
+    private List<Customer> sweepOrder(Location depot, List<Customer> customers) {
+        if (customers.size() < 2) {
+            return new ArrayList<>(customers);
+        }
+
+        GeoKernel points = GeoKernel.of(customers.stream().map(Customer::getLocation).toArray(Location[]::new));
+        double[] bearings = points.bearingsFrom(depot.getLatitude(), depot.getLongitude());
+        Integer[] order = new Integer[customers.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> bearings[i]));
+
+        int start = 0;
+        double widestGap = -1;
+        for (int i = 0; i < order.length; i++) {
+            double from = bearings[order[i]];
+            double to = bearings[order[(i + 1) % order.length]];
+            double gap = (to - from + 2 * Math.PI) % (2 * Math.PI);
+            if (gap > widestGap) {
+                widestGap = gap;
+                start = (i + 1) % order.length;
+            }
+        }
+
+        List<Customer> rotated = new ArrayList<>(order.length);
+        for (int i = 0; i < order.length; i++) {
+            rotated.add(customers.get(order[(start + i) % order.length]));
+        }
+        return rotated;
+    }
+
+    private List<List<Customer>> splitByServiceTime(List<Customer> customers, int partitionCount) {
+        long totalMinutes = customers.stream().mapToLong(Customer::getServiceTimeMinutes).sum();
+        List<List<Customer>> sectors = new ArrayList<>();
+        List<Customer> sector = new ArrayList<>();
+        long cumulativeMinutes = 0;
+
+        for (Customer customer : customers) {
+            sector.add(customer);
+            cumulativeMinutes += customer.getServiceTimeMinutes();
+            boolean sectorFull = cumulativeMinutes * partitionCount >= totalMinutes * (sectors.size() + 1);
+            if (sectorFull && sectors.size() < partitionCount - 1) {
+                sectors.add(sector);
+                sector = new ArrayList<>();
+            }
+        }
+        if (!sector.isEmpty() || sectors.isEmpty()) {
+            sectors.add(sector);
+        }
+        return sectors;
+    }
+
+    /**
+     * Vehicles per sector in proportion to its service time (at least one each). Vehicles are dealt
+     * out grouped by capabilities, so each sector gets a mix of vehicle types.
+     */
+    private List<List<OptimizationVehicle>> shareVehicles(List<OptimizationVehicle> vehicles,
+                                                          List<List<Customer>> sectors) {
+        long totalMinutes = Math.max(1, sectors.stream().flatMap(List::stream)
+                .mapToLong(Customer::getServiceTimeMinutes).sum());
+        int[] quotas = new int[sectors.size()];
+        int assigned = 0;
+        for (int i = 0; i < sectors.size(); i++) {
+            long sectorMinutes = sectors.get(i).stream().mapToLong(Customer::getServiceTimeMinutes).sum();
+            quotas[i] = Math.max(1, (int) (vehicles.size() * sectorMinutes / totalMinutes));
+            assigned += quotas[i];
+        }
+        // Hand out vehicles lost to rounding, or take back extra minimums, one sector at a time
+        for (int i = 0; assigned != vehicles.size(); i = (i + 1) % quotas.length) {
+            if (assigned < vehicles.size()) {
+                quotas[i]++;
+                assigned++;
+            } else if (quotas[i] > 1) {
+                quotas[i]--;
+                assigned--;
+            }
+        }
+
+        List<OptimizationVehicle> byCapabilities = new ArrayList<>(vehicles);
+        byCapabilities.sort(Comparator.comparing(vehicle -> String.valueOf(vehicle.getCapabilities())));
+
+        List<List<OptimizationVehicle>> fleets = new ArrayList<>();
+        sectors.forEach(sector -> fleets.add(new ArrayList<>()));
+        int sector = 0;
+        for (OptimizationVehicle vehicle : byCapabilities) {
+            while (fleets.get(sector).size() >= quotas[sector]) {
+                sector = (sector + 1) % fleets.size();
+            }
+            fleets.get(sector).add(vehicle);
+            sector = (sector + 1) % fleets.size();
+        }
+        return fleets;
+    }
+
+    private VehicleRoutingSolution createPartition(VehicleRoutingSolution solution,
+                                                   List<OptimizationVehicle> vehicles, List<Customer> customers) {
+        // Partitions get their own copies; the partition results are merged back by planning id
+        List<OptimizationVehicle> vehicleCopies = new ArrayList<>();
+        vehicles.forEach(vehicle -> vehicleCopies.add(new OptimizationVehicle(vehicle)));
+        List<Customer> customerCopies = new ArrayList<>();
+        customers.forEach(customer -> customerCopies.add(new Customer(customer)));
+
+        VehicleRoutingSolution partition = new VehicleRoutingSolution(vehicleCopies, customerCopies);
+        partition.setDepot(solution.getDepot());
+        partition.setWorkingHours(solution.getWorkStart(), solution.getWorkEnd());
+        partition.setTravelMatrix(solution.getTravelMatrix());
+        return partition;
+    }
+}
@@ -1,15 +1,43 @@
 package com.anansu.powerwashrouting.service;
 
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
+import com.anansu.powerwashrouting.service.MapsResponseParser.DirectionsResponse;
+import com.anansu.powerwashrouting.service.MapsResponseParser.DistanceMatrixResponse;
+import com.anansu.powerwashrouting.service.MapsResponseParser.GeocodeResponse;
 import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
 import com.anansu.powerwashrouting.service.RouteOptimizationService.TravelInfo;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.ZoneOffset;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 @Service
 public class GoogleMapsService {
@@ -17,32 +45,100 @@ public class GoogleMapsService {
     @Value("${google.maps.api.key}")
     private String apiKey;
 
-    private final RestTemplate restTemplate;
+    @Autowired
+    private TravelTimeCache travelTimeCache;
+
+    @Autowired
+    private MapsApiClient mapsApiClient;
+
+    @Autowired
+    private GeocodeCache geocodeCache;
+
+    // Optional local source of travel times; when available it replaces the Directions and Distance Matrix APIs
+    @Autowired(required = false)
+    private TravelTimeProvider travelTimeProvider;
+
+    // Large travel matrices are kept in memory-mapped files here; blank keeps them all on the heap
+    @Value("${routing.travel-matrix.storage-dir:}")
+    private String matrixStorageDir;
+
+    @Value("${routing.travel-matrix.mapped-min-locations:500}")
+    private int mappedMinLocations;
+
+    @Value("${routing.travel-matrix.ttl-days:30}")
+    private int matrixTimeToLiveDays;
+
+    // Departure times are wall-clock times at the depot
+    @Value("${routing.depot.time-zone:America/New_York}")
+    private String depotTimeZone;
+
     private static final String DIRECTIONS_API_URL = "https://maps.googleapis.com/maps/api/directions/json";
     private static final String DISTANCE_MATRIX_API_URL = "https://maps.googleapis.com/maps/api/distancematrix/json";
 
-    public GoogleMapsService() {
-        this.restTemplate = new RestTemplate();
+    // Distance Matrix API limits per request
+    private static final int MAX_LOCATIONS_PER_SIDE = 25;
+    private static final int MAX_ELEMENTS_PER_REQUEST = 100;
+
+    // Larger matrices skip the travel cache; memory-mapped storage keeps them instead
+    private static final int MAX_CACHED_MATRIX_ELEMENTS = 250_000;
+
+    private final ExecutorService requestExecutor;
+
+    // One thread per request slot of the API client, which alone limits the requests in flight
+    public GoogleMapsService(@Value("${google.maps.client.max-concurrent-requests:8}") int concurrentRequests) {
+        this.requestExecutor = Executors.newFixedThreadPool(Math.max(1, concurrentRequests), runnable -> {
+            Thread thread = new Thread(runnable, "maps-request");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        requestExecutor.shutdownNow();
     }
 
     /**
-     * Get travel information between two locations considering traffic
+     * Get travel information between two locations considering traffic. Answers from the
+     * Directions API are cached; straight-line fallbacks are not, so they are retried next time.
      */
     public TravelInfo getTravelInfo(Location origin, Location destination, LocalDateTime departureTime) {
+        if (useTravelTimeProvider()) {
+            TravelInfo travelInfo = travelTimeProvider.getTravelInfo(origin, destination, departureTime);
+            return travelInfo != null ? travelInfo : calculateFallbackTravelInfo(origin, destination);
+        }
+
+        TravelInfo cached = travelTimeCache.get(origin, destination, departureTime);
+        if (cached != null) {
+            return cached;
+        }
+        if (!mapsApiClient.isAvailable()) {
+            return calculateFallbackTravelInfo(origin, destination);
+        }
+
         try {
             String url = UriComponentsBuilder.fromHttpUrl(DIRECTIONS_API_URL)
                     .queryParam("origin", origin.getLatitude() + "," + origin.getLongitude())
                     .queryParam("destination", destination.getLatitude() + "," + destination.getLongitude())
-                    .queryParam("departure_time", departureTime.toEpochSecond(ZoneOffset.UTC))
+                    .queryParam("departure_time", departureTimeParam(departureTime))
                     .queryParam("traffic_model", "pessimistic")
                     .queryParam("key", apiKey)
                     .toUriString();
 
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
+            DirectionsResponse response = mapsApiClient.get(url, MapsResponseParser::readDirections);
 
-            if (response != null && "OK".equals(response.get("status"))) {
-                return parseDirectionsResponse(response);
+            TravelInfo travelInfo = "OK".equals(response.status()) && response.seconds() != MapsResponseParser.NO_VALUE
+                    ? new TravelInfo(response.meters() / 1000.0, response.seconds() / 60)
+                    : null;
+            if (travelInfo != null) {
+                travelTimeCache.put(origin, destination, departureTime, travelInfo);
+                return travelInfo;
             } else {
+                if (!"OK".equals(response.status()) && !"ZERO_RESULTS".equals(response.status())) {
+                    System.err.println("Directions API status " + response.status() + " for "
+                            + origin.getLatitude() + "," + origin.getLongitude() + " -> "
+                            + destination.getLatitude() + "," + destination.getLongitude());
+                }
                 // Fallback to straight-line distance calculation
                 return calculateFallbackTravelInfo(origin, destination);
             }
@@ -54,132 +150,479 @@ public class GoogleMapsService {
     }
 
     /**
-     * Get distance matrix for multiple origins and destinations
+     * Get distance matrix for multiple origins and destinations. Large matrices are split into
+     * tiles within the API's per-request limits, and the tiles are fetched concurrently. Elements
+     * the API cannot answer get a straight-line estimate; the rest of the matrix is kept.
+     *
+     * When a storage directory is configured, large matrices are kept in memory-mapped files keyed
+     * by their locations and departure hour, so re-solves and restarts only fetch what is missing.
      */
     public TravelMatrix getTravelMatrix(Location[] origins, Location[] destinations, LocalDateTime departureTime) {
-        try {
-            String originsParam = buildLocationParam(origins);
-            String destinationsParam = buildLocationParam(destinations);
+        TravelMatrix stored = openStoredMatrix(origins, destinations, departureTime);
+        TravelMatrix matrix = stored != null ? stored : new TravelMatrix(origins.length, destinations.length);
 
-            String url = UriComponentsBuilder.fromHttpUrl(DISTANCE_MATRIX_API_URL)
-                    .queryParam("origins", originsParam)
-                    .queryParam("destinations", destinationsParam)
-                    .queryParam("departure_time", departureTime.toEpochSecond(ZoneOffset.UTC))
-                    .queryParam("traffic_model", "pessimistic")
-                    .queryParam("units", "metric")
-                    .queryParam("key", apiKey)
-                    .toUriString();
+        if (useTravelTimeProvider()) {
+            fetchFromTravelTimeProvider(matrix, origins, destinations, departureTime);
+        } else {
+            fetchTiles(matrix, origins, destinations, departureTime);
+        }
 
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
+        if (stored != null) {
+            stored.force();
+            if (stored.isComplete()) {
+                return stored;
+            }
+            // Estimates are not stored, so they are fetched again next time
+            matrix = stored.copy();
+        }
 
-            if (response != null && "OK".equals(response.get("status"))) {
-                return parseDistanceMatrixResponse(response, origins.length, destinations.length);
-            } else {
-                return createFallbackMatrix(origins, destinations);
+        estimateUnanswered(matrix, origins, destinations);
+        return matrix;
+    }
+
+    /**
+     * Travel matrix from the travel cache (or the local travel time provider) alone, never calling
+     * the maps API; elements not in the cache get a straight-line estimate. For callers that must
+     * not wait on the network, such as problem changes on the solver thread, once the cache is warm.
+     */
+    public TravelMatrix getCachedTravelMatrix(Location[] origins, Location[] destinations, LocalDateTime departureTime) {
+        TravelMatrix matrix = new TravelMatrix(origins.length, destinations.length);
+        if (useTravelTimeProvider()) {
+            fetchFromTravelTimeProvider(matrix, origins, destinations, departureTime);
+        } else {
+            fillFromCache(matrix, origins, destinations, 0, 0, departureTime);
+        }
+        estimateUnanswered(matrix, origins, destinations);
+        return matrix;
+    }
+
+    private void estimateUnanswered(TravelMatrix matrix, Location[] origins, Location[] destinations) {
+        GeoKernel originPoints = GeoKernel.of(origins);
+        GeoKernel destinationPoints = GeoKernel.of(destinations);
+        for (int i = 0; i < origins.length; i++) {
+            for (int j = 0; j < destinations.length; j++) {
+                if (!matrix.isAnswered(i, j)) {
+                    matrix.setTravelInfo(i, j,
+                            estimateTravelInfo(originPoints.distanceMeters(i, destinationPoints, j) / 1000));
+                }
+            }
+        }
+    }
+
+    private void fetchFromTravelTimeProvider(TravelMatrix matrix, Location[] origins, Location[] destinations,
+                                             LocalDateTime departureTime) {
+        if (matrix.isComplete()) return;
+
+        TravelMatrix answers = travelTimeProvider.getTravelMatrix(origins, destinations, departureTime);
+        for (int i = 0; i < origins.length; i++) {
+            for (int j = 0; j < destinations.length; j++) {
+                if (!matrix.isAnswered(i, j) && answers.isAnswered(i, j)) {
+                    matrix.setTravel(i, j, answers.getTravelSeconds(i, j), answers.getDistanceMeters(i, j));
+                }
             }
-        } catch (Exception e) {
-            System.err.println("Error calling Google Distance Matrix API: " + e.getMessage());
-            return createFallbackMatrix(origins, destinations);
         }
     }
 
     /**
-     * Geocode an address to get coordinates
+     * Fill the unanswered elements of a matrix from the Distance Matrix API, skipping tiles that
+     * are already complete. Elements the API cannot answer stay unanswered.
+     *
+     * Matrices of up to {@link #MAX_CACHED_MATRIX_ELEMENTS} elements also go through the travel
+     * cache, so rows and columns prefetched for new jobs are not requested again.
      */
-    public Location geocodeAddress(String address) {
-        try {
-            String url = UriComponentsBuilder.fromHttpUrl("https://maps.googleapis.com/maps/api/geocode/json")
-                    .queryParam("address", address)
-                    .queryParam("key", apiKey)
-                    .toUriString();
+    private void fetchTiles(TravelMatrix matrix, Location[] origins, Location[] destinations, LocalDateTime departureTime) {
+        if (origins.length == 0 || destinations.length == 0) {
+            return;
+        }
 
-            Map<String, Object> response = restTemplate.getForObject(url, Map.class);
+        boolean useCache = (long) origins.length * destinations.length <= MAX_CACHED_MATRIX_ELEMENTS;
+        int destinationsPerTile = Math.min(destinations.length, MAX_LOCATIONS_PER_SIDE);
+        int originsPerTile = Math.min(MAX_LOCATIONS_PER_SIDE, MAX_ELEMENTS_PER_REQUEST / destinationsPerTile);
+
+        List<CompletableFuture<Void>> tiles = new ArrayList<>();
+        for (int originStart = 0; originStart < origins.length; originStart += originsPerTile) {
+            for (int destinationStart = 0; destinationStart < destinations.length; destinationStart += destinationsPerTile) {
+                int fromOrigin = originStart;
+                int fromDestination = destinationStart;
+                int toOrigin = Math.min(origins.length, fromOrigin + originsPerTile);
+                int toDestination = Math.min(destinations.length, fromDestination + destinationsPerTile);
+                if (matrix.isComplete(fromOrigin, toOrigin, fromDestination, toDestination)) {
+                    continue;
+                }
+
+                Location[] tileOrigins = Arrays.copyOfRange(origins, fromOrigin, toOrigin);
+                Location[] tileDestinations = Arrays.copyOfRange(destinations, fromDestination, toDestination);
+
+                tiles.add(CompletableFuture.runAsync(() -> {
+                    if (useCache && fillFromCache(matrix, tileOrigins, tileDestinations, fromOrigin, fromDestination,
+                            departureTime)) {
+                        return;
+                    }
 
-            if (response != null && "OK".equals(response.get("status"))) {
-                return parseGeocodeResponse(response);
+                    TravelMatrix tile = fetchTile(tileOrigins, tileDestinations, departureTime);
+                    List<TravelLeg> answeredLegs = new ArrayList<>();
+                    List<TravelInfo> answers = new ArrayList<>();
+                    for (int i = 0; i < tileOrigins.length; i++) {
+                        for (int j = 0; j < tileDestinations.length; j++) {
+                            if (tile.isAnswered(i, j) && !matrix.isAnswered(fromOrigin + i, fromDestination + j)) {
+                                matrix.setTravel(fromOrigin + i, fromDestination + j,
+                                        tile.getTravelSeconds(i, j), tile.getDistanceMeters(i, j));
+                                answeredLegs.add(new TravelLeg(tileOrigins[i], tileDestinations[j], departureTime));
+                                answers.add(tile.getTravelInfo(i, j));
+                            }
+                        }
+                    }
+                    if (useCache) {
+                        travelTimeCache.putAll(answeredLegs, answers);
+                    }
+                }, requestExecutor));
             }
-        } catch (Exception e) {
-            System.err.println("Error geocoding address: " + e.getMessage());
         }
 
-        return null;
+        CompletableFuture.allOf(tiles.toArray(new CompletableFuture[0])).join();
+    }
+
+    /**
+     * Fill the unanswered elements of one tile from the travel cache; returns whether the tile is now complete
+     */
+    private boolean fillFromCache(TravelMatrix matrix, Location[] tileOrigins, Location[] tileDestinations,
+                                  int fromOrigin, int fromDestination, LocalDateTime departureTime) {
+        List<TravelLeg> legs = new ArrayList<>();
+        List<int[]> cells = new ArrayList<>();
+        for (int i = 0; i < tileOrigins.length; i++) {
+            for (int j = 0; j < tileDestinations.length; j++) {
+                if (matrix.isAnswered(fromOrigin + i, fromDestination + j)) continue;
+                if (tileOrigins[i].getLatitude() == tileDestinations[j].getLatitude()
+                        && tileOrigins[i].getLongitude() == tileDestinations[j].getLongitude()) {
+                    // Staying put: nothing to fetch or cache
+                    matrix.setTravel(fromOrigin + i, fromDestination + j, 0, 0);
+                    continue;
+                }
+                legs.add(new TravelLeg(tileOrigins[i], tileDestinations[j], departureTime));
+                cells.add(new int[]{fromOrigin + i, fromDestination + j});
+            }
+        }
+
+        TravelInfo[] cached = travelTimeCache.getAll(legs);
+        boolean complete = true;
+        for (int k = 0; k < cached.length; k++) {
+            if (cached[k] != null) {
+                matrix.setTravelInfo(cells.get(k)[0], cells.get(k)[1], cached[k]);
+            } else {
+                complete = false;
+            }
+        }
+        return complete;
     }
 
-    private TravelInfo parseDirectionsResponse(Map<String, Object> response) {
+    /**
+     * Memory-mapped matrix for these locations, or null when matrices are kept on the heap
+     */
+    private TravelMatrix openStoredMatrix(Location[] origins, Location[] destinations, LocalDateTime departureTime) {
+        if (matrixStorageDir.isBlank()
+                || (long) origins.length * destinations.length < (long) mappedMinLocations * mappedMinLocations) {
+            return null;
+        }
+
         try {
-            Map<String, Object> route = (Map<String, Object>) ((Object[]) response.get("routes"))[0];
-            Map<String, Object> leg = (Map<String, Object>) ((Object[]) route.get("legs"))[0];
+            Path file = Path.of(matrixStorageDir)
+                    .resolve("matrix-" + matrixKey(origins, destinations, departureTime) + ".bin");
+            Files.createDirectories(file.getParent());
+            if (Files.exists(file) && Files.getLastModifiedTime(file).toInstant()
+                    .isBefore(Instant.now().minus(Duration.ofDays(matrixTimeToLiveDays)))) {
+                Files.delete(file);
+            }
+            return TravelMatrix.mapped(file, origins.length, destinations.length);
+        } catch (Exception e) {
+            System.err.println("Could not open stored travel matrix, keeping it in memory: " + e.getMessage());
+            return null;
+        }
+    }
 
-            Map<String, Object> distance = (Map<String, Object>) leg.get("distance");
-            Map<String, Object> duration = (Map<String, Object>) leg.get("duration_in_traffic");
+    private String matrixKey(Location[] origins, Location[] destinations, LocalDateTime departureTime) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        ByteBuffer buffer = ByteBuffer.allocate(16 * (origins.length + destinations.length) + 4);
+        for (Location location : origins) {
+            buffer.putDouble(location.getLatitude()).putDouble(location.getLongitude());
+        }
+        for (Location location : destinations) {
+            buffer.putDouble(location.getLatitude()).putDouble(location.getLongitude());
+        }
+        buffer.putInt(departureTime.getHour());
+        return HexFormat.of().formatHex(digest.digest(buffer.array()), 0, 12);
+    }
 
-            if (duration == null) {
-                duration = (Map<String, Object>) leg.get("duration");
+    /**
+     * Get travel information for many independent legs at once, e.g. all consecutive stops of the
+     * routes of a day, or each stop and its nearest neighbours. Cached legs are answered from the
+     * cache. The others are grouped into small Distance Matrix requests that are fetched concurrently:
+     * legs sharing an origin go into one row request and legs sharing a destination into one column
+     * request, so every billed element is used. A leg that shares neither with another leg is
+     * requested on its own: packing unrelated legs into one request would bill every origin against
+     * every destination for the few elements on its diagonal. Each leg that the API cannot answer
+     * falls back to a straight-line estimate on its own.
+     */
+    public List<TravelInfo> getTravelInfos(List<TravelLeg> legs) {
+        if (useTravelTimeProvider()) {
+            return legs.stream()
+                    .map(leg -> getTravelInfo(leg.getOrigin(), leg.getDestination(), leg.getDepartureTime()))
+                    .toList();
+        }
+
+        TravelInfo[] results = travelTimeCache.getAll(legs);
+
+        List<Integer> uncached = new ArrayList<>();
+        for (int i = 0; i < legs.size(); i++) {
+            if (results[i] == null) {
+                uncached.add(i);
             }
+        }
 
-            double distanceKm = ((Number) distance.get("value")).doubleValue() / 1000.0;
-            int durationMinutes = ((Number) duration.get("value")).intValue() / 60;
+        List<List<Integer>> groups = new ArrayList<>();
+        List<Integer> singles = groupLegs(legs, uncached, TravelLeg::getOrigin, groups);
+        singles = groupLegs(legs, singles, TravelLeg::getDestination, groups);
+        singles.forEach(single -> groups.add(List.of(single)));
 
-            return new TravelInfo(distanceKm, durationMinutes);
-        } catch (Exception e) {
-            System.err.println("Error parsing directions response: " + e.getMessage());
-            return new TravelInfo(0, 0);
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (List<Integer> group : groups) {
+            requests.add(CompletableFuture.runAsync(() -> fetchLegs(legs, group, results), requestExecutor));
         }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).join();
+
+        return Arrays.asList(results);
     }
 
-    private TravelMatrix parseDistanceMatrixResponse(Map<String, Object> response, int numOrigins, int numDestinations) {
-        TravelMatrix matrix = new TravelMatrix(numOrigins, numDestinations);
+    /**
+     * Travel information for many legs from the travel cache (or the local travel time provider)
+     * alone, never calling the maps API; legs not in the cache get a straight-line estimate
+     */
+    public List<TravelInfo> getCachedTravelInfos(List<TravelLeg> legs) {
+        if (useTravelTimeProvider()) {
+            return getTravelInfos(legs);
+        }
 
-        try {
-            Object[] rows = (Object[]) response.get("rows");
+        TravelInfo[] results = travelTimeCache.getAll(legs);
+        for (int i = 0; i < legs.size(); i++) {
+            if (results[i] == null) {
+                results[i] = calculateFallbackTravelInfo(legs.get(i).getOrigin(), legs.get(i).getDestination());
+            }
+        }
+        return Arrays.asList(results);
+    }
 
-            for (int i = 0; i < rows.length; i++) {
-                Map<String, Object> row = (Map<String, Object>) rows[i];
-                Object[] elements = (Object[]) row.get("elements");
+    /**
+     * Add groups of up to one request's worth of legs that share an endpoint and departure time;
+     * returns the legs that share them with no other leg
+     */
+    private List<Integer> groupLegs(List<TravelLeg> legs, List<Integer> indexes,
+                                    Function<TravelLeg, Location> endpoint, List<List<Integer>> groups) {
+        Map<String, List<Integer>> byEndpoint = new LinkedHashMap<>();
+        for (int index : indexes) {
+            TravelLeg leg = legs.get(index);
+            Location location = endpoint.apply(leg);
+            String key = location.getLatitude() + "," + location.getLongitude() + "@" + leg.getDepartureTime();
+            byEndpoint.computeIfAbsent(key, k -> new ArrayList<>()).add(index);
+        }
 
-                for (int j = 0; j < elements.length; j++) {
-                    Map<String, Object> element = (Map<String, Object>) elements[j];
+        List<Integer> singles = new ArrayList<>();
+        for (List<Integer> shared : byEndpoint.values()) {
+            if (shared.size() == 1) {
+                singles.add(shared.get(0));
+                continue;
+            }
+            for (int start = 0; start < shared.size(); start += MAX_LOCATIONS_PER_SIDE) {
+                groups.add(shared.subList(start, Math.min(shared.size(), start + MAX_LOCATIONS_PER_SIDE)));
+            }
+        }
+        return singles;
+    }
 
-                    if ("OK".equals(element.get("status"))) {
-                        Map<String, Object> distance = (Map<String, Object>) element.get("distance");
-                        Map<String, Object> duration = (Map<String, Object>) element.get("duration_in_traffic");
+    private boolean useTravelTimeProvider() {
+        return travelTimeProvider != null && travelTimeProvider.isAvailable();
+    }
 
-                        if (duration == null) {
-                            duration = (Map<String, Object>) element.get("duration");
-                        }
+    private void fetchLegs(List<TravelLeg> legs, List<Integer> group, TravelInfo[] results) {
+        // Distinct origins and destinations of the group; a row or column request has just one of either
+        List<Location> origins = new ArrayList<>();
+        List<Location> destinations = new ArrayList<>();
+        int[] originIndex = new int[group.size()];
+        int[] destinationIndex = new int[group.size()];
+        for (int k = 0; k < group.size(); k++) {
+            TravelLeg leg = legs.get(group.get(k));
+            originIndex[k] = indexOf(origins, leg.getOrigin());
+            destinationIndex[k] = indexOf(destinations, leg.getDestination());
+        }
+
+        // Legs are grouped in route order, so the first departure is close to all of them
+        TravelMatrix tile = fetchTile(origins.toArray(new Location[0]), destinations.toArray(new Location[0]),
+                legs.get(group.get(0)).getDepartureTime());
+
+        List<TravelLeg> answeredLegs = new ArrayList<>();
+        List<TravelInfo> answers = new ArrayList<>();
+        for (int k = 0; k < group.size(); k++) {
+            TravelLeg leg = legs.get(group.get(k));
+            TravelInfo travelInfo = tile.getTravelInfo(originIndex[k], destinationIndex[k]);
+            if (travelInfo != null) {
+                answeredLegs.add(leg);
+                answers.add(travelInfo);
+            } else {
+                travelInfo = calculateFallbackTravelInfo(leg.getOrigin(), leg.getDestination());
+            }
+            results[group.get(k)] = travelInfo;
+        }
+        travelTimeCache.putAll(answeredLegs, answers);
+    }
+
+    private int indexOf(List<Location> locations, Location location) {
+        for (int i = 0; i < locations.size(); i++) {
+            if (locations.get(i).getLatitude() == location.getLatitude()
+                    && locations.get(i).getLongitude() == location.getLongitude()) {
+                return i;
+            }
+        }
+        locations.add(location);
+        return locations.size() - 1;
+    }
+
+    /**
+     * One Distance Matrix request within the API limits. Elements the API did not answer are null.
+     */
+    private TravelMatrix fetchTile(Location[] origins, Location[] destinations, LocalDateTime departureTime) {
+        if (!mapsApiClient.isAvailable()) {
+            return new TravelMatrix(origins.length, destinations.length);
+        }
 
-                        double distanceKm = ((Number) distance.get("value")).doubleValue() / 1000.0;
-                        int durationMinutes = ((Number) duration.get("value")).intValue() / 60;
+        try {
+            String originsParam = buildLocationParam(origins);
+            String destinationsParam = buildLocationParam(destinations);
 
-                        matrix.setTravelInfo(i, j, new TravelInfo(distanceKm, durationMinutes));
-                    } else {
-                        // Use fallback calculation for failed elements
-                        matrix.setTravelInfo(i, j, new TravelInfo(0, 0));
+            String url = UriComponentsBuilder.fromHttpUrl(DISTANCE_MATRIX_API_URL)
+                    .queryParam("origins", originsParam)
+                    .queryParam("destinations", destinationsParam)
+                    .queryParam("departure_time", departureTimeParam(departureTime))
+                    .queryParam("traffic_model", "pessimistic")
+                    .queryParam("units", "metric")
+                    .queryParam("key", apiKey)
+                    .toUriString();
+
+            DistanceMatrixResponse response = mapsApiClient.get(url,
+                    MapsResponseParser.distanceMatrix(origins.length, destinations.length));
+
+            if (!"OK".equals(response.status())) {
+                System.err.println("Distance Matrix API status " + response.status() + " for " + describeTile(origins, destinations));
+            } else {
+                TravelMatrix matrix = new TravelMatrix(origins.length, destinations.length);
+                for (int i = 0; i < origins.length; i++) {
+                    for (int j = 0; j < destinations.length; j++) {
+                        // Failed elements stay unanswered; the caller estimates them one by one
+                        if (response.isAnswered(i, j)) {
+                            matrix.setTravel(i, j, response.getSeconds(i, j), response.getMeters(i, j));
+                        }
                     }
                 }
+                return matrix;
             }
         } catch (Exception e) {
-            System.err.println("Error parsing distance matrix response: " + e.getMessage());
+            System.err.println("Error calling Google Distance Matrix API for " + describeTile(origins, destinations)
+                    + ": " + e.getMessage());
         }
+        return new TravelMatrix(origins.length, destinations.length);
+    }
 
-        return matrix;
+    /**
+     * Departure time for the Directions and Distance Matrix APIs: epoch seconds of the depot's
+     * local time, or "now" for departures already past, which the APIs reject
+     */
+    String departureTimeParam(LocalDateTime departureTime) {
+        Instant departure = departureTime.atZone(ZoneId.of(depotTimeZone)).toInstant();
+        return departure.isAfter(Instant.now()) ? String.valueOf(departure.getEpochSecond()) : "now";
+    }
+
+    private static String describeTile(Location[] origins, Location[] destinations) {
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (Location[] side : new Location[][]{origins, destinations}) {
+            for (Location location : side) {
+                minLat = Math.min(minLat, location.getLatitude());
+                maxLat = Math.max(maxLat, location.getLatitude());
+                minLon = Math.min(minLon, location.getLongitude());
+                maxLon = Math.max(maxLon, location.getLongitude());
+            }
+        }
+        return String.format("%dx%d tile within (%.4f,%.4f)-(%.4f,%.4f)",
+                origins.length, destinations.length, minLat, minLon, maxLat, maxLon);
+    }
+
+    /**
+     * Geocode an address to get coordinates. Results are cached by normalized address.
+     */
+    public Location geocodeAddress(String address) {
+        Location cached = geocodeCache.get(address);
+        if (cached != null) {
+            return cached;
+        }
+        return fetchGeocode(address);
     }
 
-    private Location parseGeocodeResponse(Map<String, Object> response) {
+    /**
+     * Geocode many addresses at once, e.g. a list of estimates or a CRM import. Cached addresses are
+     * answered from the cache; the others are geocoded in parallel, bounded by the request pool.
+     * The result maps each address as given to its location; addresses that could not be
+     * geocoded are left out.
+     */
+    public Map<String, Location> geocodeAddresses(Collection<String> addresses) {
+        List<String> distinctAddresses = addresses.stream()
+                .filter(address -> address != null && !address.isBlank())
+                .distinct()
+                .toList();
+        Map<String, Location> locations = new ConcurrentHashMap<>(geocodeCache.getAll(distinctAddresses));
+
+        // Geocode each distinct normalized address once, then share it between its spellings
+        Map<String, List<String>> missingByKey = new LinkedHashMap<>();
+        for (String address : distinctAddresses) {
+            if (!locations.containsKey(address)) {
+                missingByKey.computeIfAbsent(GeocodeCache.normalize(address), key -> new ArrayList<>()).add(address);
+            }
+        }
+
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (List<String> spellings : missingByKey.values()) {
+            requests.add(CompletableFuture.runAsync(() -> {
+                Location location = fetchGeocode(spellings.get(0));
+                if (location != null) {
+                    spellings.forEach(address -> locations.put(address, location));
+                }
+            }, requestExecutor));
+        }
+        CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).join();
+
+        return locations;
+    }
+
+    private Location fetchGeocode(String address) {
+        if (!mapsApiClient.isAvailable()) {
+            return null;
+        }
+
         try {
-            Object[] results = (Object[]) response.get("results");
-            Map<String, Object> result = (Map<String, Object>) results[0];
-            Map<String, Object> geometry = (Map<String, Object>) result.get("geometry");
-            Map<String, Object> location = (Map<String, Object>) geometry.get("location");
+            String url = UriComponentsBuilder.fromHttpUrl("https://maps.googleapis.com/maps/api/geocode/json")
+                    .queryParam("address", address)
+                    .queryParam("key", apiKey)
+                    .toUriString();
 
-            double lat = ((Number) location.get("lat")).doubleValue();
-            double lng = ((Number) location.get("lng")).doubleValue();
+            GeocodeResponse response = mapsApiClient.get(url, MapsResponseParser::readGeocode);
 
-            return new Location(lat, lng);
+            if ("OK".equals(response.status())) {
+                Location location = response.location();
+                if (location != null) {
+                    geocodeCache.put(address, location);
+                }
+                return location;
+            }
         } catch (Exception e) {
-            System.err.println("Error parsing geocode response: " + e.getMessage());
-            return null;
+            System.err.println("Error geocoding address: " + e.getMessage());
         }
+
+        return null;
     }
 
     private String buildLocationParam(Location[] locations) {
@@ -192,57 +635,182 @@ public class GoogleMapsService {
     }
 
     private TravelInfo calculateFallbackTravelInfo(Location origin, Location destination) {
-        double distance = calculateDistance(origin, destination);
-        int duration = (int) (distance / 0.5); // Assume 30 km/h average speed
-        return new TravelInfo(distance, Math.max(5, duration)); // Minimum 5 minutes
+        return estimateTravelInfo(GeoKernel.distanceMeters(origin, destination) / 1000);
     }
 
-    private TravelMatrix createFallbackMatrix(Location[] origins, Location[] destinations) {
-        TravelMatrix matrix = new TravelMatrix(origins.length, destinations.length);
-
-        for (int i = 0; i < origins.length; i++) {
-            for (int j = 0; j < destinations.length; j++) {
-                TravelInfo info = calculateFallbackTravelInfo(origins[i], destinations[j]);
-                matrix.setTravelInfo(i, j, info);
-            }
-        }
-
-        return matrix;
+    /**
+     * Straight-line travel estimate for legs no travel time source could answer
+     */
+    static TravelInfo estimateTravelInfo(double distanceKm) {
+        int duration = (int) (distanceKm / 0.5); // Assume 30 km/h average speed
+        return new TravelInfo(distanceKm, Math.max(5, duration)); // Minimum 5 minutes
     }
 
-    private double calculateDistance(Location loc1, Location loc2) {
-        final int R = 6371; // Earth's radius in km
-
-        double latDistance = Math.toRadians(loc2.getLatitude() - loc1.getLatitude());
-        double lonDistance = Math.toRadians(loc2.getLongitude() - loc1.getLongitude());
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(loc1.getLatitude())) * Math.cos(Math.toRadians(loc2.getLatitude()))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    /**
+     * A single trip from one location to another, leaving at a given time
+     */
+    public static class TravelLeg {
+        private final Location origin;
+        private final Location destination;
+        private final LocalDateTime departureTime;
+
+        public TravelLeg(Location origin, Location destination, LocalDateTime departureTime) {
+            this.origin = origin;
+            this.destination = destination;
+            this.departureTime = departureTime;
+        }
 
-        return R * c;
+        // Getters
+        public Location getOrigin() { return origin; }
+        public Location getDestination() { return destination; }
+        public LocalDateTime getDepartureTime() { return departureTime; }
     }
 
     /**
-     * Matrix to store travel information between multiple points
+     * Matrix to store travel information between multiple points. Travel seconds and meters are
+     * packed row-major into two int buffers, either on the heap or memory-mapped from a file.
+     * Elements without an answer hold -1 seconds and read back as a null {@link TravelInfo}.
      */
     public static class TravelMatrix {
-        private final TravelInfo[][] matrix;
+        private static final int MAGIC = 0x544D3031; // "TM01"
+        private static final int HEADER_BYTES = 16;
+        private static final int UNANSWERED = -1;
+
         private final int numOrigins;
         private final int numDestinations;
+        private final IntBuffer seconds;
+        private final IntBuffer meters;
+        private final MappedByteBuffer mappedBuffer;
 
         public TravelMatrix(int numOrigins, int numDestinations) {
+            this(numOrigins, numDestinations, IntBuffer.allocate(numOrigins * numDestinations),
+                    IntBuffer.allocate(numOrigins * numDestinations), null);
+            clear();
+        }
+
+        private TravelMatrix(int numOrigins, int numDestinations, IntBuffer seconds, IntBuffer meters,
+                             MappedByteBuffer mappedBuffer) {
             this.numOrigins = numOrigins;
             this.numDestinations = numDestinations;
-            this.matrix = new TravelInfo[numOrigins][numDestinations];
+            this.seconds = seconds;
+            this.meters = meters;
+            this.mappedBuffer = mappedBuffer;
+        }
+
+        /**
+         * Matrix stored in a file and mapped into memory, so it is kept off the heap and can be
+         * reused by later solves and after restarts. An existing file of the same dimensions is
+         * used as is; otherwise the file is created with every element unanswered.
+         */
+        public static TravelMatrix mapped(Path file, int numOrigins, int numDestinations) throws IOException {
+            long cells = (long) numOrigins * numDestinations;
+            long size = HEADER_BYTES + cells * 2 * Integer.BYTES;
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Travel matrix too large to map: " + numOrigins + "x" + numDestinations);
+            }
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                boolean reuse = channel.size() == size;
+                if (!reuse) {
+                    channel.truncate(0);
+                }
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+                reuse = reuse && buffer.getInt(0) == MAGIC
+                        && buffer.getInt(4) == numOrigins && buffer.getInt(8) == numDestinations;
+
+                int cellBytes = (int) cells * Integer.BYTES;
+                TravelMatrix matrix = new TravelMatrix(numOrigins, numDestinations,
+                        buffer.slice(HEADER_BYTES, cellBytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+                        buffer.slice(HEADER_BYTES + cellBytes, cellBytes).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer(),
+                        buffer);
+                if (!reuse) {
+                    matrix.clear();
+                    buffer.putInt(0, MAGIC).putInt(4, numOrigins).putInt(8, numDestinations);
+                }
+                return matrix;
+            }
+        }
+
+        private void clear() {
+            for (int cell = 0; cell < seconds.capacity(); cell++) {
+                seconds.put(cell, UNANSWERED);
+                meters.put(cell, 0);
+            }
         }
 
         public void setTravelInfo(int originIndex, int destinationIndex, TravelInfo travelInfo) {
-            matrix[originIndex][destinationIndex] = travelInfo;
+            if (travelInfo == null) {
+                setTravel(originIndex, destinationIndex, UNANSWERED, 0);
+            } else {
+                setTravel(originIndex, destinationIndex, travelInfo.getDurationMinutes() * 60,
+                        (int) Math.round(travelInfo.getDistanceKm() * 1000));
+            }
+        }
+
+        public void setTravel(int originIndex, int destinationIndex, int travelSeconds, int distanceMeters) {
+            int cell = originIndex * numDestinations + destinationIndex;
+            seconds.put(cell, travelSeconds);
+            meters.put(cell, distanceMeters);
         }
 
+        /**
+         * Travel information of one element, or null when it has no answer
+         */
         public TravelInfo getTravelInfo(int originIndex, int destinationIndex) {
-            return matrix[originIndex][destinationIndex];
+            int cell = originIndex * numDestinations + destinationIndex;
+            int travelSeconds = seconds.get(cell);
+            return travelSeconds == UNANSWERED ? null : new TravelInfo(meters.get(cell) / 1000.0, travelSeconds / 60);
+        }
+
+        public boolean isAnswered(int originIndex, int destinationIndex) {
+            return seconds.get(originIndex * numDestinations + destinationIndex) != UNANSWERED;
+        }
+
+        public int getTravelSeconds(int originIndex, int destinationIndex) {
+            return seconds.get(originIndex * numDestinations + destinationIndex);
+        }
+
+        public int getDistanceMeters(int originIndex, int destinationIndex) {
+            return meters.get(originIndex * numDestinations + destinationIndex);
+        }
+
+        public boolean isComplete() {
+            return isComplete(0, numOrigins, 0, numDestinations);
+        }
+
+        /**
+         * Whether every element in the given block (end indexes exclusive) has an answer
+         */
+        public boolean isComplete(int fromOrigin, int toOrigin, int fromDestination, int toDestination) {
+            for (int i = fromOrigin; i < toOrigin; i++) {
+                for (int j = fromDestination; j < toDestination; j++) {
+                    if (!isAnswered(i, j)) return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Heap copy of this matrix
+         */
+        public TravelMatrix copy() {
+            TravelMatrix copy = new TravelMatrix(numOrigins, numDestinations);
+            copy.seconds.put(0, seconds, 0, seconds.capacity());
+            copy.meters.put(0, meters, 0, meters.capacity());
+            return copy;
+        }
+
+        public boolean isMapped() { return mappedBuffer != null; }
+
+        /**
+         * Write changes of a mapped matrix through to its file
+         */
+        public void force() {
+            if (mappedBuffer != null) {
+                mappedBuffer.force();
+            }
         }
 
         public int getNumOrigins() { return numOrigins; }
@@ -0,0 +1,136 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.db.JobRepository;
+import com.anansu.powerwashrouting.model.Job;
+import com.anansu.powerwashrouting.model.JobStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Finds open jobs near a location. The database only sees an indexed lookup of the grid cells
+ * covering the search area plus a bounding box on the coordinates; exact distances are computed
+ * here for the few rows that come back, instead of trigonometry on every row in SQL.
+ */
+@Service
+@Transactional(readOnly = true)
+public class JobProximityService {
+
+    private static final double KM_PER_DEGREE_LATITUDE = GeoKernel.EARTH_RADIUS_METERS / 1000 * Math.PI / 180;
+
+    // Areas covering more cells than this use the bounding box alone (an IN list that long stops paying off)
+    private static final int MAX_CELLS_PER_QUERY = 400;
+
+    // Nearest-job searches start at this radius and double it until enough jobs are found
+    private static final double NEAREST_START_RADIUS_KM = 2;
+    private static final double NEAREST_MAX_RADIUS_KM = 200;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    /**
+     * Scheduled jobs within the radius, nearest first
+     */
+    public List<Job> findJobsWithinRadius(double latitude, double longitude, double radiusKm) {
+        return findWithinRadius(latitude, longitude, radiusKm).stream()
+                .map(JobDistance::getJob)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The {@code count} scheduled jobs nearest to a location, nearest first. Jobs further than
+     * {@value #NEAREST_MAX_RADIUS_KM} km are not considered.
+     */
+    public List<Job> findNearestJobs(double latitude, double longitude, int count) {
+        double radiusKm = NEAREST_START_RADIUS_KM;
+        List<JobDistance> found = findWithinRadius(latitude, longitude, radiusKm);
+        // Every job closer than the radius is in the result, so once it holds enough they are the nearest
+        while (found.size() < count && radiusKm < NEAREST_MAX_RADIUS_KM) {
+            radiusKm = Math.min(radiusKm * 2, NEAREST_MAX_RADIUS_KM);
+            found = findWithinRadius(latitude, longitude, radiusKm);
+        }
+        return found.stream()
+                .limit(count)
+                .map(JobDistance::getJob)
+                .collect(Collectors.toList());
+    }
+
+    private List<JobDistance> findWithinRadius(double latitude, double longitude, double radiusKm) {
+        double latitudeDelta = radiusKm / KM_PER_DEGREE_LATITUDE;
+        double minLatitude = Math.max(-90, latitude - latitudeDelta);
+        double maxLatitude = Math.min(90, latitude + latitudeDelta);
+
+        // Longitude degrees shrink towards the poles; boxes reaching a pole or the antimeridian span all longitudes
+        double cosLatitude = Math.cos(Math.toRadians(Math.max(Math.abs(minLatitude), Math.abs(maxLatitude))));
+        double longitudeDelta = cosLatitude > 1e-6 ? latitudeDelta / cosLatitude : 360;
+        double minLongitude = longitude - longitudeDelta;
+        double maxLongitude = longitude + longitudeDelta;
+        if (minLongitude < -180 || maxLongitude > 180) {
+            minLongitude = -180;
+            maxLongitude = 180;
+        }
+
+        List<Job> candidates;
+        List<Long> cells = coveringCells(minLatitude, maxLatitude, minLongitude, maxLongitude);
+        if (cells != null) {
+            candidates = jobRepository.findByStatusInGridCells(JobStatus.SCHEDULED, cells,
+                    minLatitude, maxLatitude, minLongitude, maxLongitude);
+        } else {
+            candidates = jobRepository.findByStatusInBoundingBox(JobStatus.SCHEDULED,
+                    minLatitude, maxLatitude, minLongitude, maxLongitude);
+        }
+
+        double radiusMeters = radiusKm * 1000;
+        List<JobDistance> within = new ArrayList<>();
+        for (Job job : candidates) {
+            double meters = GeoKernel.distanceMeters(latitude, longitude, job.getLatitude(), job.getLongitude());
+            if (meters <= radiusMeters) {
+                within.add(new JobDistance(job, meters));
+            }
+        }
+        within.sort(Comparator.comparingDouble(JobDistance::getMeters));
+        return within;
+    }
+
+    /**
+     * Grid cells overlapping the box, or null when there are more than {@link #MAX_CELLS_PER_QUERY}
+     */
+    private static List<Long> coveringCells(double minLatitude, double maxLatitude,
+                                            double minLongitude, double maxLongitude) {
+        int minRow = Job.gridRowOf(minLatitude);
+        int maxRow = Job.gridRowOf(maxLatitude);
+        int minColumn = Job.gridColumnOf(minLongitude);
+        // The column of exactly 180 wraps to 0; the last real column covers it
+        int maxColumn = maxLongitude >= 180 ? Job.GRID_COLUMNS - 1 : Job.gridColumnOf(maxLongitude);
+
+        long cellCount = (long) (maxRow - minRow + 1) * (maxColumn - minColumn + 1);
+        if (cellCount > MAX_CELLS_PER_QUERY) {
+            return null;
+        }
+        List<Long> cells = new ArrayList<>((int) cellCount);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                cells.add((long) row * Job.GRID_COLUMNS + column);
+            }
+        }
+        return cells;
+    }
+
+    private static class JobDistance {
+        private final Job job;
+        private final double meters;
+
+        JobDistance(Job job, double meters) {
+            this.job = job;
+            this.meters = meters;
+        }
+
+        Job getJob() { return job; }
+        double getMeters() { return meters; }
+    }
+}
@@ -0,0 +1,342 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.MapsResponseParser.MapsResponse;
+import com.anansu.powerwashrouting.service.MapsResponseParser.Reader;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HTTP client for the Google Maps web services. Calls share one pooled connection client with
+ * timeouts, and are limited in concurrency and rate (token bucket sized to the API quota).
+ * Transient failures are retried a bounded number of times with jittered backoff.
+ *
+ * After repeated failures a circuit breaker opens and calls fail immediately, so callers switch to
+ * their straight-line estimates instead of waiting on an unhealthy upstream. After a cool-down one
+ * trial call is let through; it closes the circuit again when it succeeds.
+ */
+@Service
+public class MapsApiClient {
+
+    // Maps API statuses worth trying again; the others are answers, not failures
+    private static final Set<String> RETRYABLE_STATUSES = Set.of("OVER_QUERY_LIMIT", "UNKNOWN_ERROR");
+
+    public enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    private final HttpClient httpClient;
+    private final JsonFactory jsonFactory;
+    private final Duration requestTimeout;
+    private final Semaphore concurrencyLimit;
+    private final long acquireTimeoutMillis;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    // Token bucket
+    private final double permitsPerSecond;
+    private final double burstPermits;
+    private double availablePermits;
+    private long lastRefillNanos;
+
+    // Circuit breaker
+    private CircuitState circuitState = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtMillis;
+
+    // Metrics
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+    public MapsApiClient(ObjectMapper objectMapper,
+                         @Value("${google.maps.client.connect-timeout-ms:2000}") long connectTimeoutMillis,
+                         @Value("${google.maps.client.request-timeout-ms:5000}") long requestTimeoutMillis,
+                         @Value("${google.maps.client.max-concurrent-requests:8}") int maxConcurrentRequests,
+                         @Value("${google.maps.client.acquire-timeout-ms:10000}") long acquireTimeoutMillis,
+                         @Value("${google.maps.client.requests-per-second:50}") double permitsPerSecond,
+                         @Value("${google.maps.client.burst:50}") int burstPermits,
+                         @Value("${google.maps.client.max-attempts:3}") int maxAttempts,
+                         @Value("${google.maps.client.retry-backoff-ms:200}") long retryBackoffMillis,
+                         @Value("${google.maps.client.circuit-failure-threshold:5}") int failureThreshold,
+                         @Value("${google.maps.client.circuit-open-seconds:30}") int openSeconds) {
+        this.jsonFactory = objectMapper.getFactory();
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
+        this.concurrencyLimit = new Semaphore(Math.max(1, maxConcurrentRequests), true);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.permitsPerSecond = Math.max(0.1, permitsPerSecond);
+        this.burstPermits = Math.max(1, burstPermits);
+        this.availablePermits = this.burstPermits;
+        this.lastRefillNanos = System.nanoTime();
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openSeconds * 1000L;
+    }
+
+    /**
+     * Whether a call would currently be let through; false while the circuit is open
+     */
+    public synchronized boolean isAvailable() {
+        return circuitState == CircuitState.CLOSED
+                || (circuitState == CircuitState.OPEN && System.currentTimeMillis() - openedAtMillis >= openMillis);
+    }
+
+    /**
+     * GET a Maps API url and stream the response body through the given reader. Throws when the
+     * call is not let through or still fails after the retries; callers are expected to fall back.
+     *
+     * Only transport errors, timeouts, HTTP 429 and 5xx (and their API statuses OVER_QUERY_LIMIT and
+     * UNKNOWN_ERROR) count as failures of the upstream. Other HTTP errors and unreadable bodies are
+     * answers: they are thrown to the caller without being retried and without opening the circuit.
+     */
+    public <T extends MapsResponse> T get(String url, Reader<T> reader) {
+        if (!allowRequest()) {
+            rejected.incrementAndGet();
+            throw new RuntimeException("Google Maps API circuit is open");
+        }
+
+        // Whether the upstream answered: true closes the circuit, false counts a failure, null neither
+        Boolean healthy = null;
+        try {
+            RuntimeException lastError = null;
+            for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+                // Backoff and rate limit waits hold no request slot, so they never hold up other callers
+                if (attempt > 1) {
+                    retries.incrementAndGet();
+                    sleep(backoffMillis(attempt));
+                }
+                acquirePermit();
+                acquireSlot();
+                try {
+                    T response = send(url, reader);
+                    String status = response.status();
+                    if (status == null || !RETRYABLE_STATUSES.contains(status)) {
+                        healthy = true;
+                        return response;
+                    }
+                    failures.incrementAndGet();
+                    lastError = new RuntimeException("Google Maps API status " + status);
+                } catch (RetryableException e) {
+                    lastError = e;
+                } catch (AnswerException e) {
+                    healthy = true;
+                    throw e;
+                } finally {
+                    concurrencyLimit.release();
+                }
+            }
+            healthy = false;
+            throw lastError;
+        } finally {
+            recordOutcome(healthy);
+        }
+    }
+
+    private <T extends MapsResponse> T send(String url, Reader<T> reader) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(requestTimeout)
+                .GET()
+                .build();
+
+        long start = System.currentTimeMillis();
+        requests.incrementAndGet();
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                if (response.statusCode() == 429 || response.statusCode() >= 500) {
+                    failures.incrementAndGet();
+                    throw new RetryableException("Google Maps API HTTP " + response.statusCode(), null);
+                }
+                if (response.statusCode() != 200) {
+                    throw new AnswerException("Google Maps API HTTP " + response.statusCode(), null);
+                }
+                try (JsonParser parser = jsonFactory.createParser(body)) {
+                    return reader.read(parser);
+                } catch (JsonProcessingException e) {
+                    throw new AnswerException("Unreadable Google Maps API response: " + e.getOriginalMessage(), e);
+                }
+            }
+        } catch (IOException e) {
+            // Connection failures, timeouts and bodies cut off mid-stream
+            failures.incrementAndGet();
+            throw new RetryableException("Google Maps API request failed: " + e, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted calling Google Maps API", e);
+        } finally {
+            long latency = System.currentTimeMillis() - start;
+            totalLatencyMillis.addAndGet(latency);
+            maxLatencyMillis.accumulateAndGet(latency, Math::max);
+        }
+    }
+
+    /**
+     * Take one of the request slots, the only limit on requests in flight across the application
+     */
+    private void acquireSlot() {
+        try {
+            if (!concurrencyLimit.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.incrementAndGet();
+                throw new RuntimeException("Too many concurrent Google Maps API requests");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for a Google Maps API request slot", e);
+        }
+    }
+
+    /**
+     * Wait for a token from the bucket, which refills at the configured requests per second
+     */
+    private void acquirePermit() {
+        long waitMillis;
+        synchronized (this) {
+            long now = System.nanoTime();
+            availablePermits = Math.min(burstPermits,
+                    availablePermits + (now - lastRefillNanos) / 1e9 * permitsPerSecond);
+            lastRefillNanos = now;
+
+            // Take the token now (possibly going negative) so concurrent callers queue up behind it
+            availablePermits -= 1;
+            waitMillis = availablePermits >= 0 ? 0 : (long) Math.ceil(-availablePermits / permitsPerSecond * 1000);
+        }
+        sleep(waitMillis);
+    }
+
+    private long backoffMillis(int attempt) {
+        long backoff = retryBackoffMillis << (attempt - 2);
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff + 1);
+    }
+
+    /**
+     * Let a call through while closed; once the cool-down is over, let exactly one trial call through
+     */
+    private synchronized boolean allowRequest() {
+        if (circuitState == CircuitState.OPEN) {
+            if (System.currentTimeMillis() - openedAtMillis < openMillis) {
+                return false;
+            }
+            circuitState = CircuitState.HALF_OPEN;
+            return true;
+        }
+        return circuitState == CircuitState.CLOSED;
+    }
+
+    private synchronized void recordOutcome(Boolean healthy) {
+        if (healthy == null) {
+            // Gave up before the upstream answered (no slot, interrupted); a trial call can be tried again
+            if (circuitState == CircuitState.HALF_OPEN) {
+                circuitState = CircuitState.OPEN;
+            }
+        } else if (healthy) {
+            consecutiveFailures = 0;
+            circuitState = CircuitState.CLOSED;
+        } else {
+            recordFailure();
+        }
+    }
+
+    private void recordFailure() {
+        consecutiveFailures++;
+        if (circuitState == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (circuitState != CircuitState.OPEN) {
+                System.err.println("Google Maps API unhealthy, using estimates for " + openMillis / 1000 + "s");
+            }
+            circuitState = CircuitState.OPEN;
+            openedAtMillis = System.currentTimeMillis();
+        }
+    }
+
+    private void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting to call Google Maps API", e);
+        }
+    }
+
+    public synchronized ClientStats getStats() {
+        long requestCount = requests.get();
+        return new ClientStats(circuitState, requestCount, failures.get(), retries.get(), rejected.get(),
+                requestCount == 0 ? 0 : (double) totalLatencyMillis.get() / requestCount, maxLatencyMillis.get(),
+                concurrencyLimit.availablePermits());
+    }
+
+    private static class RetryableException extends RuntimeException {
+        RetryableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * The upstream answered, but not with a usable response; retrying would get the same answer
+     */
+    private static class AnswerException extends RuntimeException {
+        AnswerException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    public static class ClientStats {
+        private CircuitState circuitState;
+        private long requests;
+        private long failures;
+        private long retries;
+        private long rejected;
+        private double averageLatencyMillis;
+        private long maxLatencyMillis;
+        private int freeRequestSlots;
+
+        public ClientStats(CircuitState circuitState, long requests, long failures, long retries, long rejected,
+                           double averageLatencyMillis, long maxLatencyMillis, int freeRequestSlots) {
+            this.circuitState = circuitState;
+            this.requests = requests;
+            this.failures = failures;
+            this.retries = retries;
+            this.rejected = rejected;
+            this.averageLatencyMillis = averageLatencyMillis;
+            this.maxLatencyMillis = maxLatencyMillis;
+            this.freeRequestSlots = freeRequestSlots;
+        }
+
+        // Getters
+        public CircuitState getCircuitState() { return circuitState; }
+        public long getRequests() { return requests; }
+        public long getFailures() { return failures; }
+        public long getRetries() { return retries; }
+        public long getRejected() { return rejected; }
+        public double getAverageLatencyMillis() { return averageLatencyMillis; }
+        public long getMaxLatencyMillis() { return maxLatencyMillis; }
+        public int getFreeRequestSlots() { return freeRequestSlots; }
+
+        public double getErrorRate() {
+            return requests == 0 ? 0 : (double) failures / requests;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Streaming parsers for the Google Maps web service responses. Only the values the router uses are
+ * read (status, distance and duration per element, the first geocoding result); everything else,
+ * such as addresses, polylines and turn-by-turn steps, is skipped without being materialized.
+ */
+public final class MapsResponseParser {
+
+    // Marks an element without an answer
+    public static final int NO_VALUE = -1;
+
+    private MapsResponseParser() {
+    }
+
+    /**
+     * Any parsed Maps API response; the status decides whether the call is retried
+     */
+    public interface MapsResponse {
+        String status();
+    }
+
+    /**
+     * Reads one response from a parser positioned before its first token
+     */
+    @FunctionalInterface
+    public interface Reader<T extends MapsResponse> {
+        T read(JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Distance Matrix response: seconds (in traffic when available) and meters per element,
+     * row-major, {@link #NO_VALUE} for elements that were not answered
+     */
+    public record DistanceMatrixResponse(String status, int numOrigins, int numDestinations,
+                                         int[] seconds, int[] meters) implements MapsResponse {
+
+        public boolean isAnswered(int origin, int destination) {
+            return seconds[origin * numDestinations + destination] != NO_VALUE;
+        }
+
+        public int getSeconds(int origin, int destination) {
+            return seconds[origin * numDestinations + destination];
+        }
+
+        public int getMeters(int origin, int destination) {
+            return meters[origin * numDestinations + destination];
+        }
+    }
+
+    /**
+     * First leg of the first route of a Directions response, {@link #NO_VALUE} when there is none
+     */
+    public record DirectionsResponse(String status, int seconds, int meters) implements MapsResponse {
+    }
+
+    /**
+     * Location of the first Geocoding result, null when there is none
+     */
+    public record GeocodeResponse(String status, Location location) implements MapsResponse {
+    }
+
+    public static Reader<DistanceMatrixResponse> distanceMatrix(int numOrigins, int numDestinations) {
+        return parser -> readDistanceMatrix(parser, numOrigins, numDestinations);
+    }
+
+    public static DistanceMatrixResponse readDistanceMatrix(JsonParser parser, int numOrigins, int numDestinations)
+            throws IOException {
+        int[] seconds = new int[numOrigins * numDestinations];
+        int[] meters = new int[seconds.length];
+        Arrays.fill(seconds, NO_VALUE);
+        Arrays.fill(meters, NO_VALUE);
+
+        String status = null;
+        startObject(parser);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("status".equals(field)) {
+                status = parser.getValueAsString();
+            } else if ("rows".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                int row = 0;
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readRow(parser, row++, numOrigins, numDestinations, seconds, meters);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new DistanceMatrixResponse(status, numOrigins, numDestinations, seconds, meters);
+    }
+
+    private static void readRow(JsonParser parser, int row, int numOrigins, int numDestinations,
+                                int[] seconds, int[] meters) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("elements".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                int column = 0;
+                int[] element = new int[2];
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    boolean ok = readTravel(parser, element);
+                    if (ok && row < numOrigins && column < numDestinations) {
+                        seconds[row * numDestinations + column] = element[0];
+                        meters[row * numDestinations + column] = element[1];
+                    }
+                    column++;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    public static DirectionsResponse readDirections(JsonParser parser) throws IOException {
+        String status = null;
+        int[] leg = {NO_VALUE, NO_VALUE};
+
+        startObject(parser);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("status".equals(field)) {
+                status = parser.getValueAsString();
+            } else if ("routes".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                boolean first = true;
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    if (first) {
+                        readFirstLeg(parser, leg);
+                        first = false;
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new DirectionsResponse(status, leg[0], leg[1]);
+    }
+
+    private static void readFirstLeg(JsonParser parser, int[] leg) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("legs".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                boolean first = true;
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    if (first) {
+                        if (!readTravel(parser, leg)) {
+                            leg[0] = NO_VALUE;
+                            leg[1] = NO_VALUE;
+                        }
+                        first = false;
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Read a Distance Matrix element or Directions leg into {seconds, meters}. Prefers the duration
+     * in traffic. Returns whether both values were present and the element status (if any) is OK.
+     */
+    private static boolean readTravel(JsonParser parser, int[] travel) throws IOException {
+        int meters = NO_VALUE;
+        int duration = NO_VALUE;
+        int durationInTraffic = NO_VALUE;
+        String status = "OK";
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "status" -> status = parser.getValueAsString();
+                case "distance" -> meters = readValue(parser);
+                case "duration" -> duration = readValue(parser);
+                case "duration_in_traffic" -> durationInTraffic = readValue(parser);
+                default -> parser.skipChildren();
+            }
+        }
+
+        travel[0] = durationInTraffic != NO_VALUE ? durationInTraffic : duration;
+        travel[1] = meters;
+        return "OK".equals(status) && travel[0] != NO_VALUE && meters != NO_VALUE;
+    }
+
+    /**
+     * The "value" of a {"text": ..., "value": ...} object
+     */
+    private static int readValue(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return NO_VALUE;
+        }
+        int value = NO_VALUE;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("value".equals(field) && parser.currentToken().isNumeric()) {
+                value = parser.getIntValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return value;
+    }
+
+    public static GeocodeResponse readGeocode(JsonParser parser) throws IOException {
+        String status = null;
+        Location location = null;
+
+        startObject(parser);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("status".equals(field)) {
+                status = parser.getValueAsString();
+            } else if ("results".equals(field) && parser.currentToken() == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    if (location == null) {
+                        location = readGeometryLocation(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return new GeocodeResponse(status, location);
+    }
+
+    /**
+     * geometry.location of a geocoding result, or null
+     */
+    private static Location readGeometryLocation(JsonParser parser) throws IOException {
+        Location location = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("geometry".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String geometryField = parser.currentName();
+                    parser.nextToken();
+                    if ("location".equals(geometryField) && parser.currentToken() == JsonToken.START_OBJECT) {
+                        location = readLatLng(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return location;
+    }
+
+    private static Location readLatLng(JsonParser parser) throws IOException {
+        Double latitude = null;
+        Double longitude = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("lat".equals(field) && parser.currentToken().isNumeric()) {
+                latitude = parser.getDoubleValue();
+            } else if ("lng".equals(field) && parser.currentToken().isNumeric()) {
+                longitude = parser.getDoubleValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return latitude != null && longitude != null ? new Location(latitude, longitude) : null;
+    }
+
+    private static void startObject(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "Expected a JSON object in Google Maps API response");
+        }
+    }
+}
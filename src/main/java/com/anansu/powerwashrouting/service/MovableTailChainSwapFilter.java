@@ -0,0 +1,41 @@
+package com.anansu.powerwashrouting.service;
+
+import org.optaplanner.core.api.score.director.ScoreDirector;
+import org.optaplanner.core.impl.heuristic.selector.common.decorator.SelectionFilter;
+import org.optaplanner.core.impl.heuristic.selector.move.generic.chained.TailChainSwapMove;
+
+/**
+ * Keeps tail chain swaps away from pinned stops. OptaPlanner only checks that the moved entity
+ * itself is movable, but a tail chain swap also re-links the customer after the destination and,
+ * for a 2-opt within one route, can reverse the start of the route. Pinned stops are always a
+ * prefix of their route, which keeps both checks cheap.
+ */
+public class MovableTailChainSwapFilter
+        implements SelectionFilter<VehicleRoutingSolution, TailChainSwapMove<VehicleRoutingSolution>> {
+
+    @Override
+    public boolean accept(ScoreDirector<VehicleRoutingSolution> scoreDirector,
+                          TailChainSwapMove<VehicleRoutingSolution> move) {
+        Customer leftEntity = (Customer) move.getLeftEntity();
+        Standstill rightValue = (Standstill) move.getRightValue();
+
+        Customer rightEntity = rightValue.getNextCustomer();
+        if (rightEntity != null && rightEntity.isPinned()) {
+            return false;
+        }
+
+        OptimizationVehicle vehicle = leftEntity.getVehicle();
+        Customer firstCustomer = vehicle != null ? vehicle.getNextCustomer() : null;
+        if (firstCustomer == null || !firstCustomer.isPinned() || rightValue.getVehicle() != vehicle) {
+            return true;
+        }
+        // Same route with a pinned start: when the destination lies further down the route, the
+        // move reverses the anchor side (the route start) instead of the part in between
+        for (Customer customer = leftEntity; customer != null; customer = customer.getNextCustomer()) {
+            if (customer == rightValue) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,18 +1,32 @@
 package com.anansu.powerwashrouting.service;
 
 import com.anansu.powerwashrouting.model.ServiceType;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import org.optaplanner.core.api.domain.lookup.PlanningId;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
-public class OptimizationVehicle {
+/**
+ * Anchor of a customer chain. The vehicle leaves from its depot location and
+ * visits the customers reachable through {@link #getNextCustomer()} in order.
+ */
+public class OptimizationVehicle implements Standstill {
 
     private Long id;
     private Integer capacity;
     private Set<ServiceType> capabilities;
     private Double fuelEfficiency;
-    private List<Customer> customers = new ArrayList<>();
+    private Location depot;
+    private int locationIndex;
+    private TravelTimes travelMatrix;
+    private LocalDateTime departureTime;
+    private int departureMinute;
+
+    // Shadow variables
+    private Customer nextCustomer;
 
     public OptimizationVehicle() {}
 
@@ -21,7 +35,55 @@ public class OptimizationVehicle {
         this.capacity = capacity;
     }
 
+    /**
+     * Copy of the problem facts of a vehicle, with an empty route
+     */
+    public OptimizationVehicle(OptimizationVehicle original) {
+        this.id = original.id;
+        this.capacity = original.capacity;
+        this.capabilities = original.capabilities;
+        this.fuelEfficiency = original.fuelEfficiency;
+        this.depot = original.depot;
+        this.locationIndex = original.locationIndex;
+        this.travelMatrix = original.travelMatrix;
+        this.departureTime = original.departureTime;
+        this.departureMinute = original.departureMinute;
+    }
+
+    @Override
+    public Location getLocation() {
+        return depot;
+    }
+
+    @Override
+    public int getLocationIndex() {
+        return locationIndex;
+    }
+
+    public void setLocationIndex(int locationIndex) {
+        this.locationIndex = locationIndex;
+    }
+
+    public TravelTimes getTravelMatrix() { return travelMatrix; }
+    public void setTravelMatrix(TravelTimes travelMatrix) { this.travelMatrix = travelMatrix; }
+
+    @Override
+    public OptimizationVehicle getVehicle() {
+        return this;
+    }
+
+    @Override
+    public Customer getNextCustomer() {
+        return nextCustomer;
+    }
+
+    @Override
+    public void setNextCustomer(Customer nextCustomer) {
+        this.nextCustomer = nextCustomer;
+    }
+
     // Getters and setters
+    @PlanningId
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
 
@@ -34,14 +96,45 @@ public class OptimizationVehicle {
     public Double getFuelEfficiency() { return fuelEfficiency; }
     public void setFuelEfficiency(Double fuelEfficiency) { this.fuelEfficiency = fuelEfficiency; }
 
-    public List<Customer> getCustomers() { return customers; }
-    public void setCustomers(List<Customer> customers) { this.customers = customers; }
+    public Location getDepot() { return depot; }
+    public void setDepot(Location depot) { this.depot = depot; }
+
+    public LocalDateTime getDepartureTime() { return departureTime; }
+    public void setDepartureTime(LocalDateTime departureTime) {
+        this.departureTime = departureTime;
+        this.departureMinute = departureTime.getHour() * 60 + departureTime.getMinute();
+    }
+
+    @Override
+    public Integer getDepartureMinute() {
+        return departureMinute;
+    }
+
+    /**
+     * Customers of this vehicle in visiting order, following the chain from the depot
+     */
+    public List<Customer> getCustomers() {
+        List<Customer> customers = new ArrayList<>();
+        Customer customer = nextCustomer;
+        while (customer != null) {
+            customers.add(customer);
+            customer = customer.getNextCustomer();
+        }
+        return customers;
+    }
 
     public int getTotalDemand() {
-        return customers.stream().mapToInt(Customer::getRequiredCrewSize).sum();
+        return getCustomers().stream().mapToInt(Customer::getRequiredCrewSize).sum();
     }
 
     public int getTotalServiceTime() {
-        return customers.stream().mapToInt(Customer::getServiceTimeMinutes).sum();
+        return getCustomers().stream().mapToInt(Customer::getServiceTimeMinutes).sum();
+    }
+
+    @Override
+    public String toString() {
+        return "OptimizationVehicle{" +
+                "id=" + id +
+                '}';
     }
 }
@@ -0,0 +1,514 @@
+package com.anansu.powerwashrouting.service;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the drivable road network from an OpenStreetMap PBF extract (the format served by
+ * Geofabrik and similar). Only what routing needs is decoded: highway ways with their speed and
+ * direction, and the coordinates of the nodes they use.
+ *
+ * The file is read twice: first the ways, then only the nodes those ways reference. Nodes where
+ * ways meet (and way ends) become graph nodes; the shape points in between are folded into the
+ * edge length. Only the largest connected part of the network is kept, so locations never snap
+ * to an isolated parking lot or a road cut off at the edge of the extract.
+ */
+public class OsmPbfReader {
+
+    // Typical driving speeds (km/h) per road class when a way has no usable maxspeed
+    private static final Map<String, Integer> DEFAULT_SPEEDS_KMH = Map.ofEntries(
+            Map.entry("motorway", 100), Map.entry("motorway_link", 60),
+            Map.entry("trunk", 80), Map.entry("trunk_link", 50),
+            Map.entry("primary", 60), Map.entry("primary_link", 40),
+            Map.entry("secondary", 50), Map.entry("secondary_link", 35),
+            Map.entry("tertiary", 40), Map.entry("tertiary_link", 30),
+            Map.entry("unclassified", 30), Map.entry("residential", 25),
+            Map.entry("living_street", 10), Map.entry("service", 15), Map.entry("road", 30));
+
+    private static final Set<String> ONEWAY_VALUES = Set.of("yes", "true", "1");
+
+    // Ways from the first pass
+    private final List<long[]> wayRefs = new ArrayList<>();
+    private final List<Integer> waySpeeds = new ArrayList<>();
+    private final List<Integer> wayDirections = new ArrayList<>(); // 0 both ways, 1 forward, -1 backward
+
+    // Referenced node ids (sorted, unique) with their coordinates from the second pass
+    private long[] nodeIds;
+    private double[] nodeLatitudes;
+    private double[] nodeLongitudes;
+
+    private OsmPbfReader() {
+    }
+
+    public static RoadNetwork read(Path file) throws IOException {
+        OsmPbfReader reader = new OsmPbfReader();
+        reader.forEachDataBlock(file, block -> reader.readBlock(block, true));
+        reader.indexReferencedNodes();
+        reader.forEachDataBlock(file, block -> reader.readBlock(block, false));
+        return reader.buildNetwork();
+    }
+
+    // File structure: length-prefixed BlobHeader, then the Blob holding a zlib-compressed block
+
+    private void forEachDataBlock(Path file, Consumer<byte[]> handler) throws IOException {
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+             DataInputStream in = new DataInputStream(stream)) {
+            while (true) {
+                int headerLength;
+                try {
+                    headerLength = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+
+                String type = null;
+                int dataSize = 0;
+                ProtoReader header = new ProtoReader(readFully(in, headerLength));
+                while (header.next()) {
+                    switch (header.field) {
+                        case 1 -> type = header.string();
+                        case 3 -> dataSize = (int) header.varint();
+                        default -> header.skip();
+                    }
+                }
+
+                byte[] blob = readFully(in, dataSize);
+                if ("OSMData".equals(type)) {
+                    handler.accept(decompress(blob));
+                }
+            }
+        }
+    }
+
+    private byte[] decompress(byte[] blob) {
+        byte[] raw = null;
+        byte[] zlib = null;
+        int rawSize = 0;
+        ProtoReader reader = new ProtoReader(blob);
+        while (reader.next()) {
+            switch (reader.field) {
+                case 1 -> raw = reader.bytes();
+                case 2 -> rawSize = (int) reader.varint();
+                case 3 -> zlib = reader.bytes();
+                default -> reader.skip();
+            }
+        }
+        if (raw != null) return raw;
+        if (zlib == null) throw new RuntimeException("Unsupported PBF blob compression (only zlib is supported)");
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(zlib);
+            byte[] data = new byte[rawSize];
+            int length = 0;
+            while (length < rawSize && !inflater.finished()) {
+                length += inflater.inflate(data, length, rawSize - length);
+                if (inflater.needsInput()) break;
+            }
+            if (length < rawSize) throw new RuntimeException("Truncated PBF blob");
+            return data;
+        } catch (DataFormatException e) {
+            throw new RuntimeException("Corrupt PBF blob: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] readFully(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    // PrimitiveBlock: string table, groups of nodes / dense nodes / ways, coordinate encoding
+
+    private void readBlock(byte[] data, boolean ways) {
+        List<String> strings = new ArrayList<>();
+        List<ProtoReader> groups = new ArrayList<>();
+        long granularity = 100;
+        long latOffset = 0;
+        long lonOffset = 0;
+
+        ProtoReader block = new ProtoReader(data);
+        while (block.next()) {
+            switch (block.field) {
+                case 1 -> {
+                    ProtoReader table = block.message();
+                    while (table.next()) {
+                        if (table.field == 1) strings.add(table.string());
+                        else table.skip();
+                    }
+                }
+                case 2 -> groups.add(block.message());
+                case 17 -> granularity = block.varint();
+                case 19 -> latOffset = block.varint();
+                case 20 -> lonOffset = block.varint();
+                default -> block.skip();
+            }
+        }
+
+        for (ProtoReader group : groups) {
+            while (group.next()) {
+                if (ways && group.field == 3) {
+                    readWay(group.message(), strings);
+                } else if (!ways && group.field == 1) {
+                    readNode(group.message(), granularity, latOffset, lonOffset);
+                } else if (!ways && group.field == 2) {
+                    readDenseNodes(group.message(), granularity, latOffset, lonOffset);
+                } else {
+                    group.skip();
+                }
+            }
+        }
+    }
+
+    private void readWay(ProtoReader way, List<String> strings) {
+        List<Long> keys = new ArrayList<>();
+        List<Long> values = new ArrayList<>();
+        long[] refs = null;
+
+        while (way.next()) {
+            switch (way.field) {
+                case 2 -> readPacked(way.message(), keys);
+                case 3 -> readPacked(way.message(), values);
+                case 8 -> {
+                    ProtoReader packed = way.message();
+                    List<Long> ids = new ArrayList<>();
+                    long id = 0;
+                    while (packed.hasMore()) {
+                        id += packed.sint();
+                        ids.add(id);
+                    }
+                    refs = ids.stream().mapToLong(Long::longValue).toArray();
+                }
+                default -> way.skip();
+            }
+        }
+        if (refs == null || refs.length < 2) return;
+
+        String highway = null, maxspeed = null, oneway = null, junction = null;
+        for (int i = 0; i < keys.size() && i < values.size(); i++) {
+            String key = strings.get(keys.get(i).intValue());
+            String value = strings.get(values.get(i).intValue());
+            switch (key) {
+                case "highway" -> highway = value;
+                case "maxspeed" -> maxspeed = value;
+                case "oneway" -> oneway = value;
+                case "junction" -> junction = value;
+                default -> { }
+            }
+        }
+        if (highway == null || !DEFAULT_SPEEDS_KMH.containsKey(highway)) return;
+
+        int direction = 0;
+        if (oneway != null && ONEWAY_VALUES.contains(oneway)) direction = 1;
+        else if ("-1".equals(oneway)) direction = -1;
+        else if (!"no".equals(oneway) && (highway.equals("motorway") || "roundabout".equals(junction))) direction = 1;
+
+        wayRefs.add(refs);
+        waySpeeds.add(parseSpeed(maxspeed, DEFAULT_SPEEDS_KMH.get(highway)));
+        wayDirections.add(direction);
+    }
+
+    private int parseSpeed(String maxspeed, int defaultSpeed) {
+        if (maxspeed == null) return defaultSpeed;
+        try {
+            String number = maxspeed.replaceAll("[^0-9.].*$", "").trim();
+            double speed = Double.parseDouble(number);
+            if (maxspeed.contains("mph")) speed *= 1.609;
+            return speed >= 5 ? (int) speed : defaultSpeed;
+        } catch (NumberFormatException e) {
+            return defaultSpeed;
+        }
+    }
+
+    private void readNode(ProtoReader node, long granularity, long latOffset, long lonOffset) {
+        long id = 0, lat = 0, lon = 0;
+        while (node.next()) {
+            switch (node.field) {
+                case 1 -> id = node.sint();
+                case 8 -> lat = node.sint();
+                case 9 -> lon = node.sint();
+                default -> node.skip();
+            }
+        }
+        storeNode(id, latOffset + granularity * lat, lonOffset + granularity * lon);
+    }
+
+    private void readDenseNodes(ProtoReader dense, long granularity, long latOffset, long lonOffset) {
+        List<Long> ids = new ArrayList<>();
+        List<Long> lats = new ArrayList<>();
+        List<Long> lons = new ArrayList<>();
+        while (dense.next()) {
+            switch (dense.field) {
+                case 1 -> readPackedSint(dense.message(), ids);
+                case 8 -> readPackedSint(dense.message(), lats);
+                case 9 -> readPackedSint(dense.message(), lons);
+                default -> dense.skip();
+            }
+        }
+
+        // All three are delta coded
+        long id = 0, lat = 0, lon = 0;
+        for (int i = 0; i < ids.size(); i++) {
+            id += ids.get(i);
+            lat += lats.get(i);
+            lon += lons.get(i);
+            storeNode(id, latOffset + granularity * lat, lonOffset + granularity * lon);
+        }
+    }
+
+    private void storeNode(long id, long latNanoDegrees, long lonNanoDegrees) {
+        int index = Arrays.binarySearch(nodeIds, id);
+        if (index >= 0) {
+            nodeLatitudes[index] = latNanoDegrees * 1e-9;
+            nodeLongitudes[index] = lonNanoDegrees * 1e-9;
+        }
+    }
+
+    private static void readPacked(ProtoReader packed, List<Long> into) {
+        while (packed.hasMore()) into.add(packed.varint());
+    }
+
+    private static void readPackedSint(ProtoReader packed, List<Long> into) {
+        while (packed.hasMore()) into.add(packed.sint());
+    }
+
+    // Graph construction
+
+    private void indexReferencedNodes() {
+        nodeIds = wayRefs.stream().flatMapToLong(Arrays::stream).sorted().distinct().toArray();
+        nodeLatitudes = new double[nodeIds.length];
+        nodeLongitudes = new double[nodeIds.length];
+        Arrays.fill(nodeLatitudes, Double.NaN);
+        Arrays.fill(nodeLongitudes, Double.NaN);
+    }
+
+    private RoadNetwork buildNetwork() {
+        // Junctions and way ends become graph nodes
+        int[] useCount = new int[nodeIds.length];
+        boolean[] junction = new boolean[nodeIds.length];
+        for (long[] refs : wayRefs) {
+            for (long ref : refs) useCount[Arrays.binarySearch(nodeIds, ref)]++;
+            junction[Arrays.binarySearch(nodeIds, refs[0])] = true;
+            junction[Arrays.binarySearch(nodeIds, refs[refs.length - 1])] = true;
+        }
+        int[] graphNode = new int[nodeIds.length];
+        int graphNodeCount = 0;
+        for (int i = 0; i < nodeIds.length; i++) {
+            graphNode[i] = (junction[i] || useCount[i] > 1) && !Double.isNaN(nodeLatitudes[i]) ? graphNodeCount++ : -1;
+        }
+
+        EdgeList edges = new EdgeList();
+        for (int w = 0; w < wayRefs.size(); w++) {
+            long[] refs = wayRefs.get(w);
+            double metersPerDecisecond = waySpeeds.get(w) / 36.0;
+            int direction = wayDirections.get(w);
+
+            int previousGraphNode = -1;
+            int previousIndex = -1;
+            double meters = 0;
+            for (long ref : refs) {
+                int index = Arrays.binarySearch(nodeIds, ref);
+                if (Double.isNaN(nodeLatitudes[index])) {
+                    // Node outside the extract: the way is cut here
+                    previousGraphNode = -1;
+                    previousIndex = -1;
+                    continue;
+                }
+                if (previousIndex >= 0) {
+                    meters += GeoKernel.distanceMeters(nodeLatitudes[previousIndex], nodeLongitudes[previousIndex],
+                            nodeLatitudes[index], nodeLongitudes[index]);
+                }
+                previousIndex = index;
+
+                if (graphNode[index] < 0) continue;
+                if (previousGraphNode >= 0 && previousGraphNode != graphNode[index]) {
+                    int time = Math.max(1, (int) Math.round(meters / metersPerDecisecond));
+                    if (direction >= 0) edges.add(previousGraphNode, graphNode[index], time, (int) Math.round(meters));
+                    if (direction <= 0) edges.add(graphNode[index], previousGraphNode, time, (int) Math.round(meters));
+                }
+                previousGraphNode = graphNode[index];
+                meters = 0;
+            }
+        }
+
+        double[] latitudes = new double[graphNodeCount];
+        double[] longitudes = new double[graphNodeCount];
+        for (int i = 0; i < nodeIds.length; i++) {
+            if (graphNode[i] >= 0) {
+                latitudes[graphNode[i]] = nodeLatitudes[i];
+                longitudes[graphNode[i]] = nodeLongitudes[i];
+            }
+        }
+        return largestComponent(latitudes, longitudes, edges);
+    }
+
+    private RoadNetwork largestComponent(double[] latitudes, double[] longitudes, EdgeList edges) {
+        int n = latitudes.length;
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+        for (int e = 0; e < edges.size; e++) {
+            int a = find(parent, edges.from[e]);
+            int b = find(parent, edges.to[e]);
+            if (a != b) parent[a] = b;
+        }
+
+        int[] componentSize = new int[n];
+        int largest = 0;
+        for (int i = 0; i < n; i++) {
+            int root = find(parent, i);
+            if (++componentSize[root] > componentSize[largest]) largest = root;
+        }
+
+        int[] newIndex = new int[n];
+        int kept = 0;
+        for (int i = 0; i < n; i++) newIndex[i] = find(parent, i) == largest ? kept++ : -1;
+
+        double[] keptLatitudes = new double[kept];
+        double[] keptLongitudes = new double[kept];
+        for (int i = 0; i < n; i++) {
+            if (newIndex[i] >= 0) {
+                keptLatitudes[newIndex[i]] = latitudes[i];
+                keptLongitudes[newIndex[i]] = longitudes[i];
+            }
+        }
+
+        EdgeList keptEdges = new EdgeList();
+        for (int e = 0; e < edges.size; e++) {
+            if (newIndex[edges.from[e]] >= 0) {
+                keptEdges.add(newIndex[edges.from[e]], newIndex[edges.to[e]], edges.time[e], edges.meters[e]);
+            }
+        }
+
+        return new RoadNetwork(keptLatitudes, keptLongitudes,
+                Arrays.copyOf(keptEdges.from, keptEdges.size), Arrays.copyOf(keptEdges.to, keptEdges.size),
+                Arrays.copyOf(keptEdges.time, keptEdges.size), Arrays.copyOf(keptEdges.meters, keptEdges.size));
+    }
+
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private static final class EdgeList {
+        int[] from = new int[1024];
+        int[] to = new int[1024];
+        int[] time = new int[1024];
+        int[] meters = new int[1024];
+        int size;
+
+        void add(int edgeFrom, int edgeTo, int edgeTime, int edgeMeters) {
+            if (size == from.length) {
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+                time = Arrays.copyOf(time, size * 2);
+                meters = Arrays.copyOf(meters, size * 2);
+            }
+            from[size] = edgeFrom;
+            to[size] = edgeTo;
+            time[size] = edgeTime;
+            meters[size] = edgeMeters;
+            size++;
+        }
+    }
+
+    /**
+     * Minimal protocol buffers decoder over a byte range: field keys, varints and nested messages
+     */
+    private static final class ProtoReader {
+        private final byte[] buffer;
+        private int position;
+        private final int limit;
+
+        int field;
+        private int wireType;
+
+        ProtoReader(byte[] buffer) {
+            this(buffer, 0, buffer.length);
+        }
+
+        ProtoReader(byte[] buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.position = offset;
+            this.limit = offset + length;
+        }
+
+        boolean hasMore() {
+            return position < limit;
+        }
+
+        boolean next() {
+            if (position >= limit) return false;
+            long key = varint();
+            field = (int) (key >>> 3);
+            wireType = (int) (key & 7);
+            return true;
+        }
+
+        long varint() {
+            long result = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer[position++];
+                result |= (long) (b & 0x7f) << shift;
+                if (b >= 0) return result;
+            }
+        }
+
+        long sint() {
+            long value = varint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        ProtoReader message() {
+            int length = (int) varint();
+            ProtoReader message = new ProtoReader(buffer, position, length);
+            position += length;
+            return message;
+        }
+
+        byte[] bytes() {
+            int length = (int) varint();
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        String string() {
+            int length = (int) varint();
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        void skip() {
+            switch (wireType) {
+                case 0 -> varint();
+                case 1 -> position += 8;
+                case 2 -> {
+                    int length = (int) varint();
+                    position += length;
+                }
+                case 5 -> position += 4;
+                default -> throw new RuntimeException("Unsupported protobuf wire type " + wireType);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.anansu.powerwashrouting.service;
+
+/**
+ * Directed road graph: junctions as nodes, the road between two junctions as one edge with its
+ * driving time (in tenths of a second) and length. Built by {@link OsmPbfReader}, turned into a
+ * {@link ContractionHierarchy} for queries.
+ */
+public class RoadNetwork {
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+    private final int[] edgeTime;
+    private final int[] edgeMeters;
+
+    public RoadNetwork(double[] latitudes, double[] longitudes,
+                       int[] edgeFrom, int[] edgeTo, int[] edgeTime, int[] edgeMeters) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+        this.edgeTime = edgeTime;
+        this.edgeMeters = edgeMeters;
+    }
+
+    public int getNodeCount() { return latitudes.length; }
+    public int getEdgeCount() { return edgeFrom.length; }
+
+    public double getLatitude(int node) { return latitudes[node]; }
+    public double getLongitude(int node) { return longitudes[node]; }
+
+    public int getEdgeFrom(int edge) { return edgeFrom[edge]; }
+    public int getEdgeTo(int edge) { return edgeTo[edge]; }
+    public int getEdgeTime(int edge) { return edgeTime[edge]; }
+    public int getEdgeMeters(int edge) { return edgeMeters[edge]; }
+}
@@ -0,0 +1,130 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.GoogleMapsService.TravelMatrix;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * Offline travel times from a local OpenStreetMap extract, without any network access. Travel
+ * times are free-flow driving times from road classes and speed limits, so they ignore traffic.
+ *
+ * The extract is turned into a contraction hierarchy in the background at startup. That takes a
+ * while for a large region, so the result is saved next to the extract and reused on later starts
+ * until the extract changes. Until it is ready, travel times keep coming from Google Maps.
+ */
+@Service
+@ConditionalOnProperty(name = "routing.road-network.enabled", havingValue = "true")
+public class RoadNetworkTravelTimeProvider implements TravelTimeProvider {
+
+    // Walking/driving between a location and the road node it snapped to
+    private static final double ACCESS_METERS_PER_SECOND = 20 / 3.6;
+
+    @Value("${routing.road-network.osm-file}")
+    private String osmFile;
+
+    @Value("${routing.road-network.cache-file:}")
+    private String cacheFile;
+
+    @Value("${routing.road-network.max-snap-meters:1000}")
+    private double maxSnapMeters;
+
+    private volatile ContractionHierarchy hierarchy;
+
+    @PostConstruct
+    public void startLoading() {
+        Thread loader = new Thread(this::load, "road-network-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void load() {
+        Path osm = Path.of(osmFile);
+        Path cache = cacheFile.isBlank() ? Path.of(osmFile + ".ch") : Path.of(cacheFile);
+        long start = System.currentTimeMillis();
+
+        try {
+            ContractionHierarchy loaded;
+            if (Files.exists(cache) && Files.getLastModifiedTime(cache).compareTo(Files.getLastModifiedTime(osm)) >= 0) {
+                loaded = ContractionHierarchy.load(cache);
+            } else {
+                RoadNetwork network = OsmPbfReader.read(osm);
+                System.out.println("Read road network from " + osm + ": " + network.getNodeCount() + " junctions, "
+                        + network.getEdgeCount() + " road segments");
+                loaded = ContractionHierarchy.build(network);
+                try {
+                    loaded.save(cache);
+                } catch (Exception e) {
+                    System.err.println("Could not save contraction hierarchy to " + cache + ": " + e.getMessage());
+                }
+            }
+            hierarchy = loaded;
+            System.out.println("Road network ready (" + loaded.getNodeCount() + " nodes) in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            System.err.println("Could not load road network from " + osm + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return hierarchy != null;
+    }
+
+    @Override
+    public TravelMatrix getTravelMatrix(Location[] origins, Location[] destinations, LocalDateTime departureTime) {
+        ContractionHierarchy ch = hierarchy;
+        TravelMatrix matrix = new TravelMatrix(origins.length, destinations.length);
+        if (ch == null) return matrix;
+
+        int[] originNodes = snap(ch, origins);
+        int[] destinationNodes = snap(ch, destinations);
+        int[] times = new int[origins.length * destinations.length];
+        int[] meters = new int[times.length];
+        ch.manyToMany(originNodes, destinationNodes, times, meters);
+        double[] originAccessMeters = accessMeters(ch, origins, originNodes);
+        double[] destinationAccessMeters = accessMeters(ch, destinations, destinationNodes);
+
+        for (int i = 0; i < origins.length; i++) {
+            for (int j = 0; j < destinations.length; j++) {
+                int cell = i * destinations.length + j;
+                if (originNodes[i] < 0 || destinationNodes[j] < 0 || times[cell] == Integer.MAX_VALUE) continue;
+
+                double accessMeters = originAccessMeters[i] + destinationAccessMeters[j];
+                double seconds = times[cell] / 10.0 + accessMeters / ACCESS_METERS_PER_SECOND;
+                matrix.setTravel(i, j, (int) Math.round(seconds), (int) Math.round(meters[cell] + accessMeters));
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Nearest road node per location, or -1 for locations too far from any road
+     */
+    private int[] snap(ContractionHierarchy ch, Location[] locations) {
+        int[] nodes = new int[locations.length];
+        for (int i = 0; i < locations.length; i++) {
+            nodes[i] = ch.nearestNode(locations[i].getLatitude(), locations[i].getLongitude(), maxSnapMeters);
+        }
+        return nodes;
+    }
+
+    /**
+     * Straight-line distance from each location to its road node (0 for unsnapped locations)
+     */
+    private double[] accessMeters(ContractionHierarchy ch, Location[] locations, int[] nodes) {
+        double[] meters = new double[locations.length];
+        for (int i = 0; i < locations.length; i++) {
+            if (nodes[i] < 0) continue;
+            meters[i] = GeoKernel.distanceMeters(locations[i].getLatitude(), locations[i].getLongitude(),
+                    ch.getLatitude(nodes[i]), ch.getLongitude(nodes[i]));
+        }
+        return meters;
+    }
+}
@@ -0,0 +1,145 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.dto.RouteSummary;
+import com.anansu.powerwashrouting.dto.RoutesChanged;
+import com.anansu.powerwashrouting.model.Route;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes route updates to dashboards over Server-Sent Events, so open screens receive
+ * changes as they happen instead of re-reading every route on a timer.
+ *
+ * Event names:
+ * best-solution  - the solver found a better plan for a date
+ * solve-status   - a background solve changed state (completed, failed, ...)
+ * routes-changed - saved routes were created, replaced or updated
+ */
+@Service
+public class RouteEventService {
+
+    private static final long MIN_BEST_SOLUTION_INTERVAL_MILLIS = 1000;
+
+    private final long emitterTimeoutMillis;
+    private final Map<LocalDate, List<SseEmitter>> emittersByDate = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> lastBestSolutionSent = new ConcurrentHashMap<>();
+
+    public RouteEventService(@Value("${routing.events.emitter-timeout-minutes:30}") long emitterTimeoutMinutes) {
+        this.emitterTimeoutMillis = emitterTimeoutMinutes * 60_000;
+    }
+
+    /**
+     * Open an event stream for one route date. The browser reconnects by itself when it times out.
+     */
+    public SseEmitter subscribe(LocalDate date) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMillis);
+        List<SseEmitter> emitters = emittersByDate.computeIfAbsent(date, d -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> emitters.remove(emitter));
+
+        // Let the client know the stream is open, so it can load the current state once
+        send(emitter, emitters, "connected", date);
+        return emitter;
+    }
+
+    /**
+     * Publish an improved solution. Early in a solve improvements arrive many times a second,
+     * so these are thinned out to at most one per second per solve; the plan is only built
+     * when it is actually sent.
+     */
+    public void publishBestSolution(UUID problemId, LocalDate date, Supplier<RouteSolvingService.SolvePlan> plan) {
+        if (!hasSubscribers(date)) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Long lastSent = lastBestSolutionSent.get(problemId);
+        if (lastSent != null && now - lastSent < MIN_BEST_SOLUTION_INTERVAL_MILLIS) {
+            return;
+        }
+        lastBestSolutionSent.put(problemId, now);
+
+        broadcast(date, "best-solution", plan.get());
+    }
+
+    public void publishSolveStatus(RouteSolvingService.SolveStatus status) {
+        if (status.getState() == RouteSolvingService.SolveState.COMPLETED
+                || status.getState() == RouteSolvingService.SolveState.FAILED) {
+            lastBestSolutionSent.remove(status.getProblemId());
+        }
+        broadcast(status.getDate(), "solve-status", status);
+    }
+
+    /**
+     * Publish saved routes for a date. Vehicles listed in affectedVehicleIds that have no route in
+     * routes no longer have one. When called inside a transaction the event is sent after commit,
+     * so clients never see changes that are rolled back.
+     */
+    public void publishRoutesChanged(LocalDate date, Collection<Route> routes, Collection<Long> affectedVehicleIds) {
+        if (!hasSubscribers(date)) {
+            return;
+        }
+
+        // Build the summaries now, while the route stops can still be loaded
+        RoutesChanged event = new RoutesChanged(date,
+                routes.stream().map(RouteSummary::new).collect(Collectors.toList()),
+                Set.copyOf(affectedVehicleIds));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    broadcast(date, "routes-changed", event);
+                }
+            });
+        } else {
+            broadcast(date, "routes-changed", event);
+        }
+    }
+
+    public void publishRouteChanged(Route route) {
+        publishRoutesChanged(route.getRouteDate(), List.of(route), List.of(route.getVehicle().getId()));
+    }
+
+    private boolean hasSubscribers(LocalDate date) {
+        List<SseEmitter> emitters = emittersByDate.get(date);
+        return emitters != null && !emitters.isEmpty();
+    }
+
+    private void broadcast(LocalDate date, String eventName, Object data) {
+        List<SseEmitter> emitters = emittersByDate.get(date);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            send(emitter, emitters, eventName, data);
+        }
+    }
+
+    private void send(SseEmitter emitter, List<SseEmitter> emitters, String eventName, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; drop it rather than failing the publisher
+            emitters.remove(emitter);
+        }
+    }
+}
@@ -5,7 +5,9 @@ import com.anansu.powerwashrouting.db.RouteRepository;
 import com.anansu.powerwashrouting.db.RouteStopRepository;
 import com.anansu.powerwashrouting.db.VehicleRepository;
 import com.anansu.powerwashrouting.model.*;
+import com.anansu.powerwashrouting.service.GoogleMapsService.TravelLeg;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -13,8 +15,14 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -42,14 +50,38 @@ public class RouteOptimizationService {
     @Autowired
     private WeatherService weatherService;
 
-    private static final LocalTime WORK_START_TIME = LocalTime.of(8, 0);
-    private static final LocalTime WORK_END_TIME = LocalTime.of(18, 0);
-    private static final int MAX_OVERTIME_MINUTES = 120; // 2 hours
+    @Autowired
+    private RouteEventService routeEventService;
+
+    // Problems with more locations than this use a sparse nearest-neighbour travel graph (0 = never)
+    @Value("${routing.optimization.sparse-travel-threshold:1000}")
+    private int sparseTravelThreshold;
+
+    @Value("${routing.optimization.sparse-travel-neighbours:20}")
+    private int sparseTravelNeighbours;
+
+    static final Location DEPOT = new Location(40.7128, -74.0060); // Example: NYC coordinates
+    static final LocalTime WORK_START_TIME = LocalTime.of(8, 0);
+    static final LocalTime WORK_END_TIME = LocalTime.of(18, 0);
+    static final int MAX_OVERTIME_MINUTES = 120; // 2 hours
 
     /**
      * Generate optimized routes for a specific date
      */
     public List<Route> generateOptimizedRoutes(LocalDate date) {
+        // Create optimization problem
+        VehicleRoutingSolution problem = createRoutingProblem(date);
+
+        // Solve using OptaPlanner
+        VehicleRoutingSolution solution = vehicleRoutingPlanner.solve(problem);
+
+        return saveOptimizedRoutes(solution, date);
+    }
+
+    /**
+     * Build the optimization problem for all schedulable jobs and available vehicles of a date
+     */
+    public VehicleRoutingSolution createRoutingProblem(LocalDate date) {
         // Get available vehicles
         List<Vehicle> availableVehicles = getAvailableVehicles(date);
 
@@ -62,29 +94,60 @@ public class RouteOptimizationService {
         // Prioritize jobs
         schedulableJobs = prioritizeJobs(schedulableJobs);
 
-        // Create optimization problem
-        VehicleRoutingSolution problem = createRoutingProblem(availableVehicles, schedulableJobs, date);
+        return createRoutingProblem(availableVehicles, schedulableJobs, date);
+    }
 
-        // Solve using OptaPlanner
-        VehicleRoutingSolution solution = vehicleRoutingPlanner.solve(problem);
+    /**
+     * Convert a solved problem to Route entities and save them
+     */
+    public List<Route> saveOptimizedRoutes(VehicleRoutingSolution solution, LocalDate date) {
+        return saveOptimizedRoutes(solution, date, List.of());
+    }
 
-        // Convert solution to Route entities
-        List<Route> optimizedRoutes = convertSolutionToRoutes(solution, date);
+    /**
+     * Save a solved problem over existing routes of the date. Routes and stops are updated in
+     * place, matched by vehicle and job, so what crews already recorded (actual times, route
+     * status) is kept; stops of jobs no longer planned and routes left without stops are deleted.
+     */
+    private List<Route> saveOptimizedRoutes(VehicleRoutingSolution solution, LocalDate date, List<Route> existingRoutes) {
+        Map<Long, Route> existingRoutesByVehicle = new HashMap<>();
+        Map<Long, RouteStop> existingStopsByJob = new HashMap<>();
+        for (Route route : existingRoutes) {
+            existingRoutesByVehicle.put(route.getVehicle().getId(), route);
+            route.getStops().forEach(stop -> existingStopsByJob.put(stop.getJob().getId(), stop));
+        }
+
+        // Takes the stops it reuses out of existingStopsByJob
+        List<Route> routes = convertSolutionToRoutes(solution, date, existingRoutesByVehicle, existingStopsByJob);
+
+        routeStopRepository.deleteAll(existingStopsByJob.values());
+        List<Route> emptiedRoutes = existingRoutes.stream()
+                .filter(route -> !routes.contains(route))
+                .collect(Collectors.toList());
+        emptiedRoutes.forEach(route -> route.setStops(new ArrayList<>()));
+        routeRepository.deleteAll(emptiedRoutes);
 
-        // Save routes to database
-        return routeRepository.saveAll(optimizedRoutes);
+        List<Route> optimizedRoutes = routeRepository.saveAll(routes);
+        routeEventService.publishRoutesChanged(date, optimizedRoutes,
+                solution.getVehicles().stream().map(OptimizationVehicle::getId).collect(Collectors.toList()));
+        return optimizedRoutes;
     }
 
     /**
      * Re-optimize existing routes (for dynamic updates)
      */
     public List<Route> reoptimizeRoutes(LocalDate date, List<Long> vehicleIds) {
-        // Get existing routes for the vehicles
-        List<Route> existingRoutes = vehicleIds.stream()
-                .map(vehicleId -> routeRepository.findByVehicleIdAndRouteDate(vehicleId, date))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toList());
+        return reoptimizeRoutes(date, vehicleIds, false, false);
+    }
+
+    /**
+     * Re-optimize existing routes. With warmStart the solver starts from the current stop order
+     * and only runs a short local search, so crews' days change as little as needed; pinStarted
+     * additionally keeps stops that are already started or done where they are.
+     */
+    public List<Route> reoptimizeRoutes(LocalDate date, List<Long> vehicleIds, boolean warmStart, boolean pinStarted) {
+        // Get existing routes for the vehicles, with their stops and jobs
+        List<Route> existingRoutes = routeRepository.findWithStopsByRouteDateAndVehicleIds(date, vehicleIds);
 
         // Extract all jobs from existing routes
         List<Job> allJobs = existingRoutes.stream()
@@ -94,45 +157,123 @@ public class RouteOptimizationService {
 
         // Add any new unassigned jobs
         allJobs.addAll(getUnassignedJobs(date));
+        allJobs = allJobs.stream().distinct().collect(Collectors.toList());
 
-        // Get available vehicles
+        // Get available vehicles, in the order they were requested
+        Map<Long, Vehicle> vehiclesById = loadVehicles(vehicleIds);
         List<Vehicle> vehicles = vehicleIds.stream()
-                .map(vehicleRepository::findById)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
+                .map(vehiclesById::get)
+                .filter(Objects::nonNull)
+                .distinct()
                 .collect(Collectors.toList());
 
-        // Delete existing routes
-        routeRepository.deleteAll(existingRoutes);
-
         // Create new optimization problem
         VehicleRoutingSolution problem = createRoutingProblem(vehicles, allJobs, date);
-        VehicleRoutingSolution solution = vehicleRoutingPlanner.solve(problem);
+        VehicleRoutingSolution solution;
+        if (warmStart) {
+            seedFromExistingRoutes(problem, existingRoutes, pinStarted);
+            solution = vehicleRoutingPlanner.reoptimize(problem);
+        } else {
+            solution = vehicleRoutingPlanner.solve(problem);
+        }
+
+        // Update the existing routes, so started and pinned stops keep their actual times
+        return saveOptimizedRoutes(solution, date, existingRoutes);
+    }
+
+    /**
+     * Problem for real-time planning of a route day: every available vehicle starts from its
+     * current route, with the stops its crew has already started pinned. Jobs that come in later
+     * are added to the running solver as problem changes.
+     */
+    public VehicleRoutingSolution createRealTimeProblem(LocalDate date) {
+        List<Vehicle> vehicles = getAvailableVehicles(date);
+        Set<Long> vehicleIds = vehicles.stream().map(Vehicle::getId).collect(Collectors.toSet());
+
+        // Routes, vehicles, stops and jobs in one query
+        List<Route> existingRoutes = routeRepository.findWithStopsByRouteDate(date).stream()
+                .filter(route -> vehicleIds.contains(route.getVehicle().getId()))
+                .collect(Collectors.toList());
+        List<Job> jobs = existingRoutes.stream()
+                .flatMap(route -> route.getStops().stream())
+                .map(RouteStop::getJob)
+                .distinct()
+                .collect(Collectors.toList());
 
-        return routeRepository.saveAll(convertSolutionToRoutes(solution, date));
+        VehicleRoutingSolution problem = createRoutingProblem(vehicles, jobs, date);
+        seedFromExistingRoutes(problem, existingRoutes, true);
+        vehicleRoutingPlanner.initializeShadowVariables(problem);
+        return problem;
+    }
+
+    /**
+     * Locations of the jobs on a date's current routes: the customers a real-time solve of that date starts with
+     */
+    public List<Location> getRoutedLocations(LocalDate date) {
+        return routeRepository.findWithStopsByRouteDate(date).stream()
+                .flatMap(route -> route.getStops().stream())
+                .map(stop -> new Location(stop.getJob().getLatitude(), stop.getJob().getLongitude()))
+                .collect(Collectors.toList());
     }
 
     /**
-     * Add emergency job to existing routes
+     * Save a re-planned day over the vehicles' current routes, keeping what crews already recorded
      */
-    public Route handleEmergencyJob(Job emergencyJob) {
-        LocalDate jobDate = emergencyJob.getPreferredStartTime().toLocalDate();
+    public List<Route> replaceOptimizedRoutes(VehicleRoutingSolution solution, LocalDate date) {
+        List<Long> vehicleIds = solution.getVehicles().stream()
+                .map(OptimizationVehicle::getId)
+                .collect(Collectors.toList());
+        return saveOptimizedRoutes(solution, date, routeRepository.findWithStopsByRouteDateAndVehicleIds(date, vehicleIds));
+    }
 
-        // Find best vehicle based on proximity and availability
-        Vehicle bestVehicle = findBestVehicleForEmergencyJob(emergencyJob, jobDate);
+    /**
+     * Link each vehicle's customers in the order of its current route. When pinning, every stop up
+     * to the last one the crew has started stays fixed, so the pinned stops form the start of the chain.
+     */
+    private void seedFromExistingRoutes(VehicleRoutingSolution problem, List<Route> existingRoutes, boolean pinStarted) {
+        Map<Long, OptimizationVehicle> vehiclesById = problem.getVehicles().stream()
+                .collect(Collectors.toMap(OptimizationVehicle::getId, vehicle -> vehicle));
+        Map<Long, Customer> customersById = problem.getCustomers().stream()
+                .collect(Collectors.toMap(Customer::getId, customer -> customer));
+
+        for (Route route : existingRoutes) {
+            OptimizationVehicle vehicle = vehiclesById.get(route.getVehicle().getId());
+            if (vehicle == null) continue;
 
-        if (bestVehicle == null) {
-            throw new RuntimeException("No available vehicle for emergency job");
-        }
+            int lastStartedStop = -1;
+            for (int i = 0; i < route.getStops().size(); i++) {
+                if (isStarted(route.getStops().get(i))) {
+                    lastStartedStop = i;
+                }
+            }
 
-        // Get existing route or create new one
-        Route route = routeRepository.findByVehicleIdAndRouteDate(bestVehicle.getId(), jobDate)
-                .orElse(new Route(jobDate, bestVehicle));
+            Standstill previous = vehicle;
+            for (int i = 0; i < route.getStops().size(); i++) {
+                Customer customer = customersById.get(route.getStops().get(i).getJob().getId());
+                customer.setPreviousStandstill(previous);
+                customer.setPinned(pinStarted && i <= lastStartedStop);
+                previous = customer;
+            }
+        }
+    }
 
-        // Insert emergency job optimally
-        insertEmergencyJobIntoRoute(route, emergencyJob);
+    /**
+     * When the crew leaves a stop whose times are kept: as recorded, else as last estimated
+     */
+    private LocalDateTime departureOf(RouteStop stop, LocalDateTime previousDeparture, Job job) {
+        if (stop.getActualDepartureTime() != null) return stop.getActualDepartureTime();
+        if (stop.getActualArrivalTime() != null) {
+            return stop.getActualArrivalTime().plusMinutes(job.getEstimatedDurationMinutes());
+        }
+        if (stop.getEstimatedDepartureTime() != null) return stop.getEstimatedDepartureTime();
+        return previousDeparture.plusMinutes(job.getEstimatedDurationMinutes());
+    }
 
-        return routeRepository.save(route);
+    private boolean isStarted(RouteStop stop) {
+        JobStatus status = stop.getJob().getStatus();
+        return stop.getActualArrivalTime() != null
+                || status == JobStatus.IN_PROGRESS
+                || status == JobStatus.COMPLETED;
     }
 
     private List<Vehicle> getAvailableVehicles(LocalDate date) {
@@ -195,39 +336,70 @@ public class RouteOptimizationService {
         VehicleRoutingSolution problem = new VehicleRoutingSolution();
 
         // Set depot location (company office)
-        Location depot = new Location(40.7128, -74.0060); // Example: NYC coordinates
+        Location depot = DEPOT;
         problem.setDepot(depot);
 
+        // Set working hours
+        LocalDateTime workStart = date.atTime(WORK_START_TIME);
+        LocalDateTime workEnd = date.atTime(WORK_END_TIME).plusMinutes(MAX_OVERTIME_MINUTES);
+        problem.setWorkingHours(workStart, workEnd);
+
         // Convert vehicles to optimization vehicles
         List<OptimizationVehicle> optimizationVehicles = vehicles.stream()
-                .map(this::convertToOptimizationVehicle)
+                .map(vehicle -> convertToOptimizationVehicle(vehicle, depot, workStart))
                 .collect(Collectors.toList());
         problem.setVehicles(optimizationVehicles);
 
         // Convert jobs to optimization customers
         List<Customer> customers = jobs.stream()
-                .map(this::convertToCustomer)
+                .map(job -> convertToCustomer(job, date))
                 .collect(Collectors.toList());
         problem.setCustomers(customers);
 
-        // Set working hours
-        LocalDateTime workStart = date.atTime(WORK_START_TIME);
-        LocalDateTime workEnd = date.atTime(WORK_END_TIME).plusMinutes(MAX_OVERTIME_MINUTES);
-        problem.setWorkingHours(workStart, workEnd);
+        // Fetch all travel times once, so the solver only does array lookups
+        TravelTimes travelMatrix = buildTravelMatrix(depot, customers, workStart);
+        problem.setTravelMatrix(travelMatrix);
+        optimizationVehicles.forEach(vehicle -> {
+            vehicle.setLocationIndex(0);
+            vehicle.setTravelMatrix(travelMatrix);
+        });
+        for (int i = 0; i < customers.size(); i++) {
+            customers.get(i).setLocationIndex(i + 1);
+            customers.get(i).setTravelMatrix(travelMatrix);
+        }
 
         return problem;
     }
 
-    private OptimizationVehicle convertToOptimizationVehicle(Vehicle vehicle) {
+    /**
+     * Full travel matrix, or for very large problems a sparse graph of each location's nearest neighbours
+     */
+    private TravelTimes buildTravelMatrix(Location depot, List<Customer> customers, LocalDateTime departureTime) {
+        Location[] locations = new Location[customers.size() + 1];
+        locations[0] = depot;
+        for (int i = 0; i < customers.size(); i++) {
+            locations[i + 1] = customers.get(i).getLocation();
+        }
+
+        if (sparseTravelThreshold > 0 && locations.length > sparseTravelThreshold) {
+            return SparseTravelGraph.build(locations, sparseTravelNeighbours, googleMapsService, departureTime);
+        }
+        return TravelTimeMatrix.of(googleMapsService.getTravelMatrix(locations, locations, departureTime), locations);
+    }
+
+    private OptimizationVehicle convertToOptimizationVehicle(Vehicle vehicle, Location depot, LocalDateTime departureTime) {
         OptimizationVehicle optVehicle = new OptimizationVehicle();
+        optVehicle.setDepot(depot);
+        optVehicle.setDepartureTime(departureTime);
         optVehicle.setId(vehicle.getId());
         optVehicle.setCapacity(vehicle.getMaxCrewSize());
-        optVehicle.setCapabilities(vehicle.getCapabilities());
+        // Copy out of the lazy collection; the solver reads it after the transaction has closed
+        optVehicle.setCapabilities(vehicle.getCapabilities() != null ? new HashSet<>(vehicle.getCapabilities()) : null);
         optVehicle.setFuelEfficiency(vehicle.getFuelEfficiency());
         return optVehicle;
     }
 
-    private Customer convertToCustomer(Job job) {
+    Customer convertToCustomer(Job job, LocalDate date) {
         Customer customer = new Customer();
         customer.setId(job.getId());
         customer.setLocation(new Location(job.getLatitude(), job.getLongitude()));
@@ -238,61 +410,132 @@ public class RouteOptimizationService {
         customer.setTimeWindow(job.getEarliestStartTime(), job.getLatestStartTime());
         customer.setPreferredTime(job.getPreferredStartTime());
         customer.setQuoteValue(job.getQuoteAmount());
+
+        // Solver works in minutes since midnight of the route date
+        customer.setReadyMinute(toPlanningMinute(job.getEarliestStartTime(), date));
+        customer.setDueMinute(toPlanningMinute(job.getLatestStartTime(), date));
+        customer.setPreferredMinute(toPlanningMinute(job.getPreferredStartTime(), date));
         return customer;
     }
 
-    private List<Route> convertSolutionToRoutes(VehicleRoutingSolution solution, LocalDate date) {
-        List<Route> routes = new ArrayList<>();
+    private Integer toPlanningMinute(LocalDateTime time, LocalDate date) {
+        if (time == null) return null;
+        return (int) java.time.Duration.between(date.atStartOfDay(), time).toMinutes();
+    }
+
+    private List<Route> convertSolutionToRoutes(VehicleRoutingSolution solution, LocalDate date,
+                                                Map<Long, Route> existingRoutesByVehicle,
+                                                Map<Long, RouteStop> existingStopsByJob) {
+        // First pass: the jobs of every route and every leg between consecutive stops, so all
+        // travel times can be fetched in one batch instead of one request per stop
+        Map<OptimizationVehicle, List<Job>> routeJobs = new LinkedHashMap<>();
+        Map<OptimizationVehicle, Vehicle> routeVehicles = new HashMap<>();
+        List<TravelLeg> legs = new ArrayList<>();
+
+        // Every vehicle and job of the solution in one query each, instead of a lookup per stop
+        Map<Long, Vehicle> vehiclesById = loadVehicles(solution.getVehicles().stream()
+                .filter(optVehicle -> !optVehicle.getCustomers().isEmpty())
+                .map(OptimizationVehicle::getId)
+                .collect(Collectors.toList()));
+        Map<Long, Job> jobsById = loadJobs(solution.getCustomers().stream()
+                .map(Customer::getId)
+                .collect(Collectors.toList()));
 
         for (OptimizationVehicle optVehicle : solution.getVehicles()) {
-            if (optVehicle.getCustomers().isEmpty()) continue;
+            List<Customer> customers = optVehicle.getCustomers();
+            if (customers.isEmpty()) continue;
 
-            Vehicle vehicle = vehicleRepository.findById(optVehicle.getId()).orElse(null);
+            Vehicle vehicle = vehiclesById.get(optVehicle.getId());
             if (vehicle == null) continue;
 
-            Route route = new Route(date, vehicle);
-            route.setStartTime(date.atTime(WORK_START_TIME));
+            List<Job> jobs = new ArrayList<>();
+            LocalDateTime departureTime = date.atTime(WORK_START_TIME);
+            Location previousLocation = solution.getDepot();
+
+            for (Customer customer : customers) {
+                Job job = jobsById.get(customer.getId());
+                jobs.add(job);
+                if (job == null) continue;
+
+                // The solver's schedule is close enough to pick the traffic hour of each leg
+                legs.add(new TravelLeg(previousLocation, customer.getLocation(), departureTime));
+                if (customer.getDepartureMinute() != null) {
+                    departureTime = date.atStartOfDay().plusMinutes(customer.getDepartureMinute());
+                }
+                previousLocation = customer.getLocation();
+            }
+            legs.add(new TravelLeg(previousLocation, solution.getDepot(), departureTime));
+
+            routeJobs.put(optVehicle, jobs);
+            routeVehicles.put(optVehicle, vehicle);
+        }
+
+        List<TravelInfo> travelInfos = googleMapsService.getTravelInfos(legs);
+
+        // Second pass: build the routes from the fetched legs, in the same order
+        List<Route> routes = new ArrayList<>();
+        List<Job> assignedJobs = new ArrayList<>();
+        int legIndex = 0;
+
+        for (Map.Entry<OptimizationVehicle, List<Job>> entry : routeJobs.entrySet()) {
+            Vehicle vehicle = routeVehicles.get(entry.getKey());
+            List<Customer> customers = entry.getKey().getCustomers();
+            List<Job> jobs = entry.getValue();
+
+            Route route = existingRoutesByVehicle.get(vehicle.getId());
+            if (route == null) {
+                route = new Route(date, vehicle);
+            }
+            if (route.getStartTime() == null) {
+                route.setStartTime(date.atTime(WORK_START_TIME));
+            }
 
             List<RouteStop> stops = new ArrayList<>();
             LocalDateTime currentTime = route.getStartTime();
-            Location previousLocation = solution.getDepot();
             double totalDistance = 0;
 
-            for (int i = 0; i < optVehicle.getCustomers().size(); i++) {
-                Customer customer = optVehicle.getCustomers().get(i);
-                Job job = jobRepository.findById(customer.getId()).orElse(null);
+            for (int i = 0; i < jobs.size(); i++) {
+                Job job = jobs.get(i);
                 if (job == null) continue;
 
                 // Calculate travel time and distance
-                Location currentLocation = customer.getLocation();
-                TravelInfo travelInfo = googleMapsService.getTravelInfo(
-                        previousLocation, currentLocation, currentTime);
-
-                currentTime = currentTime.plusMinutes(travelInfo.getDurationMinutes());
+                TravelInfo travelInfo = travelInfos.get(legIndex++);
                 totalDistance += travelInfo.getDistanceKm();
 
-                // Create route stop
-                RouteStop stop = new RouteStop(route, job, i + 1);
+                // Reuse the job's existing stop, which may come from another route of the date
+                RouteStop stop = existingStopsByJob.remove(job.getId());
+                boolean fixed = stop != null && (customers.get(i).isPinned() || isStarted(stop));
+                if (stop == null) {
+                    stop = new RouteStop(route, job, i + 1);
+                } else {
+                    stop.setRoute(route);
+                    stop.setSequenceNumber(i + 1);
+                }
+                stops.add(stop);
+                job.setAssignedVehicleId(vehicle.getId());
+                assignedJobs.add(job);
+
+                if (fixed) {
+                    // Started, done or pinned: the stop's times and the job's schedule stay as they are
+                    currentTime = departureOf(stop, currentTime, job);
+                    continue;
+                }
+
+                currentTime = currentTime.plusMinutes(travelInfo.getDurationMinutes());
                 stop.setEstimatedArrivalTime(currentTime);
                 stop.setEstimatedDepartureTime(currentTime.plusMinutes(job.getEstimatedDurationMinutes()));
                 stop.setDistanceFromPreviousKm(travelInfo.getDistanceKm());
                 stop.setTravelTimeFromPreviousMinutes(travelInfo.getDurationMinutes());
 
-                stops.add(stop);
-
                 // Update job assignment
-                job.setAssignedVehicleId(vehicle.getId());
                 job.setScheduledStartTime(currentTime);
-                jobRepository.save(job);
 
                 // Update for next iteration
                 currentTime = stop.getEstimatedDepartureTime();
-                previousLocation = currentLocation;
             }
 
             // Calculate return to depot
-            TravelInfo returnTravel = googleMapsService.getTravelInfo(
-                    previousLocation, solution.getDepot(), currentTime);
+            TravelInfo returnTravel = travelInfos.get(legIndex++);
             currentTime = currentTime.plusMinutes(returnTravel.getDurationMinutes());
             totalDistance += returnTravel.getDistanceKm();
 
@@ -305,162 +548,19 @@ public class RouteOptimizationService {
             routes.add(route);
         }
 
+        // The jobs are managed entities; the updates are written in one flush with the routes
+        jobRepository.saveAll(assignedJobs);
         return routes;
     }
 
-    private Vehicle findBestVehicleForEmergencyJob(Job emergencyJob, LocalDate date) {
-        List<Vehicle> availableVehicles = getAvailableVehicles(date);
-
-        return availableVehicles.stream()
-                .filter(vehicle -> canHandleServiceType(vehicle, emergencyJob.getServiceType()))
-                .filter(vehicle -> vehicle.getMaxCrewSize() >= emergencyJob.getRequiredCrewSize())
-                .min((v1, v2) -> {
-                    // Find vehicle with route closest to emergency job location
-                    double distance1 = getMinDistanceToExistingRoute(v1, emergencyJob, date);
-                    double distance2 = getMinDistanceToExistingRoute(v2, emergencyJob, date);
-                    return Double.compare(distance1, distance2);
-                })
-                .orElse(null);
-    }
-
-    private boolean canHandleServiceType(Vehicle vehicle, ServiceType serviceType) {
-        return vehicle.getCapabilities() == null ||
-                vehicle.getCapabilities().isEmpty() ||
-                vehicle.getCapabilities().contains(serviceType);
+    private Map<Long, Vehicle> loadVehicles(Collection<Long> vehicleIds) {
+        return vehicleRepository.findAllById(vehicleIds).stream()
+                .collect(Collectors.toMap(Vehicle::getId, vehicle -> vehicle));
     }
 
-    private double getMinDistanceToExistingRoute(Vehicle vehicle, Job emergencyJob, LocalDate date) {
-        Optional<Route> routeOpt = routeRepository.findByVehicleIdAndRouteDate(vehicle.getId(), date);
-        if (routeOpt.isEmpty()) {
-            return 0; // No existing route, so distance is minimal
-        }
-
-        Route route = routeOpt.get();
-        return route.getStops().stream()
-                .mapToDouble(stop -> calculateDistance(
-                        stop.getJob().getLatitude(), stop.getJob().getLongitude(),
-                        emergencyJob.getLatitude(), emergencyJob.getLongitude()))
-                .min()
-                .orElse(Double.MAX_VALUE);
-    }
-
-    private void insertEmergencyJobIntoRoute(Route route, Job emergencyJob) {
-        if (route.getStops().isEmpty()) {
-            // First job in route
-            RouteStop stop = new RouteStop(route, emergencyJob, 1);
-            stop.setEstimatedArrivalTime(route.getStartTime());
-            stop.setEstimatedDepartureTime(route.getStartTime().plusMinutes(emergencyJob.getEstimatedDurationMinutes()));
-            route.getStops().add(stop);
-        } else {
-            // Find best insertion point
-            int bestPosition = findBestInsertionPosition(route, emergencyJob);
-            insertJobAtPosition(route, emergencyJob, bestPosition);
-        }
-
-        // Recalculate all timings
-        recalculateRouteTiming(route);
-    }
-
-    private int findBestInsertionPosition(Route route, Job emergencyJob) {
-        double minCostIncrease = Double.MAX_VALUE;
-        int bestPosition = 0;
-
-        for (int i = 0; i <= route.getStops().size(); i++) {
-            double costIncrease = calculateInsertionCost(route, emergencyJob, i);
-            if (costIncrease < minCostIncrease) {
-                minCostIncrease = costIncrease;
-                bestPosition = i;
-            }
-        }
-
-        return bestPosition;
-    }
-
-    private double calculateInsertionCost(Route route, Job newJob, int position) {
-        Location newLocation = new Location(newJob.getLatitude(), newJob.getLongitude());
-
-        if (position == 0) {
-            // Insert at beginning
-            if (route.getStops().isEmpty()) return 0;
-
-            Location nextLocation = new Location(
-                    route.getStops().get(0).getJob().getLatitude(),
-                    route.getStops().get(0).getJob().getLongitude());
-
-            return calculateDistance(newLocation, nextLocation);
-        } else if (position == route.getStops().size()) {
-            // Insert at end
-            Location prevLocation = new Location(
-                    route.getStops().get(position - 1).getJob().getLatitude(),
-                    route.getStops().get(position - 1).getJob().getLongitude());
-
-            return calculateDistance(prevLocation, newLocation);
-        } else {
-            // Insert in middle
-            Location prevLocation = new Location(
-                    route.getStops().get(position - 1).getJob().getLatitude(),
-                    route.getStops().get(position - 1).getJob().getLongitude());
-            Location nextLocation = new Location(
-                    route.getStops().get(position).getJob().getLatitude(),
-                    route.getStops().get(position).getJob().getLongitude());
-
-            double originalDistance = calculateDistance(prevLocation, nextLocation);
-            double newDistance = calculateDistance(prevLocation, newLocation) +
-                    calculateDistance(newLocation, nextLocation);
-
-            return newDistance - originalDistance;
-        }
-    }
-
-    private void insertJobAtPosition(Route route, Job job, int position) {
-        RouteStop newStop = new RouteStop(route, job, position + 1);
-        route.getStops().add(position, newStop);
-
-        // Update sequence numbers
-        for (int i = position + 1; i < route.getStops().size(); i++) {
-            route.getStops().get(i).setSequenceNumber(i + 1);
-        }
-    }
-
-    private void recalculateRouteTiming(Route route) {
-        if (route.getStops().isEmpty()) return;
-
-        LocalDateTime currentTime = route.getStartTime();
-        Location depot = new Location(40.7128, -74.0060); // Company depot
-        Location previousLocation = depot;
-        double totalDistance = 0;
-
-        for (RouteStop stop : route.getStops()) {
-            Job job = stop.getJob();
-            Location currentLocation = new Location(job.getLatitude(), job.getLongitude());
-
-            // Get travel info from Google Maps
-            TravelInfo travelInfo = googleMapsService.getTravelInfo(
-                    previousLocation, currentLocation, currentTime);
-
-            currentTime = currentTime.plusMinutes(travelInfo.getDurationMinutes());
-            totalDistance += travelInfo.getDistanceKm();
-
-            stop.setEstimatedArrivalTime(currentTime);
-            stop.setEstimatedDepartureTime(currentTime.plusMinutes(job.getEstimatedDurationMinutes()));
-            stop.setDistanceFromPreviousKm(travelInfo.getDistanceKm());
-            stop.setTravelTimeFromPreviousMinutes(travelInfo.getDurationMinutes());
-
-            currentTime = stop.getEstimatedDepartureTime();
-            previousLocation = currentLocation;
-        }
-
-        // Calculate return to depot
-        TravelInfo returnTravel = googleMapsService.getTravelInfo(previousLocation, depot, currentTime);
-        currentTime = currentTime.plusMinutes(returnTravel.getDurationMinutes());
-        totalDistance += returnTravel.getDistanceKm();
-
-        route.setEndTime(currentTime);
-        route.setTotalDistanceKm(totalDistance);
-        route.setTotalDurationMinutes(
-                (int) java.time.Duration.between(route.getStartTime(), route.getEndTime()).toMinutes());
-        route.setEstimatedFuelCost(
-                calculateFuelCost(totalDistance, route.getVehicle().getFuelEfficiency()));
+    private Map<Long, Job> loadJobs(Collection<Long> jobIds) {
+        return jobRepository.findAllById(jobIds).stream()
+                .collect(Collectors.toMap(Job::getId, job -> job));
     }
 
     private double calculateFuelCost(double distanceKm, Double fuelEfficiency) {
@@ -475,25 +575,6 @@ public class RouteOptimizationService {
         return gallonsUsed * fuelPricePerGallon;
     }
 
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        return calculateDistance(new Location(lat1, lon1), new Location(lat2, lon2));
-    }
-
-    private double calculateDistance(Location loc1, Location loc2) {
-        // Haversine formula for calculating distance between two points on Earth
-        final int R = 6371; // Radius of the earth in km
-
-        double latDistance = Math.toRadians(loc2.getLatitude() - loc1.getLatitude());
-        double lonDistance = Math.toRadians(loc2.getLongitude() - loc1.getLongitude());
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(loc1.getLatitude())) * Math.cos(Math.toRadians(loc2.getLatitude()))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        double distance = R * c; // Distance in km
-
-        return distance;
-    }
-
     // Helper classes for optimization
     public static class Location {
         private double latitude;
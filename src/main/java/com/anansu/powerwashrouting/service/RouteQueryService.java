@@ -0,0 +1,46 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.db.RouteRepository;
+import com.anansu.powerwashrouting.dto.RouteDetails;
+import com.anansu.powerwashrouting.dto.RouteSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Read side of the saved routes for the API and dashboard. Each call loads what it returns in a
+ * fixed number of queries (routes, vehicles, stops and jobs fetched together, or just the summary
+ * columns) and hands out plain objects, so serializing a response never touches lazy associations.
+ */
+@Service
+@Transactional(readOnly = true)
+public class RouteQueryService {
+
+    @Autowired
+    private RouteRepository routeRepository;
+
+    /**
+     * All routes of a date with their stops
+     */
+    public List<RouteDetails> getRoutes(LocalDate date) {
+        return routeRepository.findWithStopsByRouteDate(date).stream()
+                .map(RouteDetails::new)
+                .collect(Collectors.toList());
+    }
+
+    public Optional<RouteDetails> getRoute(Long vehicleId, LocalDate date) {
+        return routeRepository.findWithStopsByVehicleIdAndRouteDate(vehicleId, date).map(RouteDetails::new);
+    }
+
+    /**
+     * One line per route of a date, without loading the stops
+     */
+    public List<RouteSummary> getRouteSummaries(LocalDate date) {
+        return routeRepository.findSummariesByRouteDate(date);
+    }
+}
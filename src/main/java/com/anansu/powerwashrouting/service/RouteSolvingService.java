@@ -0,0 +1,498 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.model.Job;
+import com.anansu.powerwashrouting.model.Route;
+import com.anansu.powerwashrouting.service.GoogleMapsService.TravelLeg;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import jakarta.annotation.PreDestroy;
+import org.optaplanner.core.api.solver.SolverManager;
+import org.optaplanner.core.api.solver.SolverStatus;
+import org.optaplanner.core.api.solver.change.ProblemChange;
+import org.optaplanner.core.config.solver.SolverManagerConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Runs route optimizations in the background on a {@link SolverManager}, so several dates
+ * can be solved at once without tying up request threads. Each solve is tracked by a
+ * problem ID; the best solution found so far can be read while solving and the final
+ * best solution is saved as routes when the solver terminates.
+ *
+ * Emergency jobs use real-time planning: they are added to a running solve for their date as
+ * a problem change, or to a short solve started from that date's current routes.
+ */
+@Service
+public class RouteSolvingService {
+
+    private static final Duration FINISHED_JOB_RETENTION = Duration.ofHours(24);
+
+    @Autowired
+    private RouteOptimizationService routeOptimizationService;
+
+    @Autowired
+    private RouteEventService routeEventService;
+
+    @Autowired
+    private GoogleMapsService googleMapsService;
+
+    private final SolverManager<VehicleRoutingSolution, UUID> solverManager;
+    // Solves that start from existing routes, configured to stop soon after they converge
+    private final SolverManager<VehicleRoutingSolution, UUID> realTimeSolverManager;
+    private final Map<UUID, SolveJob> solveJobs = new ConcurrentHashMap<>();
+    // How long an emergency request waits for the solver to place its job before it returns
+    private final Duration emergencyPlacementTimeout;
+
+    public RouteSolvingService(VehicleRoutingPlanner vehicleRoutingPlanner,
+                               @Value("${routing.optimization.parallel-solver-count:AUTO}") String parallelSolverCount,
+                               @Value("${routing.optimization.emergency-placement-timeout-seconds:5}") long emergencyPlacementTimeoutSeconds) {
+        this.emergencyPlacementTimeout = Duration.ofSeconds(emergencyPlacementTimeoutSeconds);
+        this.solverManager = SolverManager.create(vehicleRoutingPlanner.getSolverFactory(),
+                new SolverManagerConfig().withParallelSolverCount(parallelSolverCount));
+        this.realTimeSolverManager = SolverManager.create(vehicleRoutingPlanner.getWarmStartSolverFactory(),
+                new SolverManagerConfig().withParallelSolverCount(parallelSolverCount));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        solverManager.close();
+        realTimeSolverManager.close();
+    }
+
+    /**
+     * Start optimizing routes for a date. If that date is already being solved,
+     * the running solve is returned instead of starting a second one.
+     */
+    public synchronized SolveStatus startSolving(LocalDate date) {
+        removeExpiredJobs();
+
+        Optional<SolveJob> activeJob = findActiveJob(date);
+        if (activeJob.isPresent()) {
+            return toStatus(activeJob.get());
+        }
+
+        SolveJob job = new SolveJob(UUID.randomUUID(), date, false);
+        solveJobs.put(job.problemId, job);
+
+        solverManager.solveAndListen(job.problemId,
+                problemId -> routeOptimizationService.createRoutingProblem(date),
+                solution -> updateBestSolution(job, solution),
+                solution -> saveRoutes(job, solution),
+                (problemId, throwable) -> failJob(job, throwable));
+
+        SolveStatus status = toStatus(job);
+        routeEventService.publishSolveStatus(status);
+        return status;
+    }
+
+    /**
+     * Insert an emergency job into its route day without starting over. The job is handed to the
+     * solver as a problem change, so the solver keeps its current plan, fits the job in and
+     * re-converges. Waits at most a few seconds for a best solution that contains the job and
+     * returns where it was placed; the solve keeps improving the day in the background, and its
+     * progress and saved routes are reported through the solve status and the dashboard events.
+     */
+    public EmergencyPlacement handleEmergencyJob(Job emergencyJob) {
+        LocalDate date = emergencyJob.getPreferredStartTime().toLocalDate();
+        Long jobId = emergencyJob.getId();
+        // Fetched here, so the problem change finds the job's travel in the cache while the solver is paused
+        warmTravelCache(date, new Location(emergencyJob.getLatitude(), emergencyJob.getLongitude()));
+
+        // A solve can finish just before it takes the change; the second attempt starts a fresh one
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Customer customer = routeOptimizationService.convertToCustomer(emergencyJob, date);
+            CompletableFuture<PlannedRoute> placement = new CompletableFuture<>();
+            SolveJob job = addProblemChange(date, new AddCustomerProblemChange(customer, googleMapsService),
+                    solution -> findPlannedRoute(date, solution, jobId).ifPresent(placement::complete));
+
+            try {
+                CompletableFuture.anyOf(placement, job.result).get(emergencyPlacementTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Not placed yet; the caller follows the solve instead
+                return new EmergencyPlacement(jobId, toStatus(job), null);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Emergency job insertion failed: " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new EmergencyPlacement(jobId, toStatus(job), null);
+            }
+
+            // The listeners see the final solution before the solve completes, so a placed job is always seen
+            if (placement.isDone()) {
+                return new EmergencyPlacement(jobId, toStatus(job), placement.join());
+            }
+        }
+        throw new RuntimeException("No available vehicle for emergency job");
+    }
+
+    /**
+     * Fetch travel between a new location and the depot and every stop of its date into the travel
+     * cache, with the departure time the date's problem uses
+     */
+    private void warmTravelCache(LocalDate date, Location location) {
+        VehicleRoutingSolution best = findActiveJob(date).map(job -> job.bestSolution).orElse(null);
+        List<Location> stops = best != null
+                ? best.getCustomers().stream().map(Customer::getLocation).collect(Collectors.toList())
+                : routeOptimizationService.getRoutedLocations(date);
+
+        LocalDateTime departureTime = date.atTime(RouteOptimizationService.WORK_START_TIME);
+        List<TravelLeg> legs = new ArrayList<>();
+        legs.add(new TravelLeg(RouteOptimizationService.DEPOT, location, departureTime));
+        legs.add(new TravelLeg(location, RouteOptimizationService.DEPOT, departureTime));
+        for (Location stop : stops) {
+            legs.add(new TravelLeg(stop, location, departureTime));
+            legs.add(new TravelLeg(location, stop, departureTime));
+        }
+        googleMapsService.getTravelInfos(legs);
+    }
+
+    /**
+     * Hand a problem change to the date's running solve, or to a new real-time solve. The listener
+     * is called with every best solution of the solve that takes the change, including the final one.
+     */
+    private synchronized SolveJob addProblemChange(LocalDate date, ProblemChange<VehicleRoutingSolution> problemChange,
+                                                   Consumer<VehicleRoutingSolution> bestSolutionListener) {
+        removeExpiredJobs();
+
+        Optional<SolveJob> activeJob = findActiveJob(date);
+        SolveJob job = activeJob.filter(active -> active.state != SolveState.SAVING)
+                .orElseGet(() -> startRealTimeSolving(date, activeJob.orElse(null)));
+        job.bestSolutionListeners.add(bestSolutionListener);
+        try {
+            solverManager(job).addProblemChange(job.problemId, problemChange);
+        } catch (IllegalStateException e) {
+            // The solver stopped in the meantime; continue from the routes it is saving
+            job.bestSolutionListeners.remove(bestSolutionListener);
+            job = startRealTimeSolving(date, job);
+            job.bestSolutionListeners.add(bestSolutionListener);
+            solverManager(job).addProblemChange(job.problemId, problemChange);
+        }
+        return job;
+    }
+
+    /**
+     * The planned route of the vehicle a job is on, if the solution has placed it
+     */
+    private Optional<PlannedRoute> findPlannedRoute(LocalDate date, VehicleRoutingSolution solution, Long jobId) {
+        return solution.getVehicles().stream()
+                .filter(vehicle -> vehicle.getCustomers().stream().anyMatch(planned -> planned.getId().equals(jobId)))
+                .findFirst()
+                .map(vehicle -> toPlannedRoute(date.atStartOfDay(), vehicle));
+    }
+
+    /**
+     * Start a real-time solve from the current routes of a date. If an earlier solve of that date is
+     * still saving, its routes are waited for first, so they are the ones the new solve starts from.
+     */
+    private SolveJob startRealTimeSolving(LocalDate date, SolveJob previousJob) {
+        SolveJob job = new SolveJob(UUID.randomUUID(), date, true);
+        solveJobs.put(job.problemId, job);
+
+        realTimeSolverManager.solveAndListen(job.problemId,
+                problemId -> {
+                    if (previousJob != null) {
+                        previousJob.result.handle((solution, throwable) -> solution).join();
+                    }
+                    return routeOptimizationService.createRealTimeProblem(date);
+                },
+                solution -> updateBestSolution(job, solution),
+                solution -> saveRoutes(job, solution),
+                (problemId, throwable) -> failJob(job, throwable));
+
+        routeEventService.publishSolveStatus(toStatus(job));
+        return job;
+    }
+
+    public Optional<SolveStatus> getStatus(UUID problemId) {
+        return Optional.ofNullable(solveJobs.get(problemId)).map(this::toStatus);
+    }
+
+    /**
+     * Best solution found so far, as planned stops per vehicle
+     */
+    public Optional<SolvePlan> getBestPlan(UUID problemId) {
+        SolveJob job = solveJobs.get(problemId);
+        if (job == null || job.bestSolution == null) {
+            return Optional.empty();
+        }
+        return Optional.of(toPlan(job, job.bestSolution));
+    }
+
+    /**
+     * Stop solving now; the best solution found so far is still saved as routes
+     */
+    public Optional<SolveStatus> terminateEarly(UUID problemId) {
+        SolveJob job = solveJobs.get(problemId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (!job.isFinished()) {
+            job.terminatedEarly = true;
+            solverManager(job).terminateEarly(problemId);
+        }
+        return Optional.of(toStatus(job));
+    }
+
+    private void updateBestSolution(SolveJob job, VehicleRoutingSolution solution) {
+        job.bestSolution = solution;
+        job.bestSolutionListeners.forEach(listener -> listener.accept(solution));
+        routeEventService.publishBestSolution(job.problemId, job.date, () -> toPlan(job, solution));
+    }
+
+    private void saveRoutes(SolveJob job, VehicleRoutingSolution solution) {
+        job.bestSolution = solution;
+        job.bestSolutionListeners.forEach(listener -> listener.accept(solution));
+        job.state = SolveState.SAVING;
+        try {
+            List<Route> routes = job.realTime
+                    ? routeOptimizationService.replaceOptimizedRoutes(solution, job.date)
+                    : routeOptimizationService.saveOptimizedRoutes(solution, job.date);
+            job.routeCount = routes.size();
+            job.state = SolveState.COMPLETED;
+            job.finishedAt = LocalDateTime.now();
+            job.result.complete(solution);
+            routeEventService.publishSolveStatus(toStatus(job));
+        } catch (Exception e) {
+            failJob(job, e);
+        }
+    }
+
+    private void failJob(SolveJob job, Throwable throwable) {
+        System.err.println("Route optimization " + job.problemId + " for " + job.date + " failed: " + throwable.getMessage());
+        job.error = throwable.getMessage();
+        job.state = SolveState.FAILED;
+        job.finishedAt = LocalDateTime.now();
+        job.result.completeExceptionally(throwable);
+        routeEventService.publishSolveStatus(toStatus(job));
+    }
+
+    private Optional<SolveJob> findActiveJob(LocalDate date) {
+        return solveJobs.values().stream()
+                .filter(job -> job.date.equals(date) && !job.isFinished())
+                .findFirst();
+    }
+
+    private SolverManager<VehicleRoutingSolution, UUID> solverManager(SolveJob job) {
+        return job.realTime ? realTimeSolverManager : solverManager;
+    }
+
+    private void removeExpiredJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(FINISHED_JOB_RETENTION);
+        solveJobs.values().removeIf(job -> job.isFinished() && job.finishedAt.isBefore(cutoff));
+    }
+
+    private SolveStatus toStatus(SolveJob job) {
+        SolveState state = job.state;
+        if (state == SolveState.SCHEDULED && solverManager(job).getSolverStatus(job.problemId) == SolverStatus.SOLVING_ACTIVE) {
+            state = SolveState.SOLVING;
+        }
+
+        VehicleRoutingSolution best = job.bestSolution;
+        return new SolveStatus(job.problemId, job.date, state,
+                best != null && best.getScore() != null ? best.getScore().toString() : null,
+                job.terminatedEarly, job.startedAt, job.finishedAt, job.routeCount, job.error);
+    }
+
+    private SolvePlan toPlan(SolveJob job, VehicleRoutingSolution solution) {
+        LocalDateTime midnight = job.date.atStartOfDay();
+        List<PlannedRoute> routes = new ArrayList<>();
+
+        for (OptimizationVehicle vehicle : solution.getVehicles()) {
+            routes.add(toPlannedRoute(midnight, vehicle));
+        }
+
+        return new SolvePlan(job.problemId, job.date,
+                solution.getScore() != null ? solution.getScore().toString() : null, routes);
+    }
+
+    private PlannedRoute toPlannedRoute(LocalDateTime midnight, OptimizationVehicle vehicle) {
+        List<PlannedStop> stops = new ArrayList<>();
+        int sequence = 1;
+        for (Customer customer : vehicle.getCustomers()) {
+            stops.add(new PlannedStop(customer.getId(), sequence++,
+                    toDateTime(midnight, customer.getArrivalMinute()),
+                    toDateTime(midnight, customer.getDepartureMinute())));
+        }
+        return new PlannedRoute(vehicle.getId(), stops);
+    }
+
+    private LocalDateTime toDateTime(LocalDateTime midnight, Integer minute) {
+        return minute != null ? midnight.plusMinutes(minute) : null;
+    }
+
+    /**
+     * Book-keeping for one asynchronous solve
+     */
+    private static class SolveJob {
+        private final UUID problemId;
+        private final LocalDate date;
+        // Started from the current routes, which its result replaces
+        private final boolean realTime;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        // Completed with the saved solution, or exceptionally when the solve fails
+        private final CompletableFuture<VehicleRoutingSolution> result = new CompletableFuture<>();
+        // Waiting for emergency jobs to show up in a best solution
+        private final List<Consumer<VehicleRoutingSolution>> bestSolutionListeners = new CopyOnWriteArrayList<>();
+        private volatile SolveState state = SolveState.SCHEDULED;
+        private volatile VehicleRoutingSolution bestSolution;
+        private volatile boolean terminatedEarly;
+        private volatile LocalDateTime finishedAt;
+        private volatile Integer routeCount;
+        private volatile String error;
+
+        SolveJob(UUID problemId, LocalDate date, boolean realTime) {
+            this.problemId = problemId;
+            this.date = date;
+            this.realTime = realTime;
+        }
+
+        boolean isFinished() {
+            return state == SolveState.COMPLETED || state == SolveState.FAILED;
+        }
+    }
+
+    public enum SolveState {
+        SCHEDULED,
+        SOLVING,
+        SAVING,
+        COMPLETED,
+        FAILED
+    }
+
+    /**
+     * Progress of an asynchronous solve
+     */
+    public static class SolveStatus {
+        private UUID problemId;
+        private LocalDate date;
+        private SolveState state;
+        private String bestScore;
+        private boolean terminatedEarly;
+        private LocalDateTime startedAt;
+        private LocalDateTime finishedAt;
+        private Integer routeCount;
+        private String error;
+
+        public SolveStatus(UUID problemId, LocalDate date, SolveState state, String bestScore,
+                           boolean terminatedEarly, LocalDateTime startedAt, LocalDateTime finishedAt,
+                           Integer routeCount, String error) {
+            this.problemId = problemId;
+            this.date = date;
+            this.state = state;
+            this.bestScore = bestScore;
+            this.terminatedEarly = terminatedEarly;
+            this.startedAt = startedAt;
+            this.finishedAt = finishedAt;
+            this.routeCount = routeCount;
+            this.error = error;
+        }
+
+        // Getters
+        public UUID getProblemId() { return problemId; }
+        public LocalDate getDate() { return date; }
+        public SolveState getState() { return state; }
+        public String getBestScore() { return bestScore; }
+        public boolean isTerminatedEarly() { return terminatedEarly; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public LocalDateTime getFinishedAt() { return finishedAt; }
+        public Integer getRouteCount() { return routeCount; }
+        public String getError() { return error; }
+    }
+
+    /**
+     * Where an emergency job was placed. The route is null when the solver had not placed the job
+     * within the wait; the solve status tells which solve to follow for the outcome.
+     */
+    public static class EmergencyPlacement {
+        private Long jobId;
+        private SolveStatus solve;
+        private PlannedRoute route;
+
+        public EmergencyPlacement(Long jobId, SolveStatus solve, PlannedRoute route) {
+            this.jobId = jobId;
+            this.solve = solve;
+            this.route = route;
+        }
+
+        // Getters
+        public Long getJobId() { return jobId; }
+        public SolveStatus getSolve() { return solve; }
+        public PlannedRoute getRoute() { return route; }
+        public boolean isPlaced() { return route != null; }
+    }
+
+    /**
+     * Snapshot of a (best-so-far) solution, one planned route per vehicle
+     */
+    public static class SolvePlan {
+        private UUID problemId;
+        private LocalDate date;
+        private String score;
+        private List<PlannedRoute> routes;
+
+        public SolvePlan(UUID problemId, LocalDate date, String score, List<PlannedRoute> routes) {
+            this.problemId = problemId;
+            this.date = date;
+            this.score = score;
+            this.routes = routes;
+        }
+
+        // Getters
+        public UUID getProblemId() { return problemId; }
+        public LocalDate getDate() { return date; }
+        public String getScore() { return score; }
+        public List<PlannedRoute> getRoutes() { return routes; }
+    }
+
+    public static class PlannedRoute {
+        private Long vehicleId;
+        private List<PlannedStop> stops;
+
+        public PlannedRoute(Long vehicleId, List<PlannedStop> stops) {
+            this.vehicleId = vehicleId;
+            this.stops = stops;
+        }
+
+        // Getters
+        public Long getVehicleId() { return vehicleId; }
+        public List<PlannedStop> getStops() { return stops; }
+    }
+
+    public static class PlannedStop {
+        private Long jobId;
+        private int sequenceNumber;
+        private LocalDateTime estimatedArrivalTime;
+        private LocalDateTime estimatedDepartureTime;
+
+        public PlannedStop(Long jobId, int sequenceNumber, LocalDateTime estimatedArrivalTime,
+                           LocalDateTime estimatedDepartureTime) {
+            this.jobId = jobId;
+            this.sequenceNumber = sequenceNumber;
+            this.estimatedArrivalTime = estimatedArrivalTime;
+            this.estimatedDepartureTime = estimatedDepartureTime;
+        }
+
+        // Getters
+        public Long getJobId() { return jobId; }
+        public int getSequenceNumber() { return sequenceNumber; }
+        public LocalDateTime getEstimatedArrivalTime() { return estimatedArrivalTime; }
+        public LocalDateTime getEstimatedDepartureTime() { return estimatedDepartureTime; }
+    }
+}
@@ -9,12 +9,14 @@ import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import java.util.Optional;
 import java.math.BigDecimal;
@@ -47,6 +49,15 @@ public class SchedulerService {
     @Autowired
     private WeatherService weatherService;
 
+    @Autowired
+    private RouteEventService routeEventService;
+
+    @Autowired
+    private RouteSolvingService routeSolvingService;
+
+    @Autowired
+    private TravelPrefetchService travelPrefetchService;
+
     private static final LocalTime WORK_START_TIME = LocalTime.of(8, 0);
     private static final LocalTime WORK_END_TIME = LocalTime.of(18, 0);
     private static final int MAX_OVERTIME_MINUTES = 120; // 2 hours
@@ -82,8 +93,11 @@ public class SchedulerService {
      * Schedule estimates for a specific date
      */
     public List<Job> scheduleEstimates(LocalDate date, List<String> addresses) {
+        // Resolve all addresses up front, in parallel and from the geocode cache where possible
+        Map<String, Location> locations = googleMapsService.geocodeAddresses(addresses);
+
         List<Job> estimates = addresses.stream()
-                .map(address -> createEstimateJob(address, date))
+                .map(address -> createEstimateJob(address, locations.get(address), date))
                 .filter(job -> job != null)
                 .collect(Collectors.toList());
 
@@ -101,9 +115,11 @@ public class SchedulerService {
     }
 
     /**
-     * Handle emergency job request
+     * Handle emergency job request. Runs without a surrounding transaction: the job must be
+     * committed before the solver thread plans it and saves its route.
      */
-    public Route scheduleEmergencyJob(String customerId, String address, ServiceType serviceType,
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RouteSolvingService.EmergencyPlacement scheduleEmergencyJob(String customerId, String address, ServiceType serviceType,
                                       LocalDateTime preferredTime) {
 
         // Validate input
@@ -137,8 +153,8 @@ public class SchedulerService {
         // Save job
         emergencyJob = jobRepository.save(emergencyJob);
 
-        // Insert into existing route
-        Route route = routeOptimizationService.handleEmergencyJob(emergencyJob);
+        // Let the solver fit it into the day's routes
+        RouteSolvingService.EmergencyPlacement placement = routeSolvingService.handleEmergencyJob(emergencyJob);
 
         // Notify CRM about emergency job
         try {
@@ -147,7 +163,7 @@ public class SchedulerService {
             System.err.println("Failed to notify CRM about emergency job: " + e.getMessage());
         }
 
-        return route;
+        return placement;
     }
 
     /**
@@ -220,35 +236,39 @@ public class SchedulerService {
      * Get daily schedule for a specific vehicle
      */
     public DailySchedule getDailySchedule(Long vehicleId, LocalDate date) {
-        // Validate vehicle exists
-        Vehicle vehicle = vehicleRepository.findById(vehicleId)
-                .orElseThrow(() -> new RuntimeException("Vehicle not found: " + vehicleId));
-
-        Route route = routeRepository.findByVehicleIdAndRouteDate(vehicleId, date)
+        Route route = routeRepository.findWithStopsByVehicleIdAndRouteDate(vehicleId, date)
                 .orElse(null);
 
         if (route == null) {
+            // Validate vehicle exists
+            Vehicle vehicle = vehicleRepository.findById(vehicleId)
+                    .orElseThrow(() -> new RuntimeException("Vehicle not found: " + vehicleId));
             return new DailySchedule(vehicleId, date, List.of(), vehicle.getLicensePlate());
         }
 
-        List<ScheduleItem> items = route.getStops().stream()
-                .map(this::convertToScheduleItem)
-                .collect(Collectors.toList());
-
-        return new DailySchedule(vehicleId, date, items, vehicle.getLicensePlate());
+        return convertToDailySchedule(route, date);
     }
 
     /**
      * Get all schedules for a specific date
      */
     public List<DailySchedule> getAllSchedulesForDate(LocalDate date) {
-        List<Route> routes = routeRepository.findByRouteDate(date);
+        // Routes, vehicles, stops and jobs in one query
+        List<Route> routes = routeRepository.findWithStopsByRouteDate(date);
 
         return routes.stream()
-                .map(route -> getDailySchedule(route.getVehicle().getId(), date))
+                .map(route -> convertToDailySchedule(route, date))
                 .collect(Collectors.toList());
     }
 
+    private DailySchedule convertToDailySchedule(Route route, LocalDate date) {
+        List<ScheduleItem> items = route.getStops().stream()
+                .map(this::convertToScheduleItem)
+                .collect(Collectors.toList());
+
+        return new DailySchedule(route.getVehicle().getId(), date, items, route.getVehicle().getLicensePlate());
+    }
+
     /**
      * Manually reschedule a specific job
      */
@@ -307,7 +327,8 @@ public class SchedulerService {
     private void importApprovedQuotes() {
         try {
             List<Job> newJobs = crmIntegrationService.fetchApprovedQuotes();
-            jobRepository.saveAll(newJobs);
+            geocodeMissingLocations(newJobs);
+            travelPrefetchService.prefetch(jobRepository.saveAll(newJobs));
             System.out.println("Imported " + newJobs.size() + " new jobs from CRM");
         } catch (Exception e) {
             System.err.println("Error importing approved quotes: " + e.getMessage());
@@ -329,9 +350,31 @@ public class SchedulerService {
         }
     }
 
-    private Job createEstimateJob(String address, LocalDate date) {
+    /**
+     * Fill in coordinates of imported jobs that only have an address, with one batch geocode
+     */
+    private void geocodeMissingLocations(List<Job> jobs) {
+        List<Job> withoutLocation = jobs.stream()
+                .filter(job -> job.getAddress() != null && (job.getLatitude() == null || job.getLongitude() == null))
+                .collect(Collectors.toList());
+        if (withoutLocation.isEmpty()) return;
+
+        Map<String, Location> locations = googleMapsService.geocodeAddresses(
+                withoutLocation.stream().map(Job::getAddress).collect(Collectors.toList()));
+
+        for (Job job : withoutLocation) {
+            Location location = locations.get(job.getAddress());
+            if (location != null) {
+                job.setLatitude(location.getLatitude());
+                job.setLongitude(location.getLongitude());
+            } else {
+                System.err.println("Could not geocode imported job address: " + job.getAddress());
+            }
+        }
+    }
+
+    private Job createEstimateJob(String address, Location location, LocalDate date) {
         try {
-            Location location = googleMapsService.geocodeAddress(address);
             if (location == null) {
                 System.err.println("Could not geocode address: " + address);
                 return null;
@@ -391,7 +434,7 @@ public class SchedulerService {
         job.setAssignedVehicleId(null);
         job.setScheduledStartTime(null);
 
-        jobRepository.save(job);
+        travelPrefetchService.prefetch(jobRepository.save(job));
 
         // Notify CRM about rescheduling
         try {
@@ -454,6 +497,7 @@ public class SchedulerService {
                     stop.setActualArrivalTime(job.getActualStartTime());
                     stop.setActualDepartureTime(completedTime);
                     routeStopRepository.save(stop);
+                    routeEventService.publishRouteChanged(route);
                 }
             }
         } catch (Exception e) {
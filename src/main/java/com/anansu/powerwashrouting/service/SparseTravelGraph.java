@@ -0,0 +1,268 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.GoogleMapsService.TravelLeg;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.TravelInfo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Travel times for problems too large for a full matrix. Travel is fetched exactly only between
+ * each location and its k nearest neighbours (both directions) and between the depot and every
+ * location, so external lookups grow linearly with the number of locations. Every other pair is
+ * estimated from the straight-line distance, calibrated on the fetched pairs.
+ *
+ * Good routes mostly move between nearby stops, which are exactly the pairs that are fetched; the
+ * estimates only need to be good enough to rule out long jumps. Lookups are one probe into an
+ * open-addressing table, or the estimate.
+ */
+public class SparseTravelGraph implements TravelTimes {
+
+    private static final long EMPTY = -1;
+
+    private final Location[] locations;
+    private final GeoKernel points;
+    private final int neighbours;
+
+    // Exact pairs, keyed by from * size + to
+    private final long[] keys;
+    private final int[] minutes;
+    private final int[] meters;
+    private final int mask;
+    private int entries;
+
+    // Estimate for the other pairs: minutes = fixed + perKm * km, meters = detour * straight-line meters
+    private final double fixedMinutes;
+    private final double minutesPerKm;
+    private final double detourFactor;
+
+    private SparseTravelGraph(Location[] locations, GeoKernel points, int neighbours, int capacity,
+                              double fixedMinutes, double minutesPerKm, double detourFactor) {
+        this.locations = locations;
+        this.points = points;
+        this.neighbours = neighbours;
+        int tableSize = Integer.highestOneBit(Math.max(16, capacity * 2 - 1)) << 1;
+        this.keys = new long[tableSize];
+        this.minutes = new int[tableSize];
+        this.meters = new int[tableSize];
+        this.mask = tableSize - 1;
+        Arrays.fill(keys, EMPTY);
+        this.fixedMinutes = fixedMinutes;
+        this.minutesPerKm = minutesPerKm;
+        this.detourFactor = detourFactor;
+    }
+
+    /**
+     * Fetch travel between every location (index 0 is the depot) and its nearest neighbours, and
+     * between the depot and every location, then calibrate the estimate for all other pairs
+     */
+    public static SparseTravelGraph build(Location[] locations, int neighbours, GoogleMapsService googleMapsService,
+                                          LocalDateTime departureTime) {
+        GeoKernel points = GeoKernel.of(locations);
+        Set<Long> pairs = new LinkedHashSet<>();
+        double[] distances = new double[locations.length];
+        for (int i = 0; i < locations.length; i++) {
+            if (i > 0) {
+                pairs.add(key(0, i, locations.length));
+                pairs.add(key(i, 0, locations.length));
+            }
+            for (int j : nearest(points, i, neighbours, distances)) {
+                pairs.add(key(i, j, locations.length));
+                pairs.add(key(j, i, locations.length));
+            }
+        }
+
+        List<Long> pairList = new ArrayList<>(pairs);
+        List<TravelInfo> travelInfos = googleMapsService.getTravelInfos(legs(pairList, locations, departureTime));
+
+        double[] calibration = calibrate(points, pairList, travelInfos, locations.length);
+        SparseTravelGraph graph = new SparseTravelGraph(locations, points, neighbours, pairList.size(),
+                calibration[0], calibration[1], calibration[2]);
+        for (int p = 0; p < pairList.size(); p++) {
+            graph.put(pairList.get(p), travelInfos.get(p));
+        }
+
+        System.out.println("Sparse travel graph over " + locations.length + " locations: " + pairList.size()
+                + " fetched pairs instead of " + (long) locations.length * (locations.length - 1)
+                + String.format(", estimate %.1f min + %.2f min/km, detour %.2f", calibration[0], calibration[1], calibration[2]));
+        return graph;
+    }
+
+    /**
+     * Copy of this graph with one more location at index {@link #getSize()}, with exact travel
+     * between it and its nearest neighbours and the depot. That travel is read from the travel cache
+     * only (estimated where missing), so callers on the solver thread warm the cache first.
+     * Neighbour lists of the existing locations are not revisited, and the estimate keeps its calibration.
+     */
+    public SparseTravelGraph withLocation(Location location, GoogleMapsService googleMapsService,
+                                          LocalDateTime departureTime) {
+        int size = locations.length + 1;
+        Location[] extended = Arrays.copyOf(locations, size);
+        extended[size - 1] = location;
+        GeoKernel extendedPoints = GeoKernel.of(extended);
+
+        List<Long> pairList = new ArrayList<>();
+        int newIndex = size - 1;
+        pairList.add(key(0, newIndex, size));
+        pairList.add(key(newIndex, 0, size));
+        for (int j : nearest(extendedPoints, newIndex, neighbours, new double[size])) {
+            if (j == 0) continue;
+            pairList.add(key(newIndex, j, size));
+            pairList.add(key(j, newIndex, size));
+        }
+        List<TravelInfo> travelInfos = googleMapsService.getCachedTravelInfos(legs(pairList, extended, departureTime));
+
+        SparseTravelGraph graph = new SparseTravelGraph(extended, extendedPoints, neighbours,
+                entries + pairList.size(), fixedMinutes, minutesPerKm, detourFactor);
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == EMPTY) continue;
+            // Re-key for the larger size
+            int from = (int) (keys[slot] / locations.length);
+            int to = (int) (keys[slot] % locations.length);
+            graph.put(key(from, to, size), minutes[slot], meters[slot]);
+        }
+        for (int p = 0; p < pairList.size(); p++) {
+            graph.put(pairList.get(p), travelInfos.get(p));
+        }
+        return graph;
+    }
+
+    @Override
+    public int getSize() { return locations.length; }
+
+    @Override
+    public int getTravelMinutes(int from, int to) {
+        if (from == to) return 0;
+        int slot = find(key(from, to, locations.length));
+        if (slot >= 0) return minutes[slot];
+        return (int) Math.round(fixedMinutes + minutesPerKm * points.distanceMeters(from, to) / 1000);
+    }
+
+    @Override
+    public int getDistanceMeters(int from, int to) {
+        if (from == to) return 0;
+        int slot = find(key(from, to, locations.length));
+        if (slot >= 0) return meters[slot];
+        return (int) Math.round(detourFactor * points.distanceMeters(from, to));
+    }
+
+    /**
+     * Whether travel between the two locations was fetched rather than estimated
+     */
+    public boolean isExact(int from, int to) {
+        return from == to || find(key(from, to, locations.length)) >= 0;
+    }
+
+    public int getExactPairCount() { return entries; }
+
+    private static List<TravelLeg> legs(List<Long> pairs, Location[] locations, LocalDateTime departureTime) {
+        List<TravelLeg> legs = new ArrayList<>(pairs.size());
+        for (long pair : pairs) {
+            legs.add(new TravelLeg(locations[(int) (pair / locations.length)],
+                    locations[(int) (pair % locations.length)], departureTime));
+        }
+        return legs;
+    }
+
+    /**
+     * The k locations closest to {@code from} in a straight line, excluding itself
+     */
+    private static int[] nearest(GeoKernel points, int from, int k, double[] distances) {
+        points.distancesFrom(from, distances);
+        int count = Math.max(0, Math.min(k, points.size() - 1));
+        if (count == 0) return new int[0];
+        int[] best = new int[count];
+        double[] bestDistance = new double[count];
+        int found = 0;
+        for (int j = 0; j < points.size(); j++) {
+            if (j == from) continue;
+            double distance = distances[j];
+            if (found == count && distance >= bestDistance[count - 1]) continue;
+
+            // Insertion into the sorted best list; most candidates are rejected above
+            int position = found < count ? found++ : count - 1;
+            while (position > 0 && bestDistance[position - 1] > distance) {
+                best[position] = best[position - 1];
+                bestDistance[position] = bestDistance[position - 1];
+                position--;
+            }
+            best[position] = j;
+            bestDistance[position] = distance;
+        }
+        return best;
+    }
+
+    /**
+     * {fixed minutes, minutes per km, detour factor} from a least-squares fit over the fetched pairs.
+     * Falls back to 30 km/h in a straight line when there is too little data.
+     */
+    private static double[] calibrate(GeoKernel points, List<Long> pairs, List<TravelInfo> travelInfos, int size) {
+        double sumKm = 0, sumMinutes = 0, sumKmSquared = 0, sumKmMinutes = 0, roadKm = 0;
+        int count = 0;
+        for (int p = 0; p < pairs.size(); p++) {
+            TravelInfo travelInfo = travelInfos.get(p);
+            double km = points.distanceMeters((int) (pairs.get(p) / size), (int) (pairs.get(p) % size)) / 1000;
+            if (travelInfo == null || km < 0.01) continue;
+            sumKm += km;
+            sumMinutes += travelInfo.getDurationMinutes();
+            sumKmSquared += km * km;
+            sumKmMinutes += km * travelInfo.getDurationMinutes();
+            roadKm += travelInfo.getDistanceKm();
+            count++;
+        }
+
+        double variance = count * sumKmSquared - sumKm * sumKm;
+        if (count < 2 || variance <= 0) {
+            return new double[]{0, 2, 1};
+        }
+        double minutesPerKm = (count * sumKmMinutes - sumKm * sumMinutes) / variance;
+        double fixedMinutes = (sumMinutes - minutesPerKm * sumKm) / count;
+        if (minutesPerKm <= 0) {
+            // Nearby pairs alone can't show how time grows with distance; use the average speed
+            minutesPerKm = sumMinutes / sumKm;
+            fixedMinutes = 0;
+        }
+        return new double[]{Math.max(0, fixedMinutes), minutesPerKm, Math.max(1, roadKm / sumKm)};
+    }
+
+    private void put(long key, TravelInfo travelInfo) {
+        if (travelInfo == null) return;
+        put(key, travelInfo.getDurationMinutes(), (int) Math.round(travelInfo.getDistanceKm() * 1000));
+    }
+
+    private void put(long key, int travelMinutes, int distanceMeters) {
+        int slot = hash(key);
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) {
+            entries++;
+        }
+        keys[slot] = key;
+        minutes[slot] = travelMinutes;
+        meters[slot] = distanceMeters;
+    }
+
+    private int find(long key) {
+        int slot = hash(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private static long key(int from, int to, int size) {
+        return (long) from * size + to;
+    }
+}
@@ -0,0 +1,34 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import org.optaplanner.core.api.domain.entity.PlanningEntity;
+import org.optaplanner.core.api.domain.variable.InverseRelationShadowVariable;
+
+/**
+ * A point in a vehicle's chain: either the vehicle itself (leaving the depot) or a customer stop.
+ */
+@PlanningEntity
+public interface Standstill {
+
+    Location getLocation();
+
+    /**
+     * Row/column of this standstill's location in the problem's {@link TravelTimes}
+     */
+    int getLocationIndex();
+
+    /**
+     * The vehicle at the start of this chain, or null if the standstill is not yet assigned
+     */
+    OptimizationVehicle getVehicle();
+
+    /**
+     * Minute of the route day at which the vehicle leaves this standstill, or null if not yet known
+     */
+    Integer getDepartureMinute();
+
+    @InverseRelationShadowVariable(sourceVariableName = "previousStandstill")
+    Customer getNextCustomer();
+
+    void setNextCustomer(Customer nextCustomer);
+}
@@ -0,0 +1,155 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.db.JobRepository;
+import com.anansu.powerwashrouting.model.Job;
+import com.anansu.powerwashrouting.service.GoogleMapsService.TravelLeg;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fetches travel times for new and rescheduled jobs in the background, so route generation finds
+ * them in the travel cache instead of requesting the whole matrix right before crews leave.
+ *
+ * Each job only adds its own row and column: travel between it and the depot and every other
+ * open job whose time window overlaps its own. Jobs prefetched earlier already cover the pairs
+ * among themselves.
+ */
+@Service
+public class TravelPrefetchService {
+
+    // Longest job window prefetched against other jobs; longer windows are cut to this many days
+    private static final int MAX_WINDOW_DAYS = 7;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Autowired
+    private GoogleMapsService googleMapsService;
+
+    private final boolean enabled;
+    private final ExecutorService executor;
+
+    private final AtomicLong queued = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong legs = new AtomicLong();
+
+    public TravelPrefetchService(@Value("${routing.prefetch.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        // One thread: prefetches queue up behind each other and never compete with a solve for API quota
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "travel-prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public void prefetch(Job job) {
+        prefetch(List.of(job));
+    }
+
+    /**
+     * Queue travel time prefetches for saved jobs. Jobs without coordinates or a date are skipped.
+     */
+    public void prefetch(Collection<Job> jobs) {
+        if (!enabled) return;
+
+        for (Job job : jobs) {
+            LocalDateTime windowStart = job.getEarliestStartTime() != null
+                    ? job.getEarliestStartTime() : job.getPreferredStartTime();
+            if (job.getId() == null || job.getLatitude() == null || job.getLongitude() == null || windowStart == null) {
+                continue;
+            }
+            LocalDateTime windowEnd = job.getLatestStartTime() != null && job.getLatestStartTime().isAfter(windowStart)
+                    ? job.getLatestStartTime() : windowStart;
+
+            // Copy what the task needs; the entity may change before it runs
+            Long jobId = job.getId();
+            Location location = new Location(job.getLatitude(), job.getLongitude());
+            LocalDate firstDate = windowStart.toLocalDate();
+            LocalDate lastDate = windowEnd.toLocalDate().isAfter(firstDate.plusDays(MAX_WINDOW_DAYS - 1))
+                    ? firstDate.plusDays(MAX_WINDOW_DAYS - 1) : windowEnd.toLocalDate();
+
+            queued.incrementAndGet();
+            executor.execute(() -> prefetchJob(jobId, location, firstDate, lastDate));
+        }
+    }
+
+    private void prefetchJob(Long jobId, Location location, LocalDate firstDate, LocalDate lastDate) {
+        try {
+            // Same window and departure as the route generation of those dates
+            List<Job> openJobs = jobRepository.findUnassignedJobsForTimeRange(null,
+                    firstDate.atTime(RouteOptimizationService.WORK_START_TIME),
+                    lastDate.atTime(RouteOptimizationService.WORK_END_TIME)
+                            .plusMinutes(RouteOptimizationService.MAX_OVERTIME_MINUTES));
+            LocalDateTime departureTime = firstDate.atTime(RouteOptimizationService.WORK_START_TIME);
+
+            List<TravelLeg> jobLegs = new ArrayList<>();
+            Location depot = RouteOptimizationService.DEPOT;
+            jobLegs.add(new TravelLeg(depot, location, departureTime));
+            jobLegs.add(new TravelLeg(location, depot, departureTime));
+            for (Job other : openJobs) {
+                if (other.getId().equals(jobId) || other.getLatitude() == null || other.getLongitude() == null) {
+                    continue;
+                }
+                Location otherLocation = new Location(other.getLatitude(), other.getLongitude());
+                jobLegs.add(new TravelLeg(location, otherLocation, departureTime));
+                jobLegs.add(new TravelLeg(otherLocation, location, departureTime));
+            }
+
+            // Answers are cached by the maps service; cached legs are not requested again
+            googleMapsService.getTravelInfos(jobLegs);
+            legs.addAndGet(jobLegs.size());
+            completed.incrementAndGet();
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.err.println("Error prefetching travel times for job " + jobId + ": " + e.getMessage());
+        }
+    }
+
+    public PrefetchStats getStats() {
+        long queuedCount = queued.get();
+        return new PrefetchStats(enabled, queuedCount - completed.get() - failed.get(), completed.get(),
+                failed.get(), legs.get());
+    }
+
+    public static class PrefetchStats {
+        private boolean enabled;
+        private long pending;
+        private long completed;
+        private long failed;
+        private long legs;
+
+        public PrefetchStats(boolean enabled, long pending, long completed, long failed, long legs) {
+            this.enabled = enabled;
+            this.pending = pending;
+            this.completed = completed;
+            this.failed = failed;
+            this.legs = legs;
+        }
+
+        // Getters
+        public boolean isEnabled() { return enabled; }
+        public long getPending() { return pending; }
+        public long getCompleted() { return completed; }
+        public long getFailed() { return failed; }
+        public long getLegs() { return legs; }
+    }
+}
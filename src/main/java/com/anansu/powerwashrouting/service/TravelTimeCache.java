@@ -0,0 +1,262 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.db.TravelTimeEntryRepository;
+import com.anansu.powerwashrouting.model.TravelTimeEntry;
+import com.anansu.powerwashrouting.service.GoogleMapsService.TravelLeg;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.TravelInfo;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of travel times from the maps service. Entries are keyed by origin and
+ * destination rounded to a few decimals (nearby addresses share an entry) and by a time-of-day
+ * bucket of the departure, since traffic depends on the hour but not much on the exact minute.
+ *
+ * The memory tier is a bounded LRU map. Behind it, entries are stored in the database, so they
+ * survive restarts; stored entries older than the TTL are fetched again.
+ */
+@Service
+public class TravelTimeCache {
+
+    // Keys per IN query of a bulk lookup
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private final TravelTimeEntryRepository repository;
+    private final TransactionTemplate writeTransaction;
+
+    private final int maxMemoryEntries;
+    private final double coordinateScale;
+    private final int timeBucketMinutes;
+    private final Duration diskTimeToLive;
+
+    private final Map<String, TravelInfo> memory;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public TravelTimeCache(TravelTimeEntryRepository repository,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${routing.travel-cache.memory-max-entries:20000}") int maxMemoryEntries,
+                           @Value("${routing.travel-cache.coordinate-decimals:4}") int coordinateDecimals,
+                           @Value("${routing.travel-cache.time-bucket-minutes:60}") int timeBucketMinutes,
+                           @Value("${routing.travel-cache.disk-ttl-days:30}") int diskTimeToLiveDays) {
+        this.repository = repository;
+        this.maxMemoryEntries = maxMemoryEntries;
+        this.coordinateScale = Math.pow(10, coordinateDecimals);
+        this.timeBucketMinutes = Math.max(1, timeBucketMinutes);
+        this.diskTimeToLive = Duration.ofDays(diskTimeToLiveDays);
+
+        // Cache writes must never roll back (or be rolled back with) the caller's transaction
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        this.memory = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TravelInfo> eldest) {
+                if (size() > TravelTimeCache.this.maxMemoryEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Cached travel info, or null when neither tier has a fresh entry
+     */
+    public TravelInfo get(Location origin, Location destination, LocalDateTime departureTime) {
+        String key = key(origin, destination, departureTime);
+
+        TravelInfo travelInfo;
+        synchronized (memory) {
+            travelInfo = memory.get(key);
+        }
+        if (travelInfo != null) {
+            memoryHits.incrementAndGet();
+            return travelInfo;
+        }
+
+        TravelTimeEntry entry = repository.findByCacheKey(key).orElse(null);
+        if (entry != null && entry.getFetchedAt().isAfter(LocalDateTime.now().minus(diskTimeToLive))) {
+            diskHits.incrementAndGet();
+            travelInfo = new TravelInfo(entry.getDistanceKm(), entry.getDurationMinutes());
+            synchronized (memory) {
+                memory.put(key, travelInfo);
+            }
+            return travelInfo;
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Cached travel info of many legs, in leg order, null where neither tier has a fresh entry.
+     * Memory misses are looked up in the database with one query per batch of keys.
+     */
+    public TravelInfo[] getAll(List<TravelLeg> legs) {
+        TravelInfo[] found = new TravelInfo[legs.size()];
+        Map<String, List<Integer>> missingByKey = new HashMap<>();
+
+        synchronized (memory) {
+            for (int i = 0; i < legs.size(); i++) {
+                TravelLeg leg = legs.get(i);
+                String key = key(leg.getOrigin(), leg.getDestination(), leg.getDepartureTime());
+                found[i] = memory.get(key);
+                if (found[i] != null) {
+                    memoryHits.incrementAndGet();
+                } else {
+                    missingByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+
+        List<String> missingKeys = new ArrayList<>(missingByKey.keySet());
+        for (int start = 0; start < missingKeys.size(); start += LOOKUP_BATCH_SIZE) {
+            List<String> batch = missingKeys.subList(start, Math.min(missingKeys.size(), start + LOOKUP_BATCH_SIZE));
+            for (TravelTimeEntry entry : repository.findByCacheKeyIn(batch)) {
+                if (!entry.getFetchedAt().isAfter(LocalDateTime.now().minus(diskTimeToLive))) continue;
+                TravelInfo travelInfo = new TravelInfo(entry.getDistanceKm(), entry.getDurationMinutes());
+                synchronized (memory) {
+                    memory.put(entry.getCacheKey(), travelInfo);
+                }
+                for (int i : missingByKey.remove(entry.getCacheKey())) {
+                    diskHits.incrementAndGet();
+                    found[i] = travelInfo;
+                }
+            }
+        }
+        missingByKey.values().forEach(missing -> misses.addAndGet(missing.size()));
+
+        return found;
+    }
+
+    /**
+     * Store travel info of many legs fetched from the maps service in both tiers, with one
+     * database transaction. Legs without travel info are skipped.
+     */
+    public void putAll(List<TravelLeg> legs, List<TravelInfo> travelInfos) {
+        Map<String, TravelInfo> entries = new LinkedHashMap<>();
+        for (int i = 0; i < legs.size(); i++) {
+            TravelLeg leg = legs.get(i);
+            if (travelInfos.get(i) != null) {
+                entries.put(key(leg.getOrigin(), leg.getDestination(), leg.getDepartureTime()), travelInfos.get(i));
+            }
+        }
+        if (entries.isEmpty()) return;
+
+        synchronized (memory) {
+            memory.putAll(entries);
+        }
+
+        try {
+            writeTransaction.executeWithoutResult(status -> {
+                Map<String, TravelTimeEntry> existing = new HashMap<>();
+                repository.findByCacheKeyIn(entries.keySet()).forEach(entry -> existing.put(entry.getCacheKey(), entry));
+
+                List<TravelTimeEntry> changed = new ArrayList<>();
+                entries.forEach((key, travelInfo) -> {
+                    TravelTimeEntry entry = existing.getOrDefault(key, new TravelTimeEntry(key));
+                    entry.setDistanceKm(travelInfo.getDistanceKm());
+                    entry.setDurationMinutes(travelInfo.getDurationMinutes());
+                    entry.setFetchedAt(LocalDateTime.now());
+                    changed.add(entry);
+                });
+                repository.saveAll(changed);
+            });
+        } catch (Exception e) {
+            // Another thread stored some of the same keys first, or the database is busy; memory still has them
+            System.err.println("Could not persist " + entries.size() + " travel times: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Store travel info fetched from the maps service in both tiers
+     */
+    public void put(Location origin, Location destination, LocalDateTime departureTime, TravelInfo travelInfo) {
+        String key = key(origin, destination, departureTime);
+        synchronized (memory) {
+            memory.put(key, travelInfo);
+        }
+
+        try {
+            writeTransaction.executeWithoutResult(status -> {
+                TravelTimeEntry entry = repository.findByCacheKey(key).orElseGet(() -> new TravelTimeEntry(key));
+                entry.setDistanceKm(travelInfo.getDistanceKm());
+                entry.setDurationMinutes(travelInfo.getDurationMinutes());
+                entry.setFetchedAt(LocalDateTime.now());
+                repository.save(entry);
+            });
+        } catch (Exception e) {
+            // Another thread stored the same key first, or the database is busy; memory still has it
+            System.err.println("Could not persist travel time for " + key + ": " + e.getMessage());
+        }
+    }
+
+    public CacheStats getStats() {
+        int memoryEntries;
+        synchronized (memory) {
+            memoryEntries = memory.size();
+        }
+        return new CacheStats(memoryHits.get(), diskHits.get(), misses.get(), evictions.get(),
+                memoryEntries, repository.count());
+    }
+
+    private String key(Location origin, Location destination, LocalDateTime departureTime) {
+        int bucket = (departureTime.getHour() * 60 + departureTime.getMinute()) / timeBucketMinutes;
+        return round(origin.getLatitude()) + "," + round(origin.getLongitude()) + ">"
+                + round(destination.getLatitude()) + "," + round(destination.getLongitude()) + "@" + bucket;
+    }
+
+    private long round(double coordinate) {
+        return Math.round(coordinate * coordinateScale);
+    }
+
+    public static class CacheStats {
+        private long memoryHits;
+        private long diskHits;
+        private long misses;
+        private long evictions;
+        private int memoryEntries;
+        private long diskEntries;
+
+        public CacheStats(long memoryHits, long diskHits, long misses, long evictions,
+                          int memoryEntries, long diskEntries) {
+            this.memoryHits = memoryHits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.memoryEntries = memoryEntries;
+            this.diskEntries = diskEntries;
+        }
+
+        // Getters
+        public long getMemoryHits() { return memoryHits; }
+        public long getDiskHits() { return diskHits; }
+        public long getMisses() { return misses; }
+        public long getEvictions() { return evictions; }
+        public int getMemoryEntries() { return memoryEntries; }
+        public long getDiskEntries() { return diskEntries; }
+
+        public double getHitRate() {
+            long lookups = memoryHits + diskHits + misses;
+            return lookups == 0 ? 0 : (double) (memoryHits + diskHits) / lookups;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.GoogleMapsService.TravelMatrix;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.TravelInfo;
+
+/**
+ * Dense travel time and distance matrix over all locations of a routing problem,
+ * stored row-major in primitive arrays so the solver only does array lookups.
+ * Index 0 is the depot, customers follow in problem order.
+ */
+public class TravelTimeMatrix implements TravelTimes {
+
+    private final int size;
+    private final int[] travelMinutes;
+    private final int[] distanceMeters;
+
+    public TravelTimeMatrix(int size) {
+        this.size = size;
+        this.travelMinutes = new int[size * size];
+        this.distanceMeters = new int[size * size];
+    }
+
+    /**
+     * Copy a square matrix returned by the maps service over the given locations. Cells the
+     * service left unanswered get a straight-line estimate rather than zero, which would make
+     * the solver treat that leg as free.
+     */
+    public static TravelTimeMatrix of(TravelMatrix travelMatrix, Location[] locations) {
+        TravelTimeMatrix matrix = new TravelTimeMatrix(travelMatrix.getNumOrigins());
+        for (int from = 0; from < matrix.size; from++) {
+            for (int to = 0; to < matrix.size; to++) {
+                if (from == to) continue;
+                matrix.copy(travelMatrix, from, to, from, to, locations[from], locations[to]);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Copy of this matrix with one more location at index {@link #getSize()}, given the travel from
+     * every existing location to it (one column) and from it to every existing location (one row)
+     */
+    public TravelTimeMatrix withLocation(TravelMatrix toNewLocation, TravelMatrix fromNewLocation,
+                                         Location[] locations, Location newLocation) {
+        TravelTimeMatrix matrix = new TravelTimeMatrix(size + 1);
+        for (int from = 0; from < size; from++) {
+            System.arraycopy(travelMinutes, from * size, matrix.travelMinutes, from * matrix.size, size);
+            System.arraycopy(distanceMeters, from * size, matrix.distanceMeters, from * matrix.size, size);
+        }
+        for (int i = 0; i < size; i++) {
+            matrix.copy(toNewLocation, i, 0, i, size, locations[i], newLocation);
+            matrix.copy(fromNewLocation, 0, i, size, i, newLocation, locations[i]);
+        }
+        return matrix;
+    }
+
+    /**
+     * Take one cell of a maps service matrix, or estimate it from the straight-line distance when unanswered
+     */
+    private void copy(TravelMatrix source, int sourceFrom, int sourceTo, int from, int to,
+                      Location fromLocation, Location toLocation) {
+        if (source.isAnswered(sourceFrom, sourceTo)) {
+            set(from, to, source.getTravelSeconds(sourceFrom, sourceTo) / 60, source.getDistanceMeters(sourceFrom, sourceTo));
+        } else {
+            TravelInfo estimate = GoogleMapsService.estimateTravelInfo(GeoKernel.distanceMeters(fromLocation, toLocation) / 1000);
+            set(from, to, estimate.getDurationMinutes(), (int) Math.round(estimate.getDistanceKm() * 1000));
+        }
+    }
+
+    public void set(int from, int to, int minutes, int meters) {
+        travelMinutes[from * size + to] = minutes;
+        distanceMeters[from * size + to] = meters;
+    }
+
+    @Override
+    public int getTravelMinutes(int from, int to) {
+        return travelMinutes[from * size + to];
+    }
+
+    @Override
+    public int getDistanceMeters(int from, int to) {
+        return distanceMeters[from * size + to];
+    }
+
+    @Override
+    public int getSize() { return size; }
+}
@@ -0,0 +1,32 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.GoogleMapsService.TravelMatrix;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.TravelInfo;
+
+import java.time.LocalDateTime;
+
+/**
+ * Source of travel times used instead of the Google Maps APIs. When a provider bean is present and
+ * available, {@link GoogleMapsService} answers travel time and matrix queries from it; Google
+ * is then only used for geocoding.
+ */
+public interface TravelTimeProvider {
+
+    /**
+     * Whether the provider can answer queries now (e.g. its data has finished loading)
+     */
+    boolean isAvailable();
+
+    /**
+     * Travel from every origin to every destination. Elements the provider cannot answer are null.
+     */
+    TravelMatrix getTravelMatrix(Location[] origins, Location[] destinations, LocalDateTime departureTime);
+
+    /**
+     * Travel between two locations, or null when the provider cannot answer
+     */
+    default TravelInfo getTravelInfo(Location origin, Location destination, LocalDateTime departureTime) {
+        return getTravelMatrix(new Location[]{origin}, new Location[]{destination}, departureTime).getTravelInfo(0, 0);
+    }
+}
@@ -0,0 +1,15 @@
+package com.anansu.powerwashrouting.service;
+
+/**
+ * Travel times and distances between the locations of a routing problem, by location index.
+ * Index 0 is the depot, customers follow in problem order. Lookups must be cheap: they run for
+ * every move the solver evaluates.
+ */
+public interface TravelTimes {
+
+    int getSize();
+
+    int getTravelMinutes(int from, int to);
+
+    int getDistanceMeters(int from, int to);
+}
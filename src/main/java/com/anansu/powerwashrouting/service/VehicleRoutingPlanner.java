@@ -1,61 +1,114 @@
 package com.anansu.powerwashrouting.service;
 import org.optaplanner.core.api.solver.Solver;
 import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.api.score.stream.ConstraintStreamImplType;
 import org.optaplanner.core.config.phase.PhaseConfig;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
 import org.optaplanner.core.config.solver.SolverConfig;
 import org.optaplanner.core.config.solver.termination.TerminationConfig;
 import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicPhaseConfig;
+import org.optaplanner.core.config.constructionheuristic.ConstructionHeuristicType;
 import org.optaplanner.core.config.localsearch.LocalSearchPhaseConfig;
+import org.optaplanner.core.config.localsearch.LocalSearchType;
+import org.optaplanner.core.config.partitionedsearch.PartitionedSearchPhaseConfig;
+import org.optaplanner.core.config.heuristic.selector.common.nearby.NearbySelectionConfig;
+import org.optaplanner.core.config.heuristic.selector.common.nearby.NearbySelectionDistributionType;
+import org.optaplanner.core.config.heuristic.selector.entity.EntitySelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.MoveSelectorConfig;
 import org.optaplanner.core.config.heuristic.selector.move.composite.UnionMoveSelectorConfig;
 import org.optaplanner.core.config.heuristic.selector.move.generic.ChangeMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.SwapMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.chained.SubChainChangeMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.move.generic.chained.TailChainSwapMoveSelectorConfig;
+import org.optaplanner.core.config.heuristic.selector.value.ValueSelectorConfig;
+import org.optaplanner.core.impl.heuristic.selector.common.nearby.NearbyDistanceMeter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Component
 public class VehicleRoutingPlanner {
 
-    private final Solver<VehicleRoutingSolution> solver;
+    private static final Duration DEFAULT_TIME_LIMIT = Duration.ofMinutes(2);
 
-    public VehicleRoutingPlanner() {
-        List<PhaseConfig> phaseList = List.of(
-                new ConstructionHeuristicPhaseConfig(),
-                // Local search phase
-                new LocalSearchPhaseConfig()
-                        .withMoveSelectorConfig(new UnionMoveSelectorConfig()
-                                .withMoveSelectorList(
-                                        // Change move: assign customer to different vehicle
-                                        List.of(new ChangeMoveSelectorConfig())
-                                                        /*.withSel
-                                                        .withEntityConfig(null) // Use default
-                                                        .withValueSelectorConfig(null) */ // Use default
-                                ))
-        );
-        SolverConfig solverConfig = new SolverConfig()
-                .withSolutionClass(VehicleRoutingSolution.class)
-                .withEntityClasses(Customer.class)
-                .withConstraintProviderClass(VehicleRoutingConstraintProvider.class)
-                .withTerminationConfig(new TerminationConfig()
-                        .withSpentLimit(Duration.ofMinutes(2)) // Limit solving time to 2 minutes
-                        .withBestScoreLimit("0hard/0medium/*soft"))
-                // Stop if perfect hard/medium score found
-                .withPhaseList(phaseList);
+    // Warm starts begin from a good plan, so give up soon once it stops improving
+    private static final Duration WARM_START_UNIMPROVED_LIMIT = Duration.ofSeconds(5);
+
+    // Stop as soon as no hard or medium constraint is broken
+    private static final String PERFECT_SCORE_LIMIT = "0hard/0medium/*soft";
+
+    // Solver instances are not thread-safe, so every solve builds its own from the shared factory
+    private final SolverFactory<VehicleRoutingSolution> solverFactory;
+    private final SolverFactory<VehicleRoutingSolution> warmStartSolverFactory;
+
+    // Threads each solver uses to evaluate moves (NONE, AUTO or a number)
+    private final String moveThreadCount;
+
+    // Number of differently seeded solvers raced on the same problem by solve(); 1 disables the portfolio
+    private final int portfolioSize;
+
+    // Moves only consider this many nearest stops per customer; 0 disables nearby selection
+    private final int nearbySize;
+    private final Class<? extends NearbyDistanceMeter> nearbyDistanceMeterClass;
+
+    // Split large days into geographic sectors solved in parallel, then polish the whole day
+    private final boolean partitionedSearch;
+    private final int partitionSize;
+
+    // Upper bound for warm-start re-optimizations
+    private final Duration reoptimizeTimeLimit;
+
+    public VehicleRoutingPlanner(@Value("${routing.optimization.move-thread-count:NONE}") String moveThreadCount,
+                                 @Value("${routing.optimization.portfolio-size:1}") int portfolioSize,
+                                 @Value("${routing.optimization.nearby-size:40}") int nearbySize,
+                                 @Value("${routing.optimization.nearby-distance-meter:com.anansu.powerwashrouting.service.CustomerNearbyDistanceMeter}")
+                                 Class<? extends NearbyDistanceMeter> nearbyDistanceMeterClass,
+                                 @Value("${routing.optimization.partitioned-search:false}") boolean partitionedSearch,
+                                 @Value("${routing.optimization.partition-size:150}") int partitionSize,
+                                 @Value("${routing.optimization.reoptimize-time-limit-seconds:30}") int reoptimizeTimeLimitSeconds) {
+        this.moveThreadCount = moveThreadCount;
+        this.portfolioSize = Math.max(1, portfolioSize);
+        this.nearbySize = nearbySize;
+        this.nearbyDistanceMeterClass = nearbyDistanceMeterClass;
+        this.partitionedSearch = partitionedSearch;
+        this.partitionSize = partitionSize;
+        this.reoptimizeTimeLimit = Duration.ofSeconds(reoptimizeTimeLimitSeconds);
+        this.solverFactory = SolverFactory.create(buildSolverConfig(DEFAULT_TIME_LIMIT, 0));
+        this.warmStartSolverFactory = SolverFactory.create(buildWarmStartSolverConfig(reoptimizeTimeLimit));
+    }
+
+    /**
+     * Factory for the default daily configuration, shared with the asynchronous solver manager
+     */
+    public SolverFactory<VehicleRoutingSolution> getSolverFactory() {
+        return solverFactory;
+    }
 
-        SolverFactory<VehicleRoutingSolution> solverFactory = SolverFactory.create(solverConfig);
-        this.solver = solverFactory.buildSolver();
+    /**
+     * Factory for solves that start from existing routes, shared with the real-time solver manager
+     */
+    public SolverFactory<VehicleRoutingSolution> getWarmStartSolverFactory() {
+        return warmStartSolverFactory;
     }
 
     public VehicleRoutingSolution solve(VehicleRoutingSolution problem) {
-        // Clear any existing assignments
-        problem.getCustomers().forEach(customer -> customer.setVehicle(null));
-        problem.getVehicles().forEach(vehicle -> vehicle.getCustomers().clear());
+        clearAssignments(problem);
 
         System.out.println("Starting optimization with " +
                 problem.getCustomers().size() + " customers and " +
                 problem.getVehicles().size() + " vehicles");
 
-        VehicleRoutingSolution solution = solver.solve(problem);
+        VehicleRoutingSolution solution = portfolioSize > 1
+                ? solvePortfolio(problem, DEFAULT_TIME_LIMIT)
+                : solverFactory.buildSolver().solve(problem);
 
         System.out.println("Optimization completed. Score: " + solution.getScore());
         System.out.println("Assigned customers: " + solution.getTotalAssignedCustomers());
@@ -68,28 +121,259 @@ public class VehicleRoutingPlanner {
      * Solve with a custom time limit
      */
     public VehicleRoutingSolution solve(VehicleRoutingSolution problem, Duration timeLimit) {
-        SolverConfig customConfig = new SolverConfig()
-                .withSolutionClass(VehicleRoutingSolution.class)
-                .withEntityClasses(Customer.class)
-                .withConstraintProviderClass(VehicleRoutingConstraintProvider.class)
+        clearAssignments(problem);
+
+        if (portfolioSize > 1) {
+            return solvePortfolio(problem, timeLimit);
+        }
+        Solver<VehicleRoutingSolution> customSolver = SolverFactory.<VehicleRoutingSolution>create(
+                buildSolverConfig(timeLimit, 0)).buildSolver();
+        return customSolver.solve(problem);
+    }
+
+    /**
+     * Improve routes that are already planned instead of starting over. Customers must already be
+     * linked into chains via previousStandstill (new customers may stay unlinked); pinned customers
+     * keep their position.
+     */
+    public VehicleRoutingSolution reoptimize(VehicleRoutingSolution seededProblem) {
+        initializeShadowVariables(seededProblem);
+
+        System.out.println("Re-optimizing " + seededProblem.getTotalAssignedCustomers() + " planned and " +
+                seededProblem.getTotalUnassignedCustomers() + " new customers from the current routes");
+
+        VehicleRoutingSolution solution = warmStartSolverFactory.buildSolver().solve(seededProblem);
+
+        System.out.println("Re-optimization completed. Score: " + solution.getScore());
+        return solution;
+    }
+
+    /**
+     * Run several solvers on the same problem at once and keep the best result. Each solver
+     * works on its own clone of the problem, so they can share the input safely.
+     */
+    private VehicleRoutingSolution solvePortfolio(VehicleRoutingSolution problem, Duration timeLimit) {
+        ExecutorService executor = Executors.newFixedThreadPool(portfolioSize);
+        try {
+            List<Future<VehicleRoutingSolution>> results = new ArrayList<>();
+            for (int member = 0; member < portfolioSize; member++) {
+                Solver<VehicleRoutingSolution> solver = SolverFactory.<VehicleRoutingSolution>create(
+                        buildSolverConfig(timeLimit, member)).buildSolver();
+                results.add(executor.submit(() -> solver.solve(problem)));
+            }
+
+            VehicleRoutingSolution best = null;
+            for (int member = 0; member < results.size(); member++) {
+                VehicleRoutingSolution solution = results.get(member).get();
+                System.out.println("Portfolio solver " + member + " finished with score " + solution.getScore());
+                if (best == null || solution.getScore().compareTo(best.getScore()) > 0) {
+                    best = solution;
+                }
+            }
+            return best;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Portfolio optimization interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Portfolio optimization failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Portfolio member 0 is the default configuration; the others get their own random seed,
+     * and every other one searches with tabu search instead of late acceptance.
+     */
+    private SolverConfig buildSolverConfig(Duration timeLimit, int portfolioMember) {
+        LocalSearchPhaseConfig localSearchPhase = new LocalSearchPhaseConfig()
+                .withMoveSelectorConfig(new UnionMoveSelectorConfig()
+                        .withMoveSelectorList(routingMoveSelectors()));
+        if (portfolioMember % 2 == 1) {
+            localSearchPhase.setLocalSearchType(LocalSearchType.TABU_SEARCH);
+        }
+        if (partitionedSearch) {
+            // Partition threads cannot evaluate a best score limit, so only the polishing phase checks it
+            localSearchPhase.setTerminationConfig(new TerminationConfig().withBestScoreLimit(PERFECT_SCORE_LIMIT));
+        }
+
+        List<PhaseConfig> phaseList = partitionedSearch
+                ? List.of(partitionedSearchPhase(timeLimit), localSearchPhase)
+                : List.of(constructionHeuristicPhase(), localSearchPhase);
+        SolverConfig solverConfig = baseSolverConfig()
+                .withTerminationConfig(partitionedSearch
+                        ? new TerminationConfig().withSpentLimit(timeLimit)
+                        : new TerminationConfig().withSpentLimit(timeLimit).withBestScoreLimit(PERFECT_SCORE_LIMIT))
+                .withPhaseList(phaseList);
+        if (portfolioMember > 0) {
+            solverConfig.setRandomSeed((long) portfolioMember);
+        }
+        return solverConfig;
+    }
+
+    /**
+     * Warm start from existing routes: the construction heuristic only places customers that are
+     * not on a route yet, then local search improves the plan until it stops getting better.
+     */
+    private SolverConfig buildWarmStartSolverConfig(Duration timeLimit) {
+        return baseSolverConfig()
                 .withTerminationConfig(new TerminationConfig()
                         .withSpentLimit(timeLimit)
-                        .withBestScoreLimit("0hard/0medium/*soft"));
+                        .withUnimprovedSpentLimit(WARM_START_UNIMPROVED_LIMIT)
+                        .withBestScoreLimit(PERFECT_SCORE_LIMIT))
+                .withPhaseList(List.of(
+                        constructionHeuristicPhase(),
+                        new LocalSearchPhaseConfig()
+                                .withMoveSelectorConfig(new UnionMoveSelectorConfig()
+                                        .withMoveSelectorList(routingMoveSelectors()))));
+    }
+
+    private SolverConfig baseSolverConfig() {
+        return new SolverConfig()
+                .withSolutionClass(VehicleRoutingSolution.class)
+                .withEntityClasses(Standstill.class, Customer.class)
+                // Bavet evaluates our filter/join/groupBy streams noticeably faster than Drools
+                .withScoreDirectorFactory(new ScoreDirectorFactoryConfig()
+                        .withConstraintProviderClass(VehicleRoutingConstraintProvider.class)
+                        .withConstraintStreamImplType(ConstraintStreamImplType.BAVET))
+                .withMoveThreadCount(moveThreadCount);
+    }
+
+    private ConstructionHeuristicPhaseConfig constructionHeuristicPhase() {
+        // Insert the hardest customers first, each at its cheapest position in any chain
+        return new ConstructionHeuristicPhaseConfig()
+                .withConstructionHeuristicType(ConstructionHeuristicType.FIRST_FIT_DECREASING);
+    }
+
+    /**
+     * Builds and improves each geographic sector on its own thread for the first 60% of the time
+     * limit; the local search phase after it then polishes the merged day as a whole.
+     */
+    private PartitionedSearchPhaseConfig partitionedSearchPhase(Duration timeLimit) {
+        PartitionedSearchPhaseConfig partitionedSearchPhase = new PartitionedSearchPhaseConfig();
+        partitionedSearchPhase.setSolutionPartitionerClass(GeographicSolutionPartitioner.class);
+        partitionedSearchPhase.setSolutionPartitionerCustomProperties(
+                Map.of("partitionSize", String.valueOf(partitionSize)));
+        partitionedSearchPhase.setRunnablePartThreadLimit(PartitionedSearchPhaseConfig.ACTIVE_THREAD_COUNT_AUTO);
+        partitionedSearchPhase.setPhaseConfigList(List.of(
+                constructionHeuristicPhase(),
+                new LocalSearchPhaseConfig()
+                        .withMoveSelectorConfig(new UnionMoveSelectorConfig()
+                                .withMoveSelectorList(routingMoveSelectors()))));
+        partitionedSearchPhase.setTerminationConfig(new TerminationConfig()
+                .withSpentLimit(timeLimit.multipliedBy(6).dividedBy(10)));
+        return partitionedSearchPhase;
+    }
+
+    private List<MoveSelectorConfig> routingMoveSelectors() {
+        SubChainChangeMoveSelectorConfig subChainChangeMoveSelector = new SubChainChangeMoveSelectorConfig();
+        subChainChangeMoveSelector.setSelectReversingMoveToo(true);
+
+        if (nearbySize <= 0) {
+            TailChainSwapMoveSelectorConfig tailChainSwapMoveSelector = new TailChainSwapMoveSelectorConfig();
+            tailChainSwapMoveSelector.setFilterClass(MovableTailChainSwapFilter.class);
+            return List.of(
+                    // Move one customer to another position, in the same or another vehicle's chain
+                    new ChangeMoveSelectorConfig(),
+                    // Exchange the positions of two customers
+                    new SwapMoveSelectorConfig(),
+                    // Move a run of consecutive stops elsewhere, possibly reversed
+                    subChainChangeMoveSelector,
+                    // Exchange the tails of two routes (2-opt when both are in the same route)
+                    tailChainSwapMoveSelector
+            );
+        }
+
+        // Nearby selection: pick a customer, then a destination among its nearest stops, so moves
+        // mostly rearrange stops that are close together instead of joining opposite ends of the metro
+        ChangeMoveSelectorConfig nearbyChangeMoveSelector = new ChangeMoveSelectorConfig();
+        nearbyChangeMoveSelector.setEntitySelectorConfig(originEntitySelector("changeEntity"));
+        nearbyChangeMoveSelector.setValueSelectorConfig(nearbyValueSelector("changeEntity"));
+
+        SwapMoveSelectorConfig nearbySwapMoveSelector = new SwapMoveSelectorConfig();
+        nearbySwapMoveSelector.setEntitySelectorConfig(originEntitySelector("swapEntity"));
+        EntitySelectorConfig nearbySwapEntitySelector = new EntitySelectorConfig();
+        nearbySwapEntitySelector.setNearbySelectionConfig(nearbySelection("swapEntity"));
+        nearbySwapMoveSelector.setSecondaryEntitySelectorConfig(nearbySwapEntitySelector);
+
+        TailChainSwapMoveSelectorConfig nearbyTailChainSwapMoveSelector = new TailChainSwapMoveSelectorConfig();
+        nearbyTailChainSwapMoveSelector.setEntitySelectorConfig(originEntitySelector("tailChainEntity"));
+        nearbyTailChainSwapMoveSelector.setValueSelectorConfig(nearbyValueSelector("tailChainEntity"));
+        nearbyTailChainSwapMoveSelector.setFilterClass(MovableTailChainSwapFilter.class);
 
-        Solver<Object> customSolver = SolverFactory.create(customConfig).buildSolver();
+        return List.of(
+                nearbyChangeMoveSelector,
+                nearbySwapMoveSelector,
+                nearbyTailChainSwapMoveSelector,
+                // Sub chains cannot use nearby selection; these and plain change moves keep the search
+                // able to move work between routes that are far apart
+                subChainChangeMoveSelector,
+                new ChangeMoveSelectorConfig()
+        );
+    }
 
-        // Clear any existing assignments
-        problem.getCustomers().forEach(customer -> customer.setVehicle(null));
-        problem.getVehicles().forEach(vehicle -> vehicle.getCustomers().clear());
+    private EntitySelectorConfig originEntitySelector(String id) {
+        EntitySelectorConfig entitySelector = new EntitySelectorConfig();
+        entitySelector.setId(id);
+        return entitySelector;
+    }
+
+    private ValueSelectorConfig nearbyValueSelector(String originEntitySelectorId) {
+        ValueSelectorConfig valueSelector = new ValueSelectorConfig();
+        valueSelector.setNearbySelectionConfig(nearbySelection(originEntitySelectorId));
+        return valueSelector;
+    }
 
-        return (VehicleRoutingSolution) customSolver.solve(problem);
+    private NearbySelectionConfig nearbySelection(String originEntitySelectorId) {
+        NearbySelectionConfig nearbySelection = new NearbySelectionConfig();
+        nearbySelection.setOriginEntitySelectorConfig(EntitySelectorConfig.newMimicSelectorConfig(originEntitySelectorId));
+        nearbySelection.setNearbyDistanceMeterClass(nearbyDistanceMeterClass);
+        // Favors the very nearest stops and never picks beyond the nearbySize nearest
+        nearbySelection.setNearbySelectionDistributionType(NearbySelectionDistributionType.PARABOLIC_DISTRIBUTION);
+        nearbySelection.setParabolicDistributionSizeMaximum(nearbySize);
+        return nearbySelection;
     }
 
     /**
-     * Quick solve for emergency insertions (30 seconds max)
+     * The solver only updates shadow variables as it changes the chains, so chains linked
+     * beforehand need their vehicle, next customer and times filled in up front
      */
-    public VehicleRoutingSolution quickSolve(VehicleRoutingSolution problem) {
-        return solve(problem, Duration.ofSeconds(30));
+    public void initializeShadowVariables(VehicleRoutingSolution problem) {
+        problem.getVehicles().forEach(vehicle -> vehicle.setNextCustomer(null));
+        problem.getCustomers().forEach(customer -> customer.setNextCustomer(null));
+        problem.getCustomers().stream()
+                .filter(customer -> customer.getPreviousStandstill() != null)
+                .forEach(customer -> customer.getPreviousStandstill().setNextCustomer(customer));
+
+        problem.getCustomers().forEach(customer -> {
+            customer.setVehicle(null);
+            customer.setArrivalMinute(null);
+            customer.setWaitMinutes(null);
+            customer.setDepartureMinute(null);
+        });
+        for (OptimizationVehicle vehicle : problem.getVehicles()) {
+            Standstill previous = vehicle;
+            for (Customer customer = vehicle.getNextCustomer(); customer != null; customer = customer.getNextCustomer()) {
+                Integer arrivalMinute = ArrivalTimeUpdatingVariableListener.calculateArrivalMinute(previous, customer);
+                Integer waitMinutes = ArrivalTimeUpdatingVariableListener.calculateWaitMinutes(customer, arrivalMinute);
+                customer.setVehicle(vehicle);
+                customer.setArrivalMinute(arrivalMinute);
+                customer.setWaitMinutes(waitMinutes);
+                customer.setDepartureMinute(arrivalMinute + waitMinutes + customer.getServiceTimeMinutes());
+                previous = customer;
+            }
+        }
     }
-}
 
+    private void clearAssignments(VehicleRoutingSolution problem) {
+        problem.getCustomers().forEach(customer -> {
+            customer.setPreviousStandstill(null);
+            customer.setVehicle(null);
+            customer.setNextCustomer(null);
+            customer.setArrivalMinute(null);
+            customer.setWaitMinutes(null);
+            customer.setDepartureMinute(null);
+        });
+        problem.getVehicles().forEach(vehicle -> vehicle.setNextCustomer(null));
+    }
+}
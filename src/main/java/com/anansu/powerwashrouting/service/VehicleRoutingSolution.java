@@ -5,6 +5,7 @@ import org.optaplanner.core.api.domain.solution.PlanningEntityCollectionProperty
 import org.optaplanner.core.api.domain.solution.PlanningScore;
 import org.optaplanner.core.api.domain.solution.PlanningSolution;
 import org.optaplanner.core.api.domain.solution.ProblemFactCollectionProperty;
+import org.optaplanner.core.api.domain.solution.ProblemFactProperty;
 import org.optaplanner.core.api.domain.valuerange.ValueRangeProvider;
 import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
 
@@ -19,6 +20,7 @@ public class VehicleRoutingSolution {
     private List<Customer> customers;
     private LocalDateTime workStart;
     private LocalDateTime workEnd;
+    private TravelTimes travelMatrix;
 
     private HardMediumSoftScore score;
 
@@ -40,6 +42,7 @@ public class VehicleRoutingSolution {
     }
 
     @PlanningEntityCollectionProperty
+    @ValueRangeProvider(id = "customerRange")
     public List<Customer> getCustomers() {
         return customers;
     }
@@ -67,6 +70,10 @@ public class VehicleRoutingSolution {
     public LocalDateTime getWorkEnd() { return workEnd; }
     public void setWorkEnd(LocalDateTime workEnd) { this.workEnd = workEnd; }
 
+    @ProblemFactProperty
+    public TravelTimes getTravelMatrix() { return travelMatrix; }
+    public void setTravelMatrix(TravelTimes travelMatrix) { this.travelMatrix = travelMatrix; }
+
     public void setWorkingHours(LocalDateTime start, LocalDateTime end) {
         this.workStart = start;
         this.workEnd = end;
@@ -0,0 +1,52 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+/**
+ * Creates the id sequences the entities draw from and moves each one past the ids already in its
+ * table. Databases created before the entities switched from identity columns were baselined past
+ * V1, so they have rows but no sequences. Runs once, so a sequence is never moved backwards.
+ */
+public class V5__Align_id_sequences extends BaseJavaMigration {
+
+    // Must match the allocationSize of the entities' sequence generators
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "routes", "routes_seq",
+            "route_stops", "route_stops_seq",
+            "jobs", "jobs_seq",
+            "vehicles", "vehicles_seq");
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        try (Statement statement = context.getConnection().createStatement()) {
+            for (Map.Entry<String, String> entry : SEQUENCES.entrySet()) {
+                String table = entry.getKey();
+                String sequence = entry.getValue();
+                statement.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence
+                        + " START WITH 1 INCREMENT BY " + ALLOCATION_SIZE);
+
+                long maxId = queryLong(statement, "SELECT COALESCE(MAX(id), 0) FROM " + table);
+                long nextValue = queryLong(statement, "SELECT NEXT VALUE FOR " + sequence);
+                // The pooled optimizer treats the next value as the top of a block of ALLOCATION_SIZE ids
+                if (nextValue < maxId + ALLOCATION_SIZE) {
+                    statement.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (maxId + ALLOCATION_SIZE));
+                }
+            }
+        }
+    }
+
+    private static long queryLong(Statement statement, String sql) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+-- Schema as Hibernate generated it before migrations took over (databases created that way are
+-- baselined at this version and start from V2)
+
+CREATE SEQUENCE IF NOT EXISTS vehicles_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS jobs_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS routes_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS route_stops_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE vehicles (
+    id BIGINT NOT NULL PRIMARY KEY,
+    license_plate VARCHAR(255) NOT NULL,
+    type VARCHAR(255),
+    available BOOLEAN NOT NULL,
+    maintenance_scheduled TIMESTAMP(6),
+    fuel_efficiency DOUBLE PRECISION,
+    max_crew_size INTEGER
+);
+
+CREATE TABLE vehicle_capabilities (
+    vehicle_id BIGINT NOT NULL,
+    capabilities VARCHAR(255),
+    CONSTRAINT fk_vehicle_capabilities_vehicle FOREIGN KEY (vehicle_id) REFERENCES vehicles (id)
+);
+
+CREATE TABLE jobs (
+    id BIGINT NOT NULL PRIMARY KEY,
+    customer_id VARCHAR(255) NOT NULL,
+    address VARCHAR(255) NOT NULL,
+    latitude DOUBLE PRECISION NOT NULL,
+    longitude DOUBLE PRECISION NOT NULL,
+    service_type VARCHAR(255),
+    status VARCHAR(255),
+    priority VARCHAR(255),
+    quote_amount NUMERIC(38, 2),
+    estimated_duration_minutes INTEGER,
+    required_crew_size INTEGER,
+    earliest_start_time TIMESTAMP(6),
+    latest_start_time TIMESTAMP(6),
+    preferred_start_time TIMESTAMP(6),
+    weather_dependent BOOLEAN NOT NULL,
+    recurring BOOLEAN NOT NULL,
+    recurring_schedule VARCHAR(255),
+    assigned_vehicle_id BIGINT,
+    scheduled_start_time TIMESTAMP(6),
+    actual_start_time TIMESTAMP(6),
+    actual_end_time TIMESTAMP(6),
+    emergency BOOLEAN NOT NULL
+);
+
+CREATE TABLE routes (
+    id BIGINT NOT NULL PRIMARY KEY,
+    route_date DATE NOT NULL,
+    vehicle_id BIGINT NOT NULL,
+    start_time TIMESTAMP(6),
+    end_time TIMESTAMP(6),
+    total_distance_km DOUBLE PRECISION,
+    total_duration_minutes INTEGER,
+    estimated_fuel_cost DOUBLE PRECISION,
+    status VARCHAR(255),
+    CONSTRAINT fk_routes_vehicle FOREIGN KEY (vehicle_id) REFERENCES vehicles (id)
+);
+
+CREATE TABLE route_stops (
+    id BIGINT NOT NULL PRIMARY KEY,
+    route_id BIGINT NOT NULL,
+    job_id BIGINT NOT NULL,
+    sequence_number INTEGER NOT NULL,
+    estimated_arrival_time TIMESTAMP(6),
+    estimated_departure_time TIMESTAMP(6),
+    actual_arrival_time TIMESTAMP(6),
+    actual_departure_time TIMESTAMP(6),
+    distance_from_previous_km DOUBLE PRECISION,
+    travel_time_from_previous_minutes INTEGER,
+    CONSTRAINT fk_route_stops_route FOREIGN KEY (route_id) REFERENCES routes (id),
+    CONSTRAINT fk_route_stops_job FOREIGN KEY (job_id) REFERENCES jobs (id)
+);
+
+CREATE TABLE travel_time_cache (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    cache_key VARCHAR(255) NOT NULL UNIQUE,
+    distance_km DOUBLE PRECISION NOT NULL,
+    duration_minutes INTEGER NOT NULL,
+    fetched_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE geocode_cache (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    normalized_address VARCHAR(500) NOT NULL UNIQUE,
+    latitude DOUBLE PRECISION NOT NULL,
+    longitude DOUBLE PRECISION NOT NULL,
+    fetched_at TIMESTAMP(6) NOT NULL
+);
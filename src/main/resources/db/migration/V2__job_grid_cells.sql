@@ -0,0 +1,11 @@
+-- Grid cell of each job's location for proximity lookups (see Job.gridCellOf: 0.05 degree cells,
+-- 7200 columns). Databases that already got the column from Hibernate keep it.
+
+ALTER TABLE jobs ADD COLUMN IF NOT EXISTS grid_cell BIGINT;
+
+UPDATE jobs
+SET grid_cell = CAST(FLOOR((latitude + 90) / 0.05) AS BIGINT) * 7200
+        + MOD(CAST(FLOOR((longitude + 180) / 0.05) AS BIGINT), 7200)
+WHERE grid_cell IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_jobs_status_grid_cell ON jobs (status, grid_cell);
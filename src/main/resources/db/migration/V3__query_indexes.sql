@@ -0,0 +1,31 @@
+-- Composite indexes for the repository queries that run on every plan. Each starts with the
+-- equality columns of its query and ends with the column it ranges over.
+
+-- JobRepository.findUnassignedJobsForTimeRange, findUnassignedJobsByPriority
+CREATE INDEX IF NOT EXISTS idx_jobs_status_vehicle_window
+    ON jobs (status, assigned_vehicle_id, earliest_start_time, latest_start_time);
+
+-- JobRepository.findWeatherDependentJobs
+CREATE INDEX IF NOT EXISTS idx_jobs_status_weather_scheduled
+    ON jobs (status, weather_dependent, scheduled_start_time);
+
+-- JobRepository.findEstimatesForDateRange
+CREATE INDEX IF NOT EXISTS idx_jobs_status_service_scheduled
+    ON jobs (status, service_type, scheduled_start_time);
+
+-- JobRepository.findRecurringJobsForCustomer
+CREATE INDEX IF NOT EXISTS idx_jobs_customer ON jobs (customer_id);
+
+-- RouteRepository.findByVehicleIdAndRouteDate, findByVehicleAndDateRange
+CREATE INDEX IF NOT EXISTS idx_routes_vehicle_date ON routes (vehicle_id, route_date);
+
+-- RouteRepository.findByRouteDate and the other per-date reads
+CREATE INDEX IF NOT EXISTS idx_routes_date ON routes (route_date);
+
+-- RouteStopRepository.findOverdueStops
+CREATE INDEX IF NOT EXISTS idx_route_stops_overdue ON route_stops (actual_arrival_time, estimated_arrival_time);
+
+-- Stops of a route in order (Route.stops, findStopsByRouteId, findMaxSequenceNumberForRoute)
+CREATE INDEX IF NOT EXISTS idx_route_stops_route_sequence ON route_stops (route_id, sequence_number);
+
+CREATE INDEX IF NOT EXISTS idx_route_stops_job ON route_stops (job_id);
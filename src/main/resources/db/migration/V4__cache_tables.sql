@@ -0,0 +1,18 @@
+-- Travel time and geocode caches. Databases created by Hibernate before the caches existed were
+-- baselined past V1 and do not have them yet.
+
+CREATE TABLE IF NOT EXISTS travel_time_cache (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    cache_key VARCHAR(255) NOT NULL UNIQUE,
+    distance_km DOUBLE PRECISION NOT NULL,
+    duration_minutes INTEGER NOT NULL,
+    fetched_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS geocode_cache (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    normalized_address VARCHAR(500) NOT NULL UNIQUE,
+    latitude DOUBLE PRECISION NOT NULL,
+    longitude DOUBLE PRECISION NOT NULL,
+    fetched_at TIMESTAMP(6) NOT NULL
+);
@@ -0,0 +1,7 @@
+-- JobRepository.findUnassignedJobsForTimeRange ORs the vehicle and both window columns with IS NULL,
+-- which an index cannot seek on, so only the status of idx_jobs_status_vehicle_window was ever used
+-- for it (see QueryIndexPlanTest). Status and vehicle still serve findUnassignedJobsByPriority.
+
+DROP INDEX IF EXISTS idx_jobs_status_vehicle_window;
+
+CREATE INDEX IF NOT EXISTS idx_jobs_status_vehicle ON jobs (status, assigned_vehicle_id);
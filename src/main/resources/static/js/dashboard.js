@@ -2,13 +2,17 @@ class RoutingDashboard {
     constructor() {
         this.baseUrl = '/api';
         this.currentDate = new Date().toISOString().split('T')[0];
+        this.routes = new Map(); // vehicle id -> route summary
+        this.pendingSolves = new Map(); // problem id -> callback for the final solve status
+        this.eventSource = null;
         this.init();
     }
 
     init() {
         this.setupEventListeners();
         this.updateCurrentDate();
-        this.loadDashboardData();
+        this.connectEvents();
+        this.loadVehicleStatus();
         this.setupAutoRefresh();
     }
 
@@ -16,7 +20,7 @@ class RoutingDashboard {
         // Date picker
         document.getElementById('route-date').addEventListener('change', (e) => {
             this.currentDate = e.target.value;
-            this.loadDashboardData();
+            this.connectEvents();
         });
 
         // Generate routes button
@@ -46,50 +50,85 @@ class RoutingDashboard {
         document.getElementById('route-date').value = this.currentDate;
     }
 
-    async loadDashboardData() {
-        try {
-            await Promise.all([
-                this.loadRouteStats(),
-                this.loadRoutes(),
-                this.loadVehicleStatus()
-            ]);
-        } catch (error) {
-            console.error('Error loading dashboard data:', error);
-            this.showAlert('Error loading dashboard data', 'danger');
+    connectEvents() {
+        // Route changes are pushed by the server; the full route list is only read when the stream (re)connects
+        if (this.eventSource) {
+            this.eventSource.close();
         }
-    }
 
-    async loadRouteStats() {
-        try {
-            const response = await fetch(`${this.baseUrl}/routing/stats?date=${this.currentDate}`);
-            const stats = await response.json();
+        this.eventSource = new EventSource(`${this.baseUrl}/routing/events?date=${this.currentDate}`);
 
-            document.getElementById('total-routes').textContent = stats.totalRoutes;
-            document.getElementById('total-jobs').textContent = stats.totalStops;
-            document.getElementById('total-distance').textContent = `${stats.totalDistanceKm.toFixed(1)} km`;
-            document.getElementById('fuel-cost').textContent = `${stats.estimatedFuelCost.toFixed(2)}`;
-        } catch (error) {
-            console.error('Error loading route stats:', error);
-        }
+        this.eventSource.addEventListener('connected', () => {
+            this.loadRoutes();
+        });
+
+        this.eventSource.addEventListener('routes-changed', (e) => {
+            this.applyRouteChanges(JSON.parse(e.data));
+        });
+
+        this.eventSource.addEventListener('best-solution', (e) => {
+            const plan = JSON.parse(e.data);
+            this.updateLoading(`Optimizing routes... best score ${plan.score}`);
+        });
+
+        this.eventSource.addEventListener('solve-status', (e) => {
+            const status = JSON.parse(e.data);
+            const callback = this.pendingSolves.get(status.problemId);
+            if (callback && (status.state === 'COMPLETED' || status.state === 'FAILED')) {
+                this.pendingSolves.delete(status.problemId);
+                callback(status);
+            }
+        });
+
+        this.eventSource.onerror = () => {
+            console.error('Route event stream interrupted, reconnecting...');
+        };
     }
 
     async loadRoutes() {
         try {
-            const response = await fetch(`${this.baseUrl}/routing/routes?date=${this.currentDate}`);
+            const response = await fetch(`${this.baseUrl}/routing/routes/summary?date=${this.currentDate}`);
             const routes = await response.json();
 
-            const tbody = document.getElementById('routes-tbody');
-            tbody.innerHTML = '';
-
-            routes.forEach(route => {
-                const row = this.createRouteRow(route);
-                tbody.appendChild(row);
-            });
+            this.routes.clear();
+            routes.forEach(route => this.routes.set(route.vehicleId, route));
+            this.renderRoutes();
         } catch (error) {
             console.error('Error loading routes:', error);
+            this.showAlert('Error loading dashboard data', 'danger');
         }
     }
 
+    applyRouteChanges(change) {
+        change.affectedVehicleIds.forEach(vehicleId => this.routes.delete(vehicleId));
+        change.routes.forEach(route => this.routes.set(route.vehicleId, route));
+        this.renderRoutes();
+    }
+
+    renderRoutes() {
+        const routes = Array.from(this.routes.values());
+
+        const tbody = document.getElementById('routes-tbody');
+        tbody.innerHTML = '';
+        routes.forEach(route => {
+            const row = this.createRouteRow(route);
+            tbody.appendChild(row);
+        });
+
+        this.renderRouteStats(routes);
+    }
+
+    renderRouteStats(routes) {
+        const totalStops = routes.reduce((sum, route) => sum + route.stopCount, 0);
+        const totalDistance = routes.reduce((sum, route) => sum + (route.totalDistanceKm || 0), 0);
+        const totalFuelCost = routes.reduce((sum, route) => sum + (route.estimatedFuelCost || 0), 0);
+
+        document.getElementById('total-routes').textContent = routes.length;
+        document.getElementById('total-jobs').textContent = totalStops;
+        document.getElementById('total-distance').textContent = `${totalDistance.toFixed(1)} km`;
+        document.getElementById('fuel-cost').textContent = `${totalFuelCost.toFixed(2)}`;
+    }
+
     createRouteRow(route) {
         const row = document.createElement('tr');
 
@@ -98,9 +137,9 @@ class RoutingDashboard {
         const durationMins = route.totalDurationMinutes % 60;
 
         row.innerHTML = `
-            <td>${route.vehicle.licensePlate}</td>
+            <td>${route.licensePlate}</td>
             <td>
-                <span class="badge bg-info">${route.stops.length}</span>
+                <span class="badge bg-info">${route.stopCount}</span>
             </td>
             <td>${durationHours}h ${durationMins}m</td>
             <td>${route.totalDistanceKm.toFixed(1)} km</td>
@@ -175,11 +214,17 @@ class RoutingDashboard {
                 method: 'POST'
             });
 
-            if (response.ok) {
+            if (!response.ok) {
+                throw new Error('Failed to generate routes');
+            }
+
+            const solve = await response.json();
+            const status = await this.waitForSolve(solve.problemId);
+
+            if (status.state === 'COMPLETED') {
                 this.showAlert('Routes generated successfully!', 'success');
-                this.loadDashboardData();
             } else {
-                throw new Error('Failed to generate routes');
+                throw new Error(status.error || 'Failed to generate routes');
             }
         } catch (error) {
             console.error('Error generating routes:', error);
@@ -189,27 +234,44 @@ class RoutingDashboard {
         }
     }
 
+    async waitForSolve(problemId) {
+        // Route generation runs in the background; the final status arrives on the event stream
+        const finished = new Promise(resolve => this.pendingSolves.set(problemId, resolve));
+
+        // The solve may already have finished before we started listening
+        const response = await fetch(`${this.baseUrl}/routing/solves/${problemId}`);
+        if (!response.ok) {
+            this.pendingSolves.delete(problemId);
+            throw new Error('Failed to get route generation status');
+        }
+
+        const status = await response.json();
+        if (status.state === 'COMPLETED' || status.state === 'FAILED') {
+            this.pendingSolves.delete(problemId);
+            return status;
+        }
+        return finished;
+    }
+
     async reoptimizeRoutes() {
         try {
             this.showLoading('Re-optimizing routes...');
 
-            // Get all vehicle IDs for the current date
-            const routesResponse = await fetch(`${this.baseUrl}/routing/routes?date=${this.currentDate}`);
-            const routes = await routesResponse.json();
-            const vehicleIds = routes.map(route => route.vehicle.id);
+            // Vehicles with a route on the current date, as kept up to date by the event stream.
+            // Re-optimizing starts from the current routes and keeps stops crews have started in place
+            const vehicleIds = Array.from(this.routes.keys());
 
             if (vehicleIds.length === 0) {
                 this.showAlert('No routes found for re-optimization', 'warning');
                 return;
             }
 
-            const response = await fetch(`${this.baseUrl}/routing/reoptimize-routes?date=${this.currentDate}&vehicleIds=${vehicleIds.join(',')}`, {
+            const response = await fetch(`${this.baseUrl}/routing/reoptimize-routes?date=${this.currentDate}&vehicleIds=${vehicleIds.join(',')}&warmStart=true&pinStarted=true`, {
                 method: 'POST'
             });
 
             if (response.ok) {
                 this.showAlert('Routes re-optimized successfully!', 'success');
-                this.loadDashboardData();
             } else {
                 throw new Error('Failed to re-optimize routes');
             }
@@ -239,10 +301,15 @@ class RoutingDashboard {
             });
 
             if (response.ok) {
-                this.showAlert('Emergency job scheduled successfully!', 'success');
+                const placement = await response.json();
+                if (placement.placed) {
+                    this.showAlert(`Emergency job scheduled on vehicle ${placement.route.vehicleId}!`, 'success');
+                } else {
+                    // Not placed within the wait; the solve keeps going and the routes update when it does
+                    this.showAlert('Emergency job received and still being scheduled. Routes will update once it is placed.', 'warning');
+                }
                 document.getElementById('emergency-form').reset();
                 bootstrap.Modal.getInstance(document.getElementById('emergency-modal')).hide();
-                this.loadDashboardData();
             } else {
                 throw new Error('Failed to schedule emergency job');
             }
@@ -282,7 +349,6 @@ class RoutingDashboard {
                 this.showAlert(`${estimates.length} estimates scheduled successfully!`, 'success');
                 document.getElementById('estimates-form').reset();
                 bootstrap.Modal.getInstance(document.getElementById('estimates-modal')).hide();
-                this.loadDashboardData();
             } else {
                 throw new Error('Failed to schedule estimates');
             }
@@ -340,6 +406,13 @@ class RoutingDashboard {
         document.body.appendChild(loadingDiv);
     }
 
+    updateLoading(message) {
+        const loadingDiv = document.getElementById('loading-overlay');
+        if (loadingDiv) {
+            loadingDiv.querySelector('.spinner-border').nextElementSibling.textContent = message;
+        }
+    }
+
     hideLoading() {
         const loadingDiv = document.getElementById('loading-overlay');
         if (loadingDiv) {
@@ -348,9 +421,9 @@ class RoutingDashboard {
     }
 
     setupAutoRefresh() {
-        // Refresh data every 30 seconds
+        // Routes are pushed over the event stream; only vehicle availability is refreshed every 30 seconds
         setInterval(() => {
-            this.loadDashboardData();
+            this.loadVehicleStatus();
         }, 30000);
     }
 }
@@ -0,0 +1,214 @@
+package com.anansu.powerwashrouting.db;
+
+import com.anansu.powerwashrouting.model.Job;
+import com.anansu.powerwashrouting.model.JobStatus;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The hot repository queries are planned on the composite indexes the migrations create for them.
+ * Each test runs the repository method, takes the SQL Hibernate sent from a statement inspector,
+ * and has H2 explain it with the same parameters.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:index-plans;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.anansu.powerwashrouting.db.QueryIndexPlanTest$SqlRecorder",
+        "routing.prefetch.enabled=false"
+})
+class QueryIndexPlanTest {
+
+    private static final int JOBS = 5000;
+    private static final int ROUTES = 200;
+    private static final int STOPS_PER_ROUTE = 10;
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 8, 0);
+    private static final LocalDateTime WEEK_START = LocalDateTime.of(2026, 3, 1, 0, 0);
+    private static final LocalDateTime WEEK_END = LocalDateTime.of(2026, 3, 8, 0, 0);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Autowired
+    private RouteRepository routeRepository;
+
+    @Autowired
+    private RouteStopRepository routeStopRepository;
+
+    @BeforeEach
+    void loadHistory() {
+        jdbcTemplate.update("DELETE FROM route_stops");
+        jdbcTemplate.update("DELETE FROM routes");
+        jdbcTemplate.update("DELETE FROM jobs");
+        jdbcTemplate.update("DELETE FROM vehicles");
+
+        List<Object[]> vehicles = new ArrayList<>();
+        for (long v = 1; v <= 10; v++) {
+            vehicles.add(new Object[]{v, "PLAN-" + v, "TRUCK"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO vehicles (id, license_plate, type, available) VALUES (?, ?, ?, TRUE)",
+                vehicles);
+
+        // A year of history: mostly completed jobs, a few still scheduled
+        String[] serviceTypes = {"PRESSURE_WASHING", "ROOF_CLEANING", "WINDOW_CLEANING", "HOUSE_WASHING", "ESTIMATE"};
+        List<Object[]> jobs = new ArrayList<>();
+        for (long j = 1; j <= JOBS; j++) {
+            LocalDateTime scheduled = START.plusHours(j * 365 * 24 / JOBS);
+            double latitude = 40.7 + (j % 100) * 0.001;
+            double longitude = -74.0 - (j % 100) * 0.001;
+            jobs.add(new Object[]{j, "C" + j, j + " Main St", latitude, longitude, Job.gridCellOf(latitude, longitude),
+                    serviceTypes[(int) (j % serviceTypes.length)], j % 20 == 0 ? "SCHEDULED" : "COMPLETED",
+                    j % 3 != 0, j % 40 == 0 ? null : (j % 10) + 1,
+                    Timestamp.valueOf(scheduled.minusDays(1)), Timestamp.valueOf(scheduled.plusDays(1)),
+                    Timestamp.valueOf(scheduled)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO jobs (id, customer_id, address, latitude, longitude, grid_cell, " +
+                "service_type, status, weather_dependent, assigned_vehicle_id, earliest_start_time, " +
+                "latest_start_time, scheduled_start_time, recurring, emergency) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, FALSE, FALSE)",
+                jobs);
+
+        List<Object[]> routes = new ArrayList<>();
+        List<Object[]> stops = new ArrayList<>();
+        for (long r = 1; r <= ROUTES; r++) {
+            LocalDate date = START.toLocalDate().plusDays(r / 10);
+            routes.add(new Object[]{r, date, (r % 10) + 1});
+            for (int s = 1; s <= STOPS_PER_ROUTE; s++) {
+                long id = (r - 1) * STOPS_PER_ROUTE + s;
+                LocalDateTime arrival = date.atTime(8, 0).plusMinutes(s * 45L);
+                stops.add(new Object[]{id, r, id, s, Timestamp.valueOf(arrival),
+                        r == ROUTES ? null : Timestamp.valueOf(arrival.plusMinutes(5))});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO routes (id, route_date, vehicle_id, status) VALUES (?, ?, ?, 'COMPLETED')",
+                routes);
+        jdbcTemplate.batchUpdate("INSERT INTO route_stops (id, route_id, job_id, sequence_number, " +
+                "estimated_arrival_time, actual_arrival_time) VALUES (?, ?, ?, ?, ?, ?)", stops);
+
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void weatherDependentJobsUseStatusWeatherTimeIndex() {
+        String sql = capture(() -> jobRepository.findWeatherDependentJobs(WEEK_START, WEEK_END));
+        assertUsesIndex("idx_jobs_status_weather_scheduled", sql, WEEK_START, WEEK_END);
+    }
+
+    @Test
+    void estimatesUseStatusServiceTimeIndex() {
+        String sql = capture(() -> jobRepository.findEstimatesForDateRange(WEEK_START, WEEK_END));
+        assertUsesIndex("idx_jobs_status_service_scheduled", sql, WEEK_START, WEEK_END);
+    }
+
+    @Test
+    void unassignedJobsByPriorityUseStatusVehicleIndex() {
+        String sql = capture(() -> jobRepository.findUnassignedJobsByPriority());
+        assertUsesIndex("idx_jobs_status_vehicle", sql);
+    }
+
+    @Test
+    void unassignedJobsForTimeRangeSeekOnStatusOnly() {
+        // Each of the vehicle and window columns is OR-ed with IS NULL, so the index can only seek
+        // on the status; that is why V6 dropped the window columns from the vehicle index
+        LocalDateTime dayStart = LocalDateTime.of(2026, 3, 1, 8, 0);
+        LocalDateTime dayEnd = LocalDateTime.of(2026, 3, 1, 18, 0);
+        String sql = capture(() -> jobRepository.findUnassignedJobsForTimeRange(3L, dayStart, dayEnd));
+        String plan = explain(sql, 3L, dayEnd, dayStart);
+
+        assertFalse(plan.contains("tableScan"), plan);
+        String seek = indexCondition(plan, "IDX_JOBS_STATUS");
+        assertTrue(seek.contains("STATUS"), plan);
+        assertFalse(seek.contains("ASSIGNED_VEHICLE_ID"), plan);
+        assertFalse(seek.contains("START_TIME"), plan);
+    }
+
+    @Test
+    void routeOfVehicleAndDateUsesVehicleDateIndex() {
+        LocalDate date = LocalDate.of(2026, 1, 5);
+        String sql = capture(() -> routeRepository.findWithStopsByVehicleIdAndRouteDate(3L, date));
+        assertUsesIndex("idx_routes_vehicle_date", sql, 3L, date);
+    }
+
+    @Test
+    void routesOfDateUseDateIndex() {
+        LocalDate date = LocalDate.of(2026, 1, 5);
+        String sql = capture(() -> routeRepository.findWithStopsByRouteDate(date));
+        assertUsesIndex("idx_routes_date", sql, date);
+    }
+
+    @Test
+    void overdueStopsUseOverdueIndex() {
+        LocalDateTime now = LocalDateTime.of(2026, 7, 20, 12, 0);
+        String sql = capture(() -> routeStopRepository.findOverdueStops(now));
+        assertUsesIndex("idx_route_stops_overdue", sql, now);
+    }
+
+    @Test
+    void nearbyJobsUseStatusGridCellIndex() {
+        List<Long> cells = List.of(18822919L, 18822920L);
+        String sql = capture(() -> jobRepository.findByStatusInGridCells(JobStatus.SCHEDULED, cells,
+                40.6, 40.8, -74.1, -73.9));
+        assertUsesIndex("idx_jobs_status_grid_cell", sql,
+                "SCHEDULED", cells.get(0), cells.get(1), 40.6, 40.8, -74.1, -73.9);
+    }
+
+    /**
+     * The first statement Hibernate sends for the query (later ones load eager associations)
+     */
+    private static String capture(Runnable query) {
+        SqlRecorder.STATEMENTS.get().clear();
+        query.run();
+        List<String> statements = SqlRecorder.STATEMENTS.get();
+        assertFalse(statements.isEmpty(), "no SQL was sent");
+        return statements.get(0);
+    }
+
+    private void assertUsesIndex(String index, String sql, Object... parameters) {
+        String plan = explain(sql, parameters);
+        assertTrue(plan.contains(index.toUpperCase()), "expected " + index + " in plan:\n" + plan);
+    }
+
+    /**
+     * The conditions the plan seeks on in the first index whose name starts with the prefix
+     */
+    private static String indexCondition(String plan, String indexPrefix) {
+        int index = plan.indexOf(indexPrefix);
+        assertTrue(index >= 0, "expected " + indexPrefix + " in plan:\n" + plan);
+        return plan.substring(index, plan.indexOf("*/", index));
+    }
+
+    private String explain(String sql, Object... parameters) {
+        assertEquals(parameters.length, sql.chars().filter(c -> c == '?').count(), "parameters of " + sql);
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters));
+    }
+
+    /**
+     * Keeps the SQL each thread sends, so scheduled jobs running alongside a test don't mix in
+     */
+    public static class SqlRecorder implements StatementInspector {
+        static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.get().add(sql);
+            return sql;
+        }
+    }
+}
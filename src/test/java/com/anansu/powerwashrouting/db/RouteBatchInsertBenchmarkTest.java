@@ -0,0 +1,144 @@
+package com.anansu.powerwashrouting.db;
+
+import com.anansu.powerwashrouting.model.Job;
+import com.anansu.powerwashrouting.model.Route;
+import com.anansu.powerwashrouting.model.RouteStop;
+import com.anansu.powerwashrouting.model.ServiceType;
+import com.anansu.powerwashrouting.model.Vehicle;
+import com.anansu.powerwashrouting.model.VehicleType;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.SessionEventListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JDBC round trips needed to save one generated day (routes, stops and the assigned jobs), with
+ * inserts sent one row at a time as identity ids forced, and with the configured batching.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:batch-benchmark;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "routing.prefetch.enabled=false",
+        "spring.jpa.properties.hibernate.session.events.auto="
+                + "com.anansu.powerwashrouting.db.RouteBatchInsertBenchmarkTest$RoundTripCounter"
+})
+class RouteBatchInsertBenchmarkTest {
+
+    private static final int VEHICLES = 10;
+    private static final int STOPS_PER_ROUTE = 30;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private JobRepository jobRepository;
+
+    @Autowired
+    private RouteRepository routeRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void generatedDayIsSavedInBatches() {
+        List<Long> vehicleIds = new ArrayList<>();
+        List<Long> jobIds = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int v = 0; v < VEHICLES; v++) {
+                vehicleIds.add(vehicleRepository.save(new Vehicle("BENCH-" + v, VehicleType.TRUCK)).getId());
+            }
+            List<Job> jobs = new ArrayList<>();
+            for (int j = 0; j < VEHICLES * STOPS_PER_ROUTE; j++) {
+                jobs.add(new Job("C" + j, j + " Main St", 40.7 + j * 0.001, -74.0 - j * 0.001, ServiceType.HOUSE_WASHING));
+            }
+            jobRepository.saveAll(jobs).forEach(job -> jobIds.add(job.getId()));
+        });
+
+        int unbatched = saveDay(LocalDate.of(2026, 10, 20), vehicleIds, jobIds, 1);
+        int batched = saveDay(LocalDate.of(2026, 10, 21), vehicleIds, jobIds, null);
+
+        int rows = VEHICLES + 2 * VEHICLES * STOPS_PER_ROUTE;
+        System.out.println("Saving a day of " + VEHICLES + " routes and " + VEHICLES * STOPS_PER_ROUTE + " stops ("
+                + rows + " rows): " + unbatched + " round trips unbatched, " + batched + " batched");
+
+        assertTrue(unbatched >= rows, "every row should be its own statement without batching");
+        assertTrue(batched <= 25, "expected a handful of batches per table, got " + batched + " round trips");
+    }
+
+    /**
+     * Save routes and update the jobs of one day the way route generation does, and count the
+     * round trips from the first save to the commit
+     */
+    private int saveDay(LocalDate date, List<Long> vehicleIds, List<Long> jobIds, Integer batchSize) {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            List<Vehicle> vehicles = vehicleRepository.findAllById(vehicleIds);
+            List<Job> jobs = jobRepository.findAllById(jobIds);
+            RoundTripCounter.start();
+
+            List<Route> routes = new ArrayList<>();
+            for (int v = 0; v < vehicles.size(); v++) {
+                Route route = new Route(date, vehicles.get(v));
+                List<RouteStop> stops = new ArrayList<>();
+                for (int s = 0; s < STOPS_PER_ROUTE; s++) {
+                    Job job = jobs.get(v * STOPS_PER_ROUTE + s);
+                    stops.add(new RouteStop(route, job, s + 1));
+                    job.setAssignedVehicleId(vehicles.get(v).getId());
+                    job.setScheduledStartTime(date.atTime(8, 0).plusMinutes(s * 20L));
+                }
+                route.setStops(stops);
+                routes.add(route);
+            }
+            routeRepository.saveAll(routes);
+            jobRepository.saveAll(jobs);
+        });
+        return RoundTripCounter.stop();
+    }
+
+    /**
+     * Counts statements and batches executed on the thread being measured
+     */
+    public static class RoundTripCounter implements SessionEventListener {
+        private static final AtomicInteger roundTrips = new AtomicInteger();
+        private static volatile Thread measuredThread;
+
+        static void start() {
+            roundTrips.set(0);
+            measuredThread = Thread.currentThread();
+        }
+
+        static int stop() {
+            measuredThread = null;
+            return roundTrips.get();
+        }
+
+        @Override
+        public void jdbcExecuteStatementEnd() {
+            count();
+        }
+
+        @Override
+        public void jdbcExecuteBatchEnd() {
+            count();
+        }
+
+        private void count() {
+            if (Thread.currentThread() == measuredThread) {
+                roundTrips.incrementAndGet();
+            }
+        }
+    }
+}
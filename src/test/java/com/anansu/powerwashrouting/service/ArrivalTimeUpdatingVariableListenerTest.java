@@ -0,0 +1,288 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.model.ServiceType;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
+import org.optaplanner.core.api.score.stream.ConstraintStreamImplType;
+import org.optaplanner.core.api.solver.SolverFactory;
+import org.optaplanner.core.config.score.director.ScoreDirectorFactoryConfig;
+import org.optaplanner.core.config.solver.SolverConfig;
+import org.optaplanner.core.impl.score.director.InnerScoreDirector;
+import org.optaplanner.core.impl.score.director.InnerScoreDirectorFactory;
+import org.optaplanner.core.impl.solver.DefaultSolverFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Chain moves done the way the solver's change and swap moves do them, through a real score
+ * director, so the incremental arrival times can be compared against walking every chain again.
+ */
+class ArrivalTimeUpdatingVariableListenerTest {
+
+    private static final int VEHICLES = 3;
+    private static final int CUSTOMERS = 12;
+
+    private final Random random = new Random(42);
+
+    private VehicleRoutingSolution solution;
+    private InnerScoreDirector<VehicleRoutingSolution, HardMediumSoftScore> scoreDirector;
+
+    @BeforeEach
+    void buildProblem() {
+        int size = 1 + VEHICLES + CUSTOMERS;
+        TravelTimeMatrix travel = new TravelTimeMatrix(size);
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                // Asymmetric on purpose: reversing a leg changes the times
+                if (from != to) {
+                    travel.set(from, to, 5 + random.nextInt(40), 1000 + random.nextInt(20_000));
+                }
+            }
+        }
+
+        List<OptimizationVehicle> vehicles = new ArrayList<>();
+        for (int v = 0; v < VEHICLES; v++) {
+            OptimizationVehicle vehicle = new OptimizationVehicle((long) v + 1, 3);
+            vehicle.setDepot(new Location(40.70, -74.00));
+            vehicle.setLocationIndex(1 + v);
+            vehicle.setTravelMatrix(travel);
+            vehicle.setDepartureTime(LocalDateTime.of(2026, 3, 2, 7 + v, 30));
+            vehicles.add(vehicle);
+        }
+        List<Customer> customers = new ArrayList<>();
+        for (int c = 0; c < CUSTOMERS; c++) {
+            Customer customer = new Customer((long) c + 1, new Location(40.70 + c * 0.01, -74.00),
+                    ServiceType.WINDOW_CLEANING);
+            customer.setLocationIndex(1 + VEHICLES + c);
+            customer.setTravelMatrix(travel);
+            customer.setServiceTimeMinutes(30 + random.nextInt(120));
+            customer.setRequiredCrewSize(1);
+            // Some customers only open later in the day, so vehicles wait there
+            if (c % 3 == 0) {
+                customer.setReadyMinute(600 + random.nextInt(240));
+            }
+            customers.add(customer);
+        }
+        solution = new VehicleRoutingSolution(vehicles, customers);
+        solution.setTravelMatrix(travel);
+
+        SolverConfig solverConfig = new SolverConfig()
+                .withSolutionClass(VehicleRoutingSolution.class)
+                .withEntityClasses(Standstill.class, Customer.class)
+                .withScoreDirectorFactory(new ScoreDirectorFactoryConfig()
+                        .withConstraintProviderClass(VehicleRoutingConstraintProvider.class)
+                        .withConstraintStreamImplType(ConstraintStreamImplType.BAVET));
+        InnerScoreDirectorFactory<VehicleRoutingSolution, HardMediumSoftScore> scoreDirectorFactory =
+                ((DefaultSolverFactory<VehicleRoutingSolution>) SolverFactory.<VehicleRoutingSolution>create(solverConfig))
+                        .getScoreDirectorFactory();
+        scoreDirector = scoreDirectorFactory.buildScoreDirector();
+        scoreDirector.setWorkingSolution(solution);
+    }
+
+    @AfterEach
+    void closeScoreDirector() {
+        scoreDirector.close();
+    }
+
+    @Test
+    void insertingAtTheFrontShiftsTheWholeChain() {
+        OptimizationVehicle vehicle = solution.getVehicles().get(0);
+        for (Customer customer : solution.getCustomers().subList(0, 4)) {
+            move(customer, lastOf(vehicle));
+            assertMatchesFullRecompute();
+        }
+
+        move(solution.getCustomers().get(4), vehicle);
+        assertMatchesFullRecompute();
+        assertEquals(5, vehicle.getCustomers().size());
+    }
+
+    @Test
+    void removingAStopPullsTheRestOfTheChainForward() {
+        OptimizationVehicle vehicle = solution.getVehicles().get(1);
+        for (Customer customer : solution.getCustomers().subList(0, 5)) {
+            move(customer, lastOf(vehicle));
+        }
+        assertMatchesFullRecompute();
+
+        Customer removed = solution.getCustomers().get(2);
+        unassign(removed);
+        assertMatchesFullRecompute();
+        assertNull(removed.getArrivalMinute());
+        assertNull(removed.getWaitMinutes());
+        assertNull(removed.getDepartureMinute());
+        assertEquals(4, vehicle.getCustomers().size());
+    }
+
+    @Test
+    void swappingStopsAcrossVehiclesRetimesBothChains() {
+        OptimizationVehicle first = solution.getVehicles().get(0);
+        OptimizationVehicle second = solution.getVehicles().get(2);
+        for (int c = 0; c < 8; c++) {
+            Customer customer = solution.getCustomers().get(c);
+            move(customer, lastOf(c % 2 == 0 ? first : second));
+        }
+        assertMatchesFullRecompute();
+
+        // Middle of one chain with the head of the other, then the two tails
+        swap(first.getCustomers().get(1), second.getCustomers().get(0));
+        assertMatchesFullRecompute();
+        swap((Customer) lastOf(first), (Customer) lastOf(second));
+        assertMatchesFullRecompute();
+    }
+
+    @Test
+    void randomMovesKeepTimesConsistentWithFullRecompute() {
+        List<Customer> customers = solution.getCustomers();
+        List<OptimizationVehicle> vehicles = solution.getVehicles();
+        for (Customer customer : customers) {
+            move(customer, lastOf(vehicles.get(random.nextInt(VEHICLES))));
+        }
+        assertMatchesFullRecompute();
+
+        for (int step = 0; step < 500; step++) {
+            Customer customer = customers.get(random.nextInt(CUSTOMERS));
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    // Change move: behind a vehicle or another customer, anywhere in any chain
+                    Standstill target = random.nextInt(4) == 0
+                            ? vehicles.get(random.nextInt(VEHICLES))
+                            : customers.get(random.nextInt(CUSTOMERS));
+                    if (target != customer && customer.getVehicle() != null && target.getVehicle() != null) {
+                        move(customer, target);
+                    }
+                }
+                case 1 -> {
+                    Customer other = customers.get(random.nextInt(CUSTOMERS));
+                    if (other != customer && customer.getVehicle() != null && other.getVehicle() != null) {
+                        swap(customer, other);
+                    }
+                }
+                default -> {
+                    if (customer.getVehicle() != null) {
+                        unassign(customer);
+                    } else {
+                        move(customer, lastOf(vehicles.get(random.nextInt(VEHICLES))));
+                    }
+                }
+            }
+            assertMatchesFullRecompute();
+        }
+    }
+
+    /**
+     * Change move: take the customer out of its chain and put it right behind {@code toPrevious}
+     */
+    private void move(Customer customer, Standstill toPrevious) {
+        if (customer.getPreviousStandstill() == toPrevious) {
+            return;
+        }
+        Standstill oldPrevious = customer.getPreviousStandstill();
+        Customer oldTrailing = customer.getNextCustomer();
+        Customer newTrailing = toPrevious.getNextCustomer();
+
+        if (oldTrailing != null) {
+            change(oldTrailing, oldPrevious);
+        }
+        change(customer, toPrevious);
+        if (newTrailing != null) {
+            change(newTrailing, customer);
+        }
+        scoreDirector.triggerVariableListeners();
+    }
+
+    /**
+     * Swap move: each customer takes the other's place, including when the two are adjacent
+     */
+    private void swap(Customer left, Customer right) {
+        if (right.getPreviousStandstill() == left) {
+            move(left, right);
+            return;
+        }
+        if (left.getPreviousStandstill() == right) {
+            move(right, left);
+            return;
+        }
+        Standstill leftPrevious = left.getPreviousStandstill();
+        Standstill rightPrevious = right.getPreviousStandstill();
+        Customer leftTrailing = left.getNextCustomer();
+        Customer rightTrailing = right.getNextCustomer();
+
+        change(left, rightPrevious);
+        change(right, leftPrevious);
+        if (rightTrailing != null) {
+            change(rightTrailing, left);
+        }
+        if (leftTrailing != null) {
+            change(leftTrailing, right);
+        }
+        scoreDirector.triggerVariableListeners();
+    }
+
+    /**
+     * Take the customer out of its chain, as a problem change removing a job does
+     */
+    private void unassign(Customer customer) {
+        Customer oldTrailing = customer.getNextCustomer();
+        if (oldTrailing != null) {
+            change(oldTrailing, customer.getPreviousStandstill());
+        }
+        change(customer, null);
+        scoreDirector.triggerVariableListeners();
+    }
+
+    private void change(Customer customer, Standstill previous) {
+        scoreDirector.beforeVariableChanged(customer, "previousStandstill");
+        customer.setPreviousStandstill(previous);
+        scoreDirector.afterVariableChanged(customer, "previousStandstill");
+    }
+
+    private static Standstill lastOf(OptimizationVehicle vehicle) {
+        List<Customer> customers = vehicle.getCustomers();
+        return customers.isEmpty() ? vehicle : customers.get(customers.size() - 1);
+    }
+
+    /**
+     * Walk every chain from its depot and check each stop against times computed from scratch
+     */
+    private void assertMatchesFullRecompute() {
+        int assigned = 0;
+        for (OptimizationVehicle vehicle : solution.getVehicles()) {
+            Standstill previous = vehicle;
+            int minute = vehicle.getDepartureMinute();
+            for (Customer customer : vehicle.getCustomers()) {
+                int arrival = minute + customer.getTravelMatrix()
+                        .getTravelMinutes(previous.getLocationIndex(), customer.getLocationIndex());
+                int wait = customer.getReadyMinute() == null ? 0 : Math.max(0, customer.getReadyMinute() - arrival);
+                minute = arrival + wait + customer.getServiceTimeMinutes();
+
+                String stop = "customer " + customer.getId() + " of vehicle " + vehicle.getId();
+                assertEquals(vehicle, customer.getVehicle(), stop);
+                assertEquals(arrival, customer.getArrivalMinute(), stop);
+                assertEquals(wait, customer.getWaitMinutes(), stop);
+                assertEquals(minute, customer.getDepartureMinute(), stop);
+                previous = customer;
+                assigned++;
+            }
+        }
+        long unassigned = solution.getCustomers().stream()
+                .filter(customer -> customer.getPreviousStandstill() == null)
+                .peek(customer -> assertNull(customer.getArrivalMinute(), "unassigned customer " + customer.getId()))
+                .count();
+        assertEquals(CUSTOMERS, assigned + unassigned);
+        assertEquals(0, solution.getCustomers().stream()
+                .filter(customer -> customer.getPreviousStandstill() != null)
+                .filter(customer -> !Objects.equals(customer.getVehicle(), customer.getPreviousStandstill().getVehicle()))
+                .count());
+    }
+}
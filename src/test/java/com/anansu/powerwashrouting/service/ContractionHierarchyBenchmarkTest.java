@@ -0,0 +1,87 @@
+package com.anansu.powerwashrouting.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 500 x 500 matrix on a 300 x 300 street grid (90k junctions), a worst case for contraction.
+ * Building the hierarchy takes about a minute, so this only runs when asked for:
+ * {@code mvn test -Dtest=ContractionHierarchyBenchmarkTest -Drouting.benchmark=true}
+ */
+@EnabledIfSystemProperty(named = "routing.benchmark", matches = "true")
+class ContractionHierarchyBenchmarkTest {
+
+    private static final int SIDE = 300;
+    private static final int MATRIX_SIZE = 500;
+
+    @Test
+    void fiveHundredByFiveHundredMatrixOnAGrid() {
+        Random random = new Random(7);
+        RoadNetwork network = grid(random);
+
+        long start = System.nanoTime();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(network);
+        System.out.println("Contracted " + network.getNodeCount() + " nodes in " + millisSince(start) + "ms");
+
+        int[] sources = random.ints(MATRIX_SIZE, 0, network.getNodeCount()).toArray();
+        int[] targets = random.ints(MATRIX_SIZE, 0, network.getNodeCount()).toArray();
+        int[] times = new int[MATRIX_SIZE * MATRIX_SIZE];
+        int[] meters = new int[times.length];
+
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            start = System.nanoTime();
+            hierarchy.manyToMany(sources, targets, times, meters);
+            best = Math.min(best, millisSince(start));
+        }
+        System.out.println(MATRIX_SIZE + "x" + MATRIX_SIZE + " matrix in " + best + "ms (best of 5)");
+
+        // Spot-check rows against Dijkstra; a full check would take longer than the contraction
+        int[] sampleSources = Arrays.copyOf(sources, 10);
+        int[] sampleTimes = Arrays.copyOf(times, sampleSources.length * MATRIX_SIZE);
+        int[] sampleMeters = Arrays.copyOf(meters, sampleTimes.length);
+        ContractionHierarchyTest.assertMatchesDijkstra(network, sampleSources, targets, sampleTimes, sampleMeters);
+
+        // Generous bound so slow machines pass; a regression to plain searches is far above it
+        assertTrue(best < 2000, "matrix took " + best + "ms");
+    }
+
+    /**
+     * Two-way streets about 110 m apart with random driving times, meters three times the time
+     */
+    private static RoadNetwork grid(Random random) {
+        int n = SIDE * SIDE;
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        List<int[]> edges = new ArrayList<>();
+        for (int row = 0; row < SIDE; row++) {
+            for (int column = 0; column < SIDE; column++) {
+                int v = row * SIDE + column;
+                latitudes[v] = 40.60 + row * 0.001;
+                longitudes[v] = -74.10 + column * 0.0013;
+                if (column + 1 < SIDE) addStreet(edges, v, v + 1, 50 + random.nextInt(100));
+                if (row + 1 < SIDE) addStreet(edges, v, v + SIDE, 50 + random.nextInt(100));
+            }
+        }
+        int[] from = edges.stream().mapToInt(edge -> edge[0]).toArray();
+        int[] to = edges.stream().mapToInt(edge -> edge[1]).toArray();
+        int[] time = edges.stream().mapToInt(edge -> edge[2]).toArray();
+        return new RoadNetwork(latitudes, longitudes, from, to, time, Arrays.stream(time).map(t -> 3 * t).toArray());
+    }
+
+    private static void addStreet(List<int[]> edges, int a, int b, int time) {
+        edges.add(new int[]{a, b, time});
+        edges.add(new int[]{b, a, time});
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,210 @@
+package com.anansu.powerwashrouting.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hierarchy queries checked against plain Dijkstra on the uncontracted network
+ */
+class ContractionHierarchyTest {
+
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    @Test
+    void oneWayRoadsAreOnlyDrivenOneWay() {
+        // 0 -> 1 -> 2 -> 0 one-way, plus a slow two-way road between 0 and 2
+        RoadNetwork network = network(3,
+                new int[]{0, 1, 2, 0, 2},
+                new int[]{1, 2, 0, 2, 0},
+                new int[]{10, 10, 10, 50, 50});
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(network);
+
+        int[] nodes = {0, 1, 2};
+        int[] times = new int[9];
+        int[] meters = new int[9];
+        hierarchy.manyToMany(nodes, nodes, times, meters);
+
+        assertArrayEquals(new int[]{
+                0, 10, 20,
+                20, 0, 10,
+                10, 20, 0}, times);
+        assertMatchesDijkstra(network, nodes, nodes, times, meters);
+    }
+
+    @Test
+    void randomNetworkWithOneWayRoadsAndUnreachablePartsMatchesDijkstra() {
+        RoadNetwork network = randomNetwork(new Random(11), 150);
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(network);
+
+        // Every node both ways, plus nodes that did not snap
+        int[] nodes = new int[network.getNodeCount() + 1];
+        for (int v = 0; v < network.getNodeCount(); v++) nodes[v] = v;
+        nodes[network.getNodeCount()] = -1;
+
+        int[] times = new int[nodes.length * nodes.length];
+        int[] meters = new int[times.length];
+        hierarchy.manyToMany(nodes, nodes, times, meters);
+
+        assertMatchesDijkstra(network, nodes, nodes, times, meters);
+        int unreachable = (int) Arrays.stream(times).filter(time -> time == UNREACHABLE).count();
+        assertTrue(unreachable > 2 * nodes.length, "the network should have unreachable pairs, got " + unreachable);
+    }
+
+    @Test
+    void savedHierarchyLoadsBackTheSame(@TempDir Path directory) throws IOException {
+        RoadNetwork network = randomNetwork(new Random(5), 80);
+        ContractionHierarchy built = ContractionHierarchy.build(network);
+        Path file = directory.resolve("network.ch");
+        built.save(file);
+        ContractionHierarchy loaded = ContractionHierarchy.load(file);
+
+        assertEquals(built.getNodeCount(), loaded.getNodeCount());
+        int[] nodes = new int[network.getNodeCount()];
+        for (int v = 0; v < nodes.length; v++) {
+            nodes[v] = v;
+            assertEquals(built.getLatitude(v), loaded.getLatitude(v));
+            assertEquals(built.getLongitude(v), loaded.getLongitude(v));
+            assertEquals(v, loaded.nearestNode(network.getLatitude(v), network.getLongitude(v), 10));
+        }
+
+        int[] builtTimes = new int[nodes.length * nodes.length];
+        int[] builtMeters = new int[builtTimes.length];
+        int[] loadedTimes = new int[builtTimes.length];
+        int[] loadedMeters = new int[builtTimes.length];
+        built.manyToMany(nodes, nodes, builtTimes, builtMeters);
+        loaded.manyToMany(nodes, nodes, loadedTimes, loadedMeters);
+        assertArrayEquals(builtTimes, loadedTimes);
+        assertArrayEquals(builtMeters, loadedMeters);
+    }
+
+    @Test
+    void loadingAnotherFileFails(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("region.osm.pbf");
+        Files.write(file, new byte[]{0, 0, 0, 13, 10, 9});
+        assertThrows(IOException.class, () -> ContractionHierarchy.load(file));
+    }
+
+    @Test
+    void locationsAreSnappedOnlyWithinTheGivenDistance() {
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(network(3,
+                new int[]{0, 1}, new int[]{1, 2}, new int[]{10, 10}));
+
+        // Nodes are 0.01 degrees (about 1.1 km) apart along a meridian
+        assertEquals(1, hierarchy.nearestNode(40.7112, -74.0, 500));
+        assertEquals(2, hierarchy.nearestNode(40.7190, -74.0, 500));
+        assertEquals(-1, hierarchy.nearestNode(40.7300, -74.0, 500));
+        assertEquals(2, hierarchy.nearestNode(40.7300, -74.0, 2000));
+    }
+
+    /**
+     * Nodes 0.01 degrees apart along a meridian; edge meters are three times the edge time
+     */
+    private static RoadNetwork network(int nodeCount, int[] from, int[] to, int[] time) {
+        double[] latitudes = new double[nodeCount];
+        double[] longitudes = new double[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            latitudes[v] = 40.70 + v * 0.01;
+            longitudes[v] = -74.0;
+        }
+        return new RoadNetwork(latitudes, longitudes, from, to, time,
+                Arrays.stream(time).map(t -> 3 * t).toArray());
+    }
+
+    /**
+     * Random roads, a third of them one-way, plus a separate cluster of ten nodes and a
+     * node without any road. Edge meters are three times the edge time, so every shortest path
+     * has known meters whichever of several equal paths is found.
+     */
+    private static RoadNetwork randomNetwork(Random random, int nodeCount) {
+        int clusterStart = nodeCount - 10;
+        double[] latitudes = new double[nodeCount];
+        double[] longitudes = new double[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            latitudes[v] = 40.60 + random.nextDouble() * 0.2;
+            longitudes[v] = -74.10 + random.nextDouble() * 0.2;
+        }
+
+        List<int[]> edges = new ArrayList<>();
+        for (int v = 0; v < nodeCount - 1; v++) {
+            int roads = v < clusterStart ? 3 : 2;
+            for (int r = 0; r < roads; r++) {
+                int w;
+                if (v < clusterStart) {
+                    w = random.nextInt(clusterStart);
+                } else {
+                    w = clusterStart + random.nextInt(nodeCount - 1 - clusterStart);
+                }
+                if (w == v) continue;
+                int time = 10 + random.nextInt(500);
+                edges.add(new int[]{v, w, time});
+                if (random.nextInt(3) != 0) {
+                    edges.add(new int[]{w, v, 10 + random.nextInt(500)});
+                }
+            }
+        }
+
+        int[] from = edges.stream().mapToInt(edge -> edge[0]).toArray();
+        int[] to = edges.stream().mapToInt(edge -> edge[1]).toArray();
+        int[] time = edges.stream().mapToInt(edge -> edge[2]).toArray();
+        return new RoadNetwork(latitudes, longitudes, from, to, time, Arrays.stream(time).map(t -> 3 * t).toArray());
+    }
+
+    static void assertMatchesDijkstra(RoadNetwork network, int[] sources, int[] targets, int[] times, int[] meters) {
+        for (int s = 0; s < sources.length; s++) {
+            int[] expected = sources[s] < 0 ? null : dijkstra(network, sources[s]);
+            for (int t = 0; t < targets.length; t++) {
+                int cell = s * targets.length + t;
+                int expectedTime = expected == null || targets[t] < 0 ? UNREACHABLE : expected[targets[t]];
+                String pair = sources[s] + " -> " + targets[t];
+                assertEquals(expectedTime, times[cell], pair);
+                if (expectedTime != UNREACHABLE) {
+                    assertEquals(3L * expectedTime, meters[cell], pair);
+                }
+            }
+        }
+    }
+
+    /**
+     * Shortest travel times from the source to every node, on the network as read
+     */
+    static int[] dijkstra(RoadNetwork network, int source) {
+        int n = network.getNodeCount();
+        List<List<Integer>> outgoing = new ArrayList<>();
+        for (int v = 0; v < n; v++) outgoing.add(new ArrayList<>());
+        for (int e = 0; e < network.getEdgeCount(); e++) outgoing.get(network.getEdgeFrom(e)).add(e);
+
+        int[] time = new int[n];
+        Arrays.fill(time, UNREACHABLE);
+        time[source] = 0;
+        PriorityQueue<long[]> queue = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        queue.add(new long[]{0, source});
+        while (!queue.isEmpty()) {
+            long[] entry = queue.poll();
+            int node = (int) entry[1];
+            if (entry[0] > time[node]) continue;
+            for (int e : outgoing.get(node)) {
+                int next = network.getEdgeTo(e);
+                int nextTime = time[node] + network.getEdgeTime(e);
+                if (nextTime < time[next]) {
+                    time[next] = nextTime;
+                    queue.add(new long[]{nextTime, next});
+                }
+            }
+        }
+        return time;
+    }
+}
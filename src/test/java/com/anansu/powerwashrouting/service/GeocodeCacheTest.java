@@ -0,0 +1,132 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.db.GeocodeEntryRepository;
+import com.anansu.powerwashrouting.service.GeocodeCache.GeocodeStats;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Each test builds its own cache over the shared database table, so the memory tier starts empty
+ * and its size can be set small.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:geocode-cache;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "routing.prefetch.enabled=false"
+})
+class GeocodeCacheTest {
+
+    private static final Location MAIN_STREET = new Location(40.7411, -73.9897);
+    private static final Location OAK_AVENUE = new Location(40.6782, -73.9442);
+
+    @Autowired
+    private GeocodeEntryRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clearTable() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void spellingVariantsOfAnAddressShareAnEntry() {
+        assertEquals("12 n main st, springfield", GeocodeCache.normalize("12  North Main Street, Springfield."));
+
+        GeocodeCache cache = cache(100);
+        cache.put("12 North Main Street, Springfield", MAIN_STREET);
+
+        assertAt(MAIN_STREET, cache.get("12 n. main st., SPRINGFIELD"));
+        assertNull(cache.get("14 North Main Street, Springfield"));
+
+        GeocodeStats stats = cache.getStats();
+        assertEquals(1, stats.getMemoryHits());
+        assertEquals(0, stats.getStoredHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(0.5, stats.getHitRate());
+    }
+
+    @Test
+    void memoryTierEvictsTheLeastRecentlyUsedAddress() {
+        GeocodeCache cache = cache(1);
+        cache.put("12 Main St", MAIN_STREET);
+        cache.put("7 Oak Ave", OAK_AVENUE);
+
+        assertEquals(1, cache.getStats().getEvictions());
+        assertEquals(1, cache.getStats().getMemoryAddresses());
+        assertEquals(2, cache.getStats().getStoredAddresses());
+
+        // The evicted address is still stored, and comes back into memory once read
+        assertAt(MAIN_STREET, cache.get("12 Main Street"));
+        assertAt(MAIN_STREET, cache.get("12 Main Street"));
+        assertEquals(1, cache.getStats().getStoredHits());
+        assertEquals(1, cache.getStats().getMemoryHits());
+    }
+
+    @Test
+    void storedAddressesOlderThanTheTimeToLiveAreMisses() {
+        cache(100).put("12 Main St", MAIN_STREET);
+
+        setFetchedAt(LocalDateTime.now().minusDays(181));
+        GeocodeCache expired = cache(100);
+        assertNull(expired.get("12 Main St"));
+        assertEquals(1, expired.getStats().getMisses());
+        assertEquals(0, expired.getStats().getHitRate());
+
+        setFetchedAt(LocalDateTime.now().minusDays(179));
+        GeocodeCache fresh = cache(100);
+        assertAt(MAIN_STREET, fresh.get("12 Main St"));
+        assertEquals(1, fresh.getStats().getStoredHits());
+    }
+
+    @Test
+    void getAllCombinesMemoryAndStoredHits() {
+        cache(100).put("7 Oak Avenue", OAK_AVENUE);
+        GeocodeCache cache = cache(100);
+        cache.put("12 Main St", MAIN_STREET);
+
+        Map<String, Location> found = cache.getAll(List.of("12 Main Street", "7 Oak Ave", "7 oak avenue", "1 Elm St"));
+        assertEquals(3, found.size());
+        assertAt(MAIN_STREET, found.get("12 Main Street"));
+        assertAt(OAK_AVENUE, found.get("7 Oak Ave"));
+        assertAt(OAK_AVENUE, found.get("7 oak avenue"));
+
+        GeocodeStats stats = cache.getStats();
+        assertEquals(1, stats.getMemoryHits());
+        assertEquals(2, stats.getStoredHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(2, stats.getMemoryAddresses());
+    }
+
+    private GeocodeCache cache(int maxMemoryEntries) {
+        return new GeocodeCache(repository, transactionManager, maxMemoryEntries, 180);
+    }
+
+    private static void assertAt(Location expected, Location actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getLatitude(), actual.getLatitude());
+        assertEquals(expected.getLongitude(), actual.getLongitude());
+    }
+
+    private void setFetchedAt(LocalDateTime fetchedAt) {
+        jdbcTemplate.update("UPDATE geocode_cache SET fetched_at = ?", Timestamp.valueOf(fetchedAt));
+    }
+}
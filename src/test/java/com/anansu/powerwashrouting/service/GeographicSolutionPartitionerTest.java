@@ -0,0 +1,149 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.model.ServiceType;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.director.ScoreDirector;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GeographicSolutionPartitionerTest {
+
+    private static final Location DEPOT = new Location(40.70, -74.00);
+    private static final LocalDateTime WORK_START = LocalDateTime.of(2026, 3, 2, 8, 0);
+    private static final LocalDateTime WORK_END = LocalDateTime.of(2026, 3, 2, 18, 0);
+
+    @Test
+    void everyCustomerEndsUpInExactlyOnePartition() {
+        VehicleRoutingSolution solution = solution(6, 40);
+        List<VehicleRoutingSolution> partitions = split(solution, 10);
+
+        assertEquals(4, partitions.size());
+        Map<Long, Integer> partitionsPerCustomer = new HashMap<>();
+        for (VehicleRoutingSolution partition : partitions) {
+            assertFalse(partition.getCustomers().isEmpty());
+            for (Customer customer : partition.getCustomers()) {
+                partitionsPerCustomer.merge(customer.getId(), 1, Integer::sum);
+            }
+        }
+        assertEquals(40, partitionsPerCustomer.size());
+        partitionsPerCustomer.forEach((id, count) -> assertEquals(1, count, "customer " + id));
+    }
+
+    @Test
+    void partitionsGetTheirOwnCopiesOfVehiclesCustomersAndSharedFacts() {
+        VehicleRoutingSolution solution = solution(6, 40);
+        List<VehicleRoutingSolution> partitions = split(solution, 10);
+
+        Map<Long, OptimizationVehicle> originals = new HashMap<>();
+        solution.getVehicles().forEach(vehicle -> originals.put(vehicle.getId(), vehicle));
+
+        int vehicleCopies = 0;
+        for (VehicleRoutingSolution partition : partitions) {
+            assertSame(DEPOT, partition.getDepot());
+            assertSame(solution.getTravelMatrix(), partition.getTravelMatrix());
+            assertEquals(WORK_START, partition.getWorkStart());
+            assertEquals(WORK_END, partition.getWorkEnd());
+
+            assertFalse(partition.getVehicles().isEmpty(), "every sector needs a vehicle to route it");
+            for (OptimizationVehicle copy : partition.getVehicles()) {
+                OptimizationVehicle original = originals.remove(copy.getId());
+                assertNotSame(original, copy);
+                assertEquals(original.getCapacity(), copy.getCapacity());
+                assertEquals(original.getCapabilities(), copy.getCapabilities());
+                assertSame(original.getDepot(), copy.getDepot());
+                assertEquals(original.getLocationIndex(), copy.getLocationIndex());
+                assertEquals(original.getDepartureMinute(), copy.getDepartureMinute());
+                assertNull(copy.getNextCustomer());
+                vehicleCopies++;
+            }
+            for (Customer copy : partition.getCustomers()) {
+                assertFalse(solution.getCustomers().contains(copy));
+                assertNull(copy.getPreviousStandstill());
+            }
+        }
+        // The fleet is shared out: each vehicle routes exactly one sector
+        assertEquals(6, vehicleCopies);
+        assertEquals(Map.of(), originals);
+    }
+
+    @Test
+    void problemSmallerThanPartitionSizeStaysWhole() {
+        VehicleRoutingSolution solution = solution(3, 5);
+        List<VehicleRoutingSolution> partitions = split(solution, 150);
+
+        assertEquals(1, partitions.size());
+        VehicleRoutingSolution partition = partitions.get(0);
+        assertEquals(3, partition.getVehicles().size());
+        assertEquals(5, partition.getCustomers().size());
+        assertSame(DEPOT, partition.getDepot());
+    }
+
+    @Test
+    void moreSectorsThanVehiclesAreMergedToOnePerVehicle() {
+        VehicleRoutingSolution solution = solution(2, 40);
+        List<VehicleRoutingSolution> partitions = split(solution, 10);
+
+        assertEquals(2, partitions.size());
+        assertEquals(40, partitions.stream().mapToInt(partition -> partition.getCustomers().size()).sum());
+        partitions.forEach(partition -> assertEquals(1, partition.getVehicles().size()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<VehicleRoutingSolution> split(VehicleRoutingSolution solution, int partitionSize) {
+        ScoreDirector<VehicleRoutingSolution> scoreDirector = mock(ScoreDirector.class);
+        when(scoreDirector.getWorkingSolution()).thenReturn(solution);
+
+        GeographicSolutionPartitioner partitioner = new GeographicSolutionPartitioner();
+        partitioner.setPartitionSize(partitionSize);
+        return partitioner.splitWorkingSolution(scoreDirector, null);
+    }
+
+    /**
+     * Customers on a ring around the depot, so the sweep has every bearing to cut
+     */
+    private static VehicleRoutingSolution solution(int vehicleCount, int customerCount) {
+        TravelTimeMatrix travel = new TravelTimeMatrix(1 + customerCount);
+
+        List<OptimizationVehicle> vehicles = new ArrayList<>();
+        for (int v = 0; v < vehicleCount; v++) {
+            OptimizationVehicle vehicle = new OptimizationVehicle((long) v + 1, 2 + v % 2);
+            vehicle.setCapabilities(v % 2 == 0 ? Set.of(ServiceType.PRESSURE_WASHING) : Set.of(ServiceType.ROOF_CLEANING));
+            vehicle.setDepot(DEPOT);
+            vehicle.setTravelMatrix(travel);
+            vehicle.setDepartureTime(WORK_START);
+            vehicles.add(vehicle);
+        }
+
+        List<Customer> customers = new ArrayList<>();
+        for (int c = 0; c < customerCount; c++) {
+            double bearing = 2 * Math.PI * c / customerCount;
+            Location location = new Location(DEPOT.getLatitude() + 0.1 * Math.cos(bearing),
+                    DEPOT.getLongitude() + 0.1 * Math.sin(bearing));
+            Customer customer = new Customer((long) c + 1, location, ServiceType.PRESSURE_WASHING);
+            customer.setLocationIndex(1 + c);
+            customer.setTravelMatrix(travel);
+            customer.setServiceTimeMinutes(60 + (c % 4) * 30);
+            customers.add(customer);
+        }
+
+        VehicleRoutingSolution solution = new VehicleRoutingSolution(vehicles, customers);
+        solution.setDepot(DEPOT);
+        solution.setWorkingHours(WORK_START, WORK_END);
+        solution.setTravelMatrix(travel);
+        return solution;
+    }
+}
@@ -0,0 +1,37 @@
+package com.anansu.powerwashrouting.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GoogleMapsServiceTest {
+
+    private final GoogleMapsService googleMapsService = new GoogleMapsService(1);
+
+    @AfterEach
+    void shutdown() {
+        googleMapsService.shutdown();
+    }
+
+    @Test
+    void departureIsTheDepotsLocalTime() {
+        ReflectionTestUtils.setField(googleMapsService, "depotTimeZone", "America/New_York");
+
+        // 08:00 EST is 13:00 UTC in winter, 08:00 EDT is 12:00 UTC in summer
+        assertEquals("1898859600", googleMapsService.departureTimeParam(LocalDateTime.of(2030, 3, 4, 8, 0)));
+        assertEquals("1909137600", googleMapsService.departureTimeParam(LocalDateTime.of(2030, 7, 1, 8, 0)));
+    }
+
+    @Test
+    void pastDeparturesAreSentAsNow() {
+        ReflectionTestUtils.setField(googleMapsService, "depotTimeZone", "America/New_York");
+
+        assertEquals("now", googleMapsService.departureTimeParam(LocalDateTime.of(2024, 3, 4, 8, 0)));
+        assertEquals("now", googleMapsService.departureTimeParam(LocalDateTime.now(ZoneId.of("America/New_York")).minusMinutes(1)));
+    }
+}
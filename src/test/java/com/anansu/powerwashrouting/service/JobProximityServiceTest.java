@@ -0,0 +1,179 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.db.JobRepository;
+import com.anansu.powerwashrouting.model.Job;
+import com.anansu.powerwashrouting.model.JobStatus;
+import com.anansu.powerwashrouting.model.ServiceType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The repository is a mock answering its two queries from an in-memory list the way the
+ * database would, and recording the search areas it was asked for
+ */
+class JobProximityServiceTest {
+
+    private static final double LATITUDE = 40.7128;
+    private static final double LONGITUDE = -74.0060;
+    private static final double KM_PER_DEGREE_LATITUDE = GeoKernel.EARTH_RADIUS_METERS / 1000 * Math.PI / 180;
+
+    private final List<Job> jobs = new ArrayList<>();
+    private final List<Search> searches = new ArrayList<>();
+    private JobProximityService service;
+
+    @BeforeEach
+    void setUp() {
+        JobRepository jobRepository = mock(JobRepository.class);
+        when(jobRepository.findByStatusInGridCells(any(), anyCollection(), anyDouble(), anyDouble(), anyDouble(), anyDouble()))
+                .thenAnswer(call -> search(call.getArgument(0), call.getArgument(1), call.getArgument(2),
+                        call.getArgument(3), call.getArgument(4), call.getArgument(5)));
+        when(jobRepository.findByStatusInBoundingBox(any(), anyDouble(), anyDouble(), anyDouble(), anyDouble()))
+                .thenAnswer(call -> search(call.getArgument(0), null, call.getArgument(1),
+                        call.getArgument(2), call.getArgument(3), call.getArgument(4)));
+
+        service = new JobProximityService();
+        ReflectionTestUtils.setField(service, "jobRepository", jobRepository);
+    }
+
+    @Test
+    void nearestSearchDoublesTheRadiusUntilEnoughJobsAreFound() {
+        Job at6 = jobNorth(6, JobStatus.SCHEDULED);
+        Job at1 = jobNorth(1.5, JobStatus.SCHEDULED);
+        Job at3 = jobNorth(3, JobStatus.SCHEDULED);
+        jobNorth(30, JobStatus.SCHEDULED);
+        jobNorth(0.5, JobStatus.COMPLETED);
+
+        List<Job> nearest = service.findNearestJobs(LATITUDE, LONGITUDE, 3);
+
+        assertEquals(List.of(at1, at3, at6), nearest);
+        assertEquals(List.of(2.0, 4.0, 8.0), radii());
+    }
+
+    @Test
+    void nearestSearchStopsAtTwoHundredKilometres() {
+        Job at150 = jobNorth(150, JobStatus.SCHEDULED);
+        jobNorth(250, JobStatus.SCHEDULED);
+
+        List<Job> nearest = service.findNearestJobs(LATITUDE, LONGITUDE, 2);
+
+        assertEquals(List.of(at150), nearest);
+        assertEquals(List.of(2.0, 4.0, 8.0, 16.0, 32.0, 64.0, 128.0, 200.0), radii());
+    }
+
+    @Test
+    void smallAreasAreSearchedByGridCellAndLargeOnesByBoundingBox() {
+        Job at5 = jobNorth(5, JobStatus.SCHEDULED);
+        Job at60 = jobNorth(60, JobStatus.SCHEDULED);
+
+        assertEquals(List.of(at5), service.findJobsWithinRadius(LATITUDE, LONGITUDE, 10));
+        Search small = searches.get(0);
+        assertNotNull(small.cells);
+        assertTrue(small.cells.size() <= 400, small.cells.size() + " cells");
+        assertTrue(small.cells.contains(Job.gridCellOf(LATITUDE, LONGITUDE)));
+        // Every cell of the box is listed, corners included
+        assertTrue(small.cells.contains(Job.gridCellOf(small.minLatitude, small.minLongitude)));
+        assertTrue(small.cells.contains(Job.gridCellOf(small.maxLatitude, small.maxLongitude)));
+
+        // 100 km spans about 1,800 cells, far past the 400 an IN list is worth
+        assertEquals(List.of(at5, at60), service.findJobsWithinRadius(LATITUDE, LONGITUDE, 100));
+        Search large = searches.get(1);
+        assertNull(large.cells);
+        assertEquals(100, large.radiusKm(), 1e-9);
+    }
+
+    @Test
+    void jobsAcrossACellCornerAreAllFound() {
+        // The corner where four cells meet, just north-east of the search location
+        double rowEdge = (Job.gridRowOf(LATITUDE) + 1) * Job.GRID_CELL_DEGREES - 90;
+        double columnEdge = (Job.gridColumnOf(LONGITUDE) + 1) * Job.GRID_CELL_DEGREES - 180;
+        double latitude = rowEdge - 0.0005;
+        double longitude = columnEdge - 0.0005;
+
+        // About 100 m either side of both edges, so each job is in its own cell
+        double offset = 0.0009;
+        Job southWest = job(rowEdge - offset, columnEdge - offset, JobStatus.SCHEDULED);
+        Job southEast = job(rowEdge - offset, columnEdge + offset, JobStatus.SCHEDULED);
+        Job northWest = job(rowEdge + offset, columnEdge - offset, JobStatus.SCHEDULED);
+        Job northEast = job(rowEdge + offset, columnEdge + offset, JobStatus.SCHEDULED);
+        Set<Long> cells = jobs.stream().map(Job::getGridCell).collect(Collectors.toSet());
+        assertEquals(4, cells.size());
+        // Inside the box but outside the radius
+        job(latitude - 0.004, longitude - 0.004, JobStatus.SCHEDULED);
+
+        List<Job> found = service.findJobsWithinRadius(latitude, longitude, 0.5);
+
+        // A degree of longitude is shorter here than one of latitude
+        assertEquals(List.of(southWest, southEast, northWest, northEast), found);
+        assertTrue(searches.get(0).cells.containsAll(cells));
+    }
+
+    private List<Job> search(JobStatus status, Collection<Long> cells, double minLatitude, double maxLatitude,
+                             double minLongitude, double maxLongitude) {
+        searches.add(new Search(cells == null ? null : new HashSet<>(cells),
+                minLatitude, maxLatitude, minLongitude, maxLongitude));
+        return jobs.stream()
+                .filter(job -> job.getStatus() == status)
+                .filter(job -> cells == null || cells.contains(job.getGridCell()))
+                .filter(job -> job.getLatitude() >= minLatitude && job.getLatitude() <= maxLatitude)
+                .filter(job -> job.getLongitude() >= minLongitude && job.getLongitude() <= maxLongitude)
+                .collect(Collectors.toList());
+    }
+
+    private List<Double> radii() {
+        return searches.stream()
+                .map(search -> Math.round(search.radiusKm() * 1e6) / 1e6)
+                .collect(Collectors.toList());
+    }
+
+    private Job jobNorth(double km, JobStatus status) {
+        return job(LATITUDE + km / KM_PER_DEGREE_LATITUDE, LONGITUDE, status);
+    }
+
+    private Job job(double latitude, double longitude, JobStatus status) {
+        Job job = new Job("customer-" + jobs.size(), "address", latitude, longitude, ServiceType.HOUSE_WASHING);
+        job.setId((long) jobs.size() + 1);
+        job.setStatus(status);
+        // Set on save by the entity listener
+        ReflectionTestUtils.invokeMethod(job, "updateGridCell");
+        jobs.add(job);
+        return job;
+    }
+
+    private static class Search {
+        private final Set<Long> cells;
+        private final double minLatitude;
+        private final double maxLatitude;
+        private final double minLongitude;
+        private final double maxLongitude;
+
+        Search(Set<Long> cells, double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+            this.cells = cells;
+            this.minLatitude = minLatitude;
+            this.maxLatitude = maxLatitude;
+            this.minLongitude = minLongitude;
+            this.maxLongitude = maxLongitude;
+        }
+
+        double radiusKm() {
+            return (maxLatitude - minLatitude) / 2 * KM_PER_DEGREE_LATITUDE;
+        }
+    }
+}
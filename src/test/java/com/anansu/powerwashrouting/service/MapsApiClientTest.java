@@ -0,0 +1,242 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.MapsApiClient.CircuitState;
+import com.anansu.powerwashrouting.service.MapsResponseParser.GeocodeResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The client against a local HTTP server that answers each path with a scripted list of responses
+ */
+class MapsApiClientTest {
+
+    private static final String OK = "{\"status\":\"OK\",\"results\":[{\"geometry\":{\"location\":{\"lat\":40.7,\"lng\":-74.0}}}]}";
+
+    private final Map<String, Deque<Answer>> script = new ConcurrentHashMap<>();
+    private final List<MapsApiClient.ClientStats> statsSeenByServer = new CopyOnWriteArrayList<>();
+    private HttpServer server;
+    private MapsApiClient client;
+
+    private record Answer(int status, String body) {
+    }
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::answer);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void circuitOpensAfterRepeatedFailuresAndClosesAfterASuccessfulTrial() throws InterruptedException {
+        client = client(4, 1000, 1000, 1000, 1, 0, 2, 1);
+        script("/geocode", 500, 503, 200);
+
+        assertThrows(RuntimeException.class, this::geocode);
+        assertEquals(CircuitState.CLOSED, client.getStats().getCircuitState());
+        assertThrows(RuntimeException.class, this::geocode);
+        assertEquals(CircuitState.OPEN, client.getStats().getCircuitState());
+
+        // Open: calls fail without reaching the server
+        assertFalse(client.isAvailable());
+        assertThrows(RuntimeException.class, this::geocode);
+        assertEquals(2, client.getStats().getRequests());
+        assertEquals(1, client.getStats().getRejected());
+
+        // After the cool-down one trial goes through half-open, and its success closes the circuit
+        Thread.sleep(1100);
+        assertTrue(client.isAvailable());
+        assertEquals("OK", geocode().status());
+        assertEquals(CircuitState.HALF_OPEN, statsSeenByServer.get(2).getCircuitState());
+        assertEquals(CircuitState.CLOSED, client.getStats().getCircuitState());
+        assertEquals(2, client.getStats().getFailures());
+    }
+
+    @Test
+    void failedTrialOpensTheCircuitAgain() throws InterruptedException {
+        client = client(4, 1000, 1000, 1000, 1, 0, 1, 1);
+        script("/geocode", 502, 504);
+
+        assertThrows(RuntimeException.class, this::geocode);
+        assertEquals(CircuitState.OPEN, client.getStats().getCircuitState());
+
+        Thread.sleep(1100);
+        assertThrows(RuntimeException.class, this::geocode);
+        assertEquals(CircuitState.OPEN, client.getStats().getCircuitState());
+        assertFalse(client.isAvailable());
+        assertEquals(2, client.getStats().getRequests());
+    }
+
+    @Test
+    void clientErrorsAndUnreadableBodiesAreNotUpstreamFailures() {
+        client = client(4, 1000, 1000, 1000, 3, 0, 1, 30);
+        script("/geocode", 400, 403);
+        script("/geocode", new Answer(200, "<html>not json</html>"), new Answer(200, "[]"), new Answer(200, OK));
+
+        assertThrows(RuntimeException.class, this::geocode);
+        assertThrows(RuntimeException.class, this::geocode);
+        assertThrows(RuntimeException.class, this::geocode);
+        assertThrows(RuntimeException.class, this::geocode);
+
+        // Each was answered once, not retried, and a threshold of one failure did not open the circuit
+        MapsApiClient.ClientStats stats = client.getStats();
+        assertEquals(4, stats.getRequests());
+        assertEquals(0, stats.getRetries());
+        assertEquals(0, stats.getFailures());
+        assertEquals(CircuitState.CLOSED, stats.getCircuitState());
+        assertEquals("OK", geocode().status());
+    }
+
+    @Test
+    void transientFailuresAreRetried() {
+        client = client(4, 1000, 1000, 1000, 3, 10, 5, 30);
+        script("/geocode", new Answer(429, ""), new Answer(200, "{\"status\":\"OVER_QUERY_LIMIT\"}"), new Answer(200, OK));
+
+        GeocodeResponse response = geocode();
+        assertEquals(40.7, response.location().getLatitude());
+
+        MapsApiClient.ClientStats stats = client.getStats();
+        assertEquals(3, stats.getRequests());
+        assertEquals(2, stats.getRetries());
+        assertEquals(2, stats.getFailures());
+        assertEquals(CircuitState.CLOSED, stats.getCircuitState());
+        assertEquals(4, stats.getFreeRequestSlots());
+    }
+
+    @Test
+    void backoffHoldsNoRequestSlot() throws Exception {
+        // One slot; the retry backs off for at least 500 ms while the other caller waits at most 200 ms
+        client = client(1, 200, 1000, 1000, 2, 1000, 5, 30);
+        script("/retried", 503, 200);
+        script("/other", 200);
+        CountDownLatch firstAttemptAnswered = new CountDownLatch(1);
+        server.createContext("/retried", exchange -> {
+            answer(exchange);
+            firstAttemptAnswered.countDown();
+        });
+
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        try {
+            Future<GeocodeResponse> retried = callers.submit(() -> geocode("/retried"));
+            assertTrue(firstAttemptAnswered.await(5, TimeUnit.SECONDS));
+            Thread.sleep(50);
+
+            assertEquals(1, client.getStats().getFreeRequestSlots());
+            assertEquals("OK", geocode("/other").status());
+            assertEquals("OK", retried.get(5, TimeUnit.SECONDS).status());
+            assertEquals(0, client.getStats().getRejected());
+            assertEquals(1, client.getStats().getRetries());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void tokenBucketLimitsTheRateAfterTheBurst() {
+        client = client(4, 1000, 20, 2, 1, 0, 5, 30);
+        script("/geocode", 200, 200, 200, 200, 200, 200);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            geocode();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Two calls from the burst, then one every 50 ms
+        assertTrue(elapsedMillis >= 180, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void waitingForATokenHoldsNoRequestSlot() throws Exception {
+        // Token waits of 200 ms and more per call, slots given up after 100 ms: waiting on a slot would be rejected
+        client = client(1, 100, 5, 1, 1, 0, 5, 30);
+        script("/geocode", 200, 200, 200, 200, 200, 200);
+
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<GeocodeResponse>> calls = callers.invokeAll(List.of(
+                    this::geocode, this::geocode, this::geocode, this::geocode, this::geocode, this::geocode));
+            for (Future<GeocodeResponse> call : calls) {
+                assertEquals("OK", call.get(5, TimeUnit.SECONDS).status());
+            }
+            assertEquals(0, client.getStats().getRejected());
+            assertEquals(6, client.getStats().getRequests());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private MapsApiClient client(int maxConcurrent, long acquireTimeoutMillis, double requestsPerSecond, int burst,
+                                 int maxAttempts, long backoffMillis, int failureThreshold, int openSeconds) {
+        return new MapsApiClient(new ObjectMapper(), 1000, 2000, maxConcurrent, acquireTimeoutMillis,
+                requestsPerSecond, burst, maxAttempts, backoffMillis, failureThreshold, openSeconds);
+    }
+
+    private GeocodeResponse geocode() {
+        return geocode("/geocode");
+    }
+
+    private GeocodeResponse geocode(String path) {
+        return client.get("http://localhost:" + server.getAddress().getPort() + path, MapsResponseParser::readGeocode);
+    }
+
+    private void script(String path, int... statuses) {
+        for (int status : statuses) {
+            script(path, new Answer(status, status == 200 ? OK : "{\"error_message\":\"scripted\"}"));
+        }
+    }
+
+    private void script(String path, Answer... answers) {
+        Deque<Answer> queue = script.computeIfAbsent(path, key -> new ArrayDeque<>());
+        synchronized (queue) {
+            queue.addAll(List.of(answers));
+        }
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        if (client != null) {
+            statsSeenByServer.add(client.getStats());
+        }
+        Deque<Answer> queue = script.get(exchange.getRequestURI().getPath());
+        Answer answer;
+        synchronized (queue) {
+            answer = queue.poll();
+        }
+        byte[] body = answer.body().getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(answer.status(), body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
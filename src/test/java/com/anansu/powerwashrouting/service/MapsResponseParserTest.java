@@ -0,0 +1,153 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.MapsResponseParser.DirectionsResponse;
+import com.anansu.powerwashrouting.service.MapsResponseParser.DistanceMatrixResponse;
+import com.anansu.powerwashrouting.service.MapsResponseParser.GeocodeResponse;
+import com.anansu.powerwashrouting.service.MapsResponseParser.MapsResponse;
+import com.anansu.powerwashrouting.service.MapsResponseParser.Reader;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static com.anansu.powerwashrouting.service.MapsResponseParser.NO_VALUE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Recorded API responses from src/test/resources/maps, with addresses, polylines and steps left in
+ */
+class MapsResponseParserTest {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    @Test
+    void distanceMatrixPrefersTrafficAndLeavesFailedElementsUnanswered() throws IOException {
+        DistanceMatrixResponse response = readResource("distance-matrix.json", MapsResponseParser.distanceMatrix(2, 3));
+
+        assertEquals("OK", response.status());
+        // In traffic when given, otherwise the plain duration
+        assertEquals(171, response.getSeconds(0, 0));
+        assertEquals(212, response.getMeters(0, 0));
+        assertEquals(1012, response.getSeconds(0, 1));
+        assertEquals(4630, response.getMeters(0, 1));
+        assertEquals(2661, response.getSeconds(1, 1));
+        assertEquals(14871, response.getMeters(1, 1));
+
+        // NOT_FOUND, ZERO_RESULTS, and an OK element without a distance
+        assertFalse(response.isAnswered(0, 2));
+        assertFalse(response.isAnswered(1, 0));
+        assertFalse(response.isAnswered(1, 2));
+        assertEquals(NO_VALUE, response.getMeters(1, 0));
+    }
+
+    @Test
+    void distanceMatrixIgnoresElementsBeyondTheRequestedSize() throws IOException {
+        DistanceMatrixResponse response = readResource("distance-matrix.json", MapsResponseParser.distanceMatrix(1, 2));
+
+        assertEquals(171, response.getSeconds(0, 0));
+        assertEquals(1012, response.getSeconds(0, 1));
+        assertEquals(2, response.seconds().length);
+    }
+
+    @Test
+    void distanceMatrixWithATopLevelErrorHasNoAnswers() throws IOException {
+        DistanceMatrixResponse response = readResource("distance-matrix-over-query-limit.json",
+                MapsResponseParser.distanceMatrix(2, 2));
+
+        assertEquals("OVER_QUERY_LIMIT", response.status());
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 2; j++) {
+                assertFalse(response.isAnswered(i, j));
+            }
+        }
+    }
+
+    @Test
+    void directionsReadTheFirstLegOfTheFirstRoute() throws IOException {
+        DirectionsResponse response = readResource("directions.json", MapsResponseParser::readDirections);
+
+        assertEquals("OK", response.status());
+        assertEquals(1445, response.seconds());
+        assertEquals(4630, response.meters());
+    }
+
+    @Test
+    void directionsWithoutTrafficUseTheDuration() throws IOException {
+        DirectionsResponse response = read("""
+                {"routes": [{"summary": "I-278", "legs": [{"steps": [{"duration": {"value": 5}}],
+                  "duration": {"text": "1 min", "value": 60}, "distance": {"text": "0.1 km", "value": 100}}]}],
+                 "status": "OK"}""", MapsResponseParser::readDirections);
+
+        assertEquals(60, response.seconds());
+        assertEquals(100, response.meters());
+    }
+
+    @Test
+    void directionsWithoutARouteOrValueHaveNoTravel() throws IOException {
+        DirectionsResponse zeroResults = readResource("directions-zero-results.json", MapsResponseParser::readDirections);
+        assertEquals("ZERO_RESULTS", zeroResults.status());
+        assertEquals(NO_VALUE, zeroResults.seconds());
+        assertEquals(NO_VALUE, zeroResults.meters());
+
+        DirectionsResponse textOnly = read("""
+                {"status": "OK", "routes": [{"legs": [{"duration": {"text": "1 min"}, "distance": {"value": 100}}]}]}""",
+                MapsResponseParser::readDirections);
+        assertEquals(NO_VALUE, textOnly.seconds());
+        assertEquals(NO_VALUE, textOnly.meters());
+    }
+
+    @Test
+    void geocodeReadsTheFirstResultsLocation() throws IOException {
+        GeocodeResponse response = readResource("geocode.json", MapsResponseParser::readGeocode);
+
+        assertEquals("OK", response.status());
+        assertEquals(40.7484405, response.location().getLatitude());
+        assertEquals(-73.9856644, response.location().getLongitude());
+    }
+
+    @Test
+    void geocodeWithATopLevelErrorHasNoLocation() throws IOException {
+        GeocodeResponse response = readResource("geocode-request-denied.json", MapsResponseParser::readGeocode);
+
+        assertEquals("REQUEST_DENIED", response.status());
+        assertNull(response.location());
+    }
+
+    @Test
+    void unknownAndNestedFieldsAnywhereAreSkipped() throws IOException {
+        GeocodeResponse response = read("""
+                {"html_attributions": [[1, {"a": [true, null]}], "x"], "next_page_token": null,
+                 "results": [{"geometry": {"viewport": {"location": {"lat": 1, "lng": 2}},
+                   "location": {"elevation": {"value": 10}, "lng": -73.5, "lat": 40.5}}}],
+                 "info": {"status": "IGNORED"}, "status": "OK"}""", MapsResponseParser::readGeocode);
+
+        assertEquals("OK", response.status());
+        assertEquals(40.5, response.location().getLatitude());
+        assertEquals(-73.5, response.location().getLongitude());
+    }
+
+    @Test
+    void bodyThatIsNotAnObjectIsAParseError() {
+        assertThrows(JsonParseException.class, () -> read("[]", MapsResponseParser::readGeocode));
+        assertThrows(JsonParseException.class, () -> read("<html>Service Unavailable</html>", MapsResponseParser::readDirections));
+    }
+
+    private static <T extends MapsResponse> T readResource(String name, Reader<T> reader) throws IOException {
+        try (InputStream body = MapsResponseParserTest.class.getResourceAsStream("/maps/" + name);
+             JsonParser parser = JSON.createParser(body)) {
+            return reader.read(parser);
+        }
+    }
+
+    private static <T extends MapsResponse> T read(String json, Reader<T> reader) throws IOException {
+        try (JsonParser parser = JSON.createParser(json)) {
+            return reader.read(parser);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.anansu.powerwashrouting.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Reads osm/tiny.osm.pbf: an uncompressed header blob, then zlib blobs with dense nodes and one
+ * plain node, then the ways
+ * <pre>
+ *   10  1 - 2 - 3   residential, 2 is only a shape point
+ *   11  3 - 4       primary, oneway=yes, maxspeed=30 mph
+ *   12  5 - 4       residential, oneway=-1
+ *   13  5 - 1       residential
+ *   14  6 - 7       residential, not connected to the rest
+ *   15  1 - 8       footway
+ * </pre>
+ */
+class OsmPbfReaderTest {
+
+    static final double[] NODE_1 = {40.7000, -74.0000};
+    static final double[] NODE_3 = {40.7010, -74.0000};
+    static final double[] NODE_4 = {40.7010, -73.9990};
+    static final double[] NODE_5 = {40.7000, -73.9990};
+
+    @Test
+    void junctionsOfTheConnectedDrivableWaysBecomeTheGraph() throws Exception {
+        RoadNetwork network = OsmPbfReader.read(fixture());
+
+        // Shape point 2, the separate way 14 and the footway's node 8 are not graph nodes
+        assertEquals(4, network.getNodeCount());
+        int node1 = node(network, NODE_1);
+        int node3 = node(network, NODE_3);
+        int node4 = node(network, NODE_4);
+        int node5 = node(network, NODE_5);
+
+        assertEquals(6, network.getEdgeCount());
+        // 111 m over the shape point at 25 km/h, both ways
+        assertEdge(network, node1, node3, 160, 111);
+        assertEdge(network, node3, node1, 160, 111);
+        // One-way with a speed limit in mph: 84 m at 48 km/h, and no way back
+        assertEdge(network, node3, node4, 63, 84);
+        assertNoEdge(network, node4, node3);
+        // oneway=-1 runs against the node order
+        assertEdge(network, node4, node5, 160, 111);
+        assertNoEdge(network, node5, node4);
+        assertEdge(network, node5, node1, 121, 84);
+        assertEdge(network, node1, node5, 121, 84);
+    }
+
+    static Path fixture() throws URISyntaxException {
+        return Path.of(OsmPbfReaderTest.class.getResource("/osm/tiny.osm.pbf").toURI());
+    }
+
+    private static int node(RoadNetwork network, double[] location) {
+        for (int v = 0; v < network.getNodeCount(); v++) {
+            if (Math.abs(network.getLatitude(v) - location[0]) < 1e-7
+                    && Math.abs(network.getLongitude(v) - location[1]) < 1e-7) {
+                return v;
+            }
+        }
+        return fail("no graph node at " + location[0] + "," + location[1]);
+    }
+
+    private static void assertEdge(RoadNetwork network, int from, int to, int time, int meters) {
+        for (int e = 0; e < network.getEdgeCount(); e++) {
+            if (network.getEdgeFrom(e) == from && network.getEdgeTo(e) == to) {
+                assertEquals(time, network.getEdgeTime(e), from + " -> " + to);
+                assertEquals(meters, network.getEdgeMeters(e), from + " -> " + to);
+                return;
+            }
+        }
+        fail("no edge " + from + " -> " + to);
+    }
+
+    private static void assertNoEdge(RoadNetwork network, int from, int to) {
+        for (int e = 0; e < network.getEdgeCount(); e++) {
+            assertTrue(network.getEdgeFrom(e) != from || network.getEdgeTo(e) != to, "edge " + from + " -> " + to);
+        }
+    }
+}
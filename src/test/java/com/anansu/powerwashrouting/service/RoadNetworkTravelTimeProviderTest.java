@@ -0,0 +1,89 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.GoogleMapsService.TravelMatrix;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Travel times on the road network of osm/tiny.osm.pbf (see {@link OsmPbfReaderTest})
+ */
+class RoadNetworkTravelTimeProviderTest {
+
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2026, 3, 2, 8, 0);
+    private static final Location NODE_1 = location(OsmPbfReaderTest.NODE_1);
+    private static final Location NODE_4 = location(OsmPbfReaderTest.NODE_4);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void travelFollowsOneWayRoadsAndSavesTheHierarchy() throws Exception {
+        Path osm = directory.resolve("region.osm.pbf");
+        Files.copy(OsmPbfReaderTest.fixture(), osm);
+
+        TravelMatrix matrix = provider(osm).getTravelMatrix(
+                new Location[]{NODE_1, NODE_4}, new Location[]{NODE_1, NODE_4}, DEPARTURE);
+
+        // 1 -> 3 -> 4 on the one-way primary; back 4 -> 5 -> 1
+        assertEquals(0, matrix.getTravelSeconds(0, 0));
+        assertEquals(22, matrix.getTravelSeconds(0, 1));
+        assertEquals(195, matrix.getDistanceMeters(0, 1));
+        assertEquals(28, matrix.getTravelSeconds(1, 0));
+        assertEquals(195, matrix.getDistanceMeters(1, 0));
+
+        // The next start reads the saved hierarchy instead of the extract
+        Path saved = directory.resolve("region.osm.pbf.ch");
+        assertTrue(Files.exists(saved));
+        Files.write(osm, new byte[0]);
+        Files.setLastModifiedTime(saved, Files.getLastModifiedTime(osm));
+        TravelMatrix reloaded = provider(osm).getTravelMatrix(new Location[]{NODE_4}, new Location[]{NODE_1}, DEPARTURE);
+        assertEquals(28, reloaded.getTravelSeconds(0, 0));
+    }
+
+    @Test
+    void locationsBeyondTheSnapDistanceAreLeftUnanswered() throws Exception {
+        Path osm = directory.resolve("region.osm.pbf");
+        Files.copy(OsmPbfReaderTest.fixture(), osm);
+        RoadNetworkTravelTimeProvider provider = provider(osm);
+
+        // 200 m south of node 1 snaps to it and drives the rest; 5 km away is off the network
+        Location nearby = new Location(NODE_1.getLatitude() - 0.0018, NODE_1.getLongitude());
+        Location faraway = new Location(NODE_1.getLatitude() - 0.045, NODE_1.getLongitude());
+        TravelMatrix matrix = provider.getTravelMatrix(
+                new Location[]{nearby, faraway}, new Location[]{NODE_4}, DEPARTURE);
+
+        double accessMeters = GeoKernel.distanceMeters(nearby, NODE_1);
+        assertEquals(Math.round(22.3 + accessMeters / (20 / 3.6)), matrix.getTravelSeconds(0, 0));
+        assertEquals(Math.round(195 + accessMeters), matrix.getDistanceMeters(0, 0));
+        assertTrue(matrix.isAnswered(0, 0));
+        assertFalse(matrix.isAnswered(1, 0));
+    }
+
+    private RoadNetworkTravelTimeProvider provider(Path osm) throws InterruptedException {
+        RoadNetworkTravelTimeProvider provider = new RoadNetworkTravelTimeProvider();
+        ReflectionTestUtils.setField(provider, "osmFile", osm.toString());
+        ReflectionTestUtils.setField(provider, "cacheFile", "");
+        ReflectionTestUtils.setField(provider, "maxSnapMeters", 500.0);
+        provider.startLoading();
+
+        for (int wait = 0; wait < 100 && !provider.isAvailable(); wait++) {
+            Thread.sleep(50);
+        }
+        assertTrue(provider.isAvailable(), "road network did not load");
+        return provider;
+    }
+
+    private static Location location(double[] latitudeLongitude) {
+        return new Location(latitudeLongitude[0], latitudeLongitude[1]);
+    }
+}
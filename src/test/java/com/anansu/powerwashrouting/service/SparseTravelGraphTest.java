@@ -0,0 +1,271 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.service.GoogleMapsService.TravelLeg;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.TravelInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SparseTravelGraphTest {
+
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2026, 3, 2, 8, 0);
+
+    private final List<StubMapsService> services = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        services.forEach(GoogleMapsService::shutdown);
+    }
+
+    @Test
+    void depotAndNearestNeighbourPairsAreExactAndTheRestEstimated() {
+        Location[] locations = randomLocations(new Random(3), 300);
+        Map<Location, Integer> index = indexOf(locations);
+        // Each answer says which pair it is for, so a lookup landing in the wrong slot shows
+        StubMapsService maps = stub(leg -> pairAnswer(index.get(leg.getOrigin()), index.get(leg.getDestination())));
+
+        SparseTravelGraph graph = SparseTravelGraph.build(locations, 5, maps, DEPARTURE);
+
+        Set<Long> expected = expectedPairs(locations, 5);
+        assertEquals(expected.size(), graph.getExactPairCount());
+        assertEquals(expected.size(), maps.fetched.size());
+        for (int from = 0; from < locations.length; from++) {
+            for (int to = 0; to < locations.length; to++) {
+                if (from == to) {
+                    assertTrue(graph.isExact(from, to));
+                    assertEquals(0, graph.getTravelMinutes(from, to));
+                } else if (expected.contains(pair(from, to, locations.length))) {
+                    assertTrue(graph.isExact(from, to), from + " -> " + to);
+                    assertEquals(from * 1000 + to, graph.getTravelMinutes(from, to));
+                    assertEquals(to + 1, graph.getDistanceMeters(from, to));
+                } else {
+                    assertFalse(graph.isExact(from, to), from + " -> " + to);
+                }
+            }
+        }
+    }
+
+    @Test
+    void nearestNeighboursAreTheClosestInAStraightLine() {
+        Location[] locations = randomLocations(new Random(8), 40);
+        SparseTravelGraph graph = SparseTravelGraph.build(locations, 3, stub(leg -> new TravelInfo(1, 1)), DEPARTURE);
+
+        // Away from the depot, a pair is exact when either end is among the other's three nearest
+        for (int from = 1; from < locations.length; from++) {
+            List<Integer> nearest = nearest(locations, from, 3);
+            for (int to = 1; to < locations.length; to++) {
+                boolean neighbours = nearest.contains(to) || nearest(locations, to, 3).contains(from);
+                assertEquals(to == from || neighbours, graph.isExact(from, to), from + " -> " + to);
+            }
+        }
+    }
+
+    @Test
+    void estimateIsFittedToTheFetchedPairs() {
+        Location[] locations = randomLocations(new Random(5), 60);
+        // 4 minutes plus 1.5 per straight-line km, roads 30% longer than a straight line
+        StubMapsService maps = stub(leg -> {
+            double km = GeoKernel.distanceMeters(leg.getOrigin(), leg.getDestination()) / 1000;
+            return new TravelInfo(1.3 * km, (int) Math.round(4 + 1.5 * km));
+        });
+        SparseTravelGraph graph = SparseTravelGraph.build(locations, 4, maps, DEPARTURE);
+
+        int estimated = 0;
+        for (int from = 0; from < locations.length; from++) {
+            for (int to = 0; to < locations.length; to++) {
+                if (graph.isExact(from, to)) continue;
+                double meters = GeoKernel.distanceMeters(locations[from], locations[to]);
+                assertEquals(4 + 1.5 * meters / 1000, graph.getTravelMinutes(from, to), 1.0, from + " -> " + to);
+                assertEquals(1.3 * meters, graph.getDistanceMeters(from, to), 2.0, from + " -> " + to);
+                estimated++;
+            }
+        }
+        assertTrue(estimated > locations.length * locations.length / 2);
+    }
+
+    @Test
+    void withoutAnswersTheEstimateIsThirtyKilometresAnHourInAStraightLine() {
+        Location[] locations = randomLocations(new Random(1), 10);
+        SparseTravelGraph graph = SparseTravelGraph.build(locations, 2, stub(leg -> null), DEPARTURE);
+
+        assertEquals(0, graph.getExactPairCount());
+        for (int to = 1; to < locations.length; to++) {
+            double meters = GeoKernel.distanceMeters(locations[0], locations[to]);
+            assertFalse(graph.isExact(0, to));
+            assertEquals(2 * meters / 1000, graph.getTravelMinutes(0, to), 0.51);
+            assertEquals(meters, graph.getDistanceMeters(0, to), 1.0);
+        }
+    }
+
+    @Test
+    void travelThatDoesNotGrowWithDistanceFallsBackToTheAverageSpeed() {
+        Location[] locations = randomLocations(new Random(4), 30);
+        StubMapsService maps = stub(leg -> new TravelInfo(1, 10));
+        SparseTravelGraph graph = SparseTravelGraph.build(locations, 3, maps, DEPARTURE);
+
+        double fetchedKm = maps.fetched.stream()
+                .mapToDouble(leg -> GeoKernel.distanceMeters(leg.getOrigin(), leg.getDestination()) / 1000)
+                .sum();
+        double minutesPerKm = 10 * maps.fetched.size() / fetchedKm;
+        for (int from = 0; from < locations.length; from++) {
+            for (int to = 0; to < locations.length; to++) {
+                if (graph.isExact(from, to)) continue;
+                double km = GeoKernel.distanceMeters(locations[from], locations[to]) / 1000;
+                assertEquals(minutesPerKm * km, graph.getTravelMinutes(from, to), 0.51, from + " -> " + to);
+            }
+        }
+    }
+
+    @Test
+    void addedLocationKeepsEveryExactPairUnderTheLargerSize() {
+        Location[] locations = randomLocations(new Random(6), 120);
+        Map<Location, Integer> index = indexOf(locations);
+        Location added = new Location(40.70, -73.95);
+        index.put(added, locations.length);
+        StubMapsService maps = stub(leg -> pairAnswer(index.get(leg.getOrigin()), index.get(leg.getDestination())));
+        SparseTravelGraph graph = SparseTravelGraph.build(locations, 4, maps, DEPARTURE);
+        int fetched = maps.fetched.size();
+
+        SparseTravelGraph extended = graph.withLocation(added, maps, DEPARTURE);
+
+        // Only the cache was asked, for the new location's depot and neighbour pairs
+        assertEquals(fetched, maps.fetched.size());
+        int size = locations.length + 1;
+        int newIndex = locations.length;
+        List<Integer> neighbours = nearest(allOf(locations, added), newIndex, 4);
+        neighbours.remove(Integer.valueOf(0));
+        assertEquals(2 + 2 * neighbours.size(), maps.cached.size());
+        assertEquals(graph.getExactPairCount() + maps.cached.size(), extended.getExactPairCount());
+
+        assertEquals(size - 1, graph.getSize());
+        assertEquals(size, extended.getSize());
+        for (int from = 0; from < locations.length; from++) {
+            for (int to = 0; to < locations.length; to++) {
+                assertEquals(graph.isExact(from, to), extended.isExact(from, to), from + " -> " + to);
+                assertEquals(graph.getTravelMinutes(from, to), extended.getTravelMinutes(from, to), from + " -> " + to);
+                assertEquals(graph.getDistanceMeters(from, to), extended.getDistanceMeters(from, to), from + " -> " + to);
+            }
+        }
+
+        assertEquals(newIndex * 1000, extended.getTravelMinutes(newIndex, 0));
+        assertEquals(newIndex + 1, extended.getDistanceMeters(0, newIndex));
+        for (int neighbour : neighbours) {
+            assertEquals(newIndex * 1000 + neighbour, extended.getTravelMinutes(newIndex, neighbour));
+            assertEquals(neighbour * 1000 + newIndex, extended.getTravelMinutes(neighbour, newIndex));
+        }
+        long exactToNew = IntStream.range(1, newIndex).filter(i -> extended.isExact(i, newIndex)).count();
+        assertEquals(neighbours.size(), exactToNew);
+    }
+
+    /**
+     * Travel that tells which pair it answers: from * 1000 + to minutes, to + 1 meters
+     */
+    private static TravelInfo pairAnswer(int from, int to) {
+        return new TravelInfo((to + 1) / 1000.0, from * 1000 + to);
+    }
+
+    private static Set<Long> expectedPairs(Location[] locations, int k) {
+        Set<Long> pairs = new HashSet<>();
+        for (int i = 0; i < locations.length; i++) {
+            if (i > 0) {
+                pairs.add(pair(0, i, locations.length));
+                pairs.add(pair(i, 0, locations.length));
+            }
+            for (int j : nearest(locations, i, k)) {
+                pairs.add(pair(i, j, locations.length));
+                pairs.add(pair(j, i, locations.length));
+            }
+        }
+        return pairs;
+    }
+
+    private static List<Integer> nearest(Location[] locations, int from, int k) {
+        GeoKernel points = GeoKernel.of(locations);
+        return new ArrayList<>(IntStream.range(0, locations.length)
+                .filter(j -> j != from)
+                .boxed()
+                .sorted(Comparator.comparingDouble(j -> points.distanceMeters(from, j)))
+                .limit(k)
+                .toList());
+    }
+
+    private static long pair(int from, int to, int size) {
+        return (long) from * size + to;
+    }
+
+    private static Location[] randomLocations(Random random, int count) {
+        Location[] locations = new Location[count];
+        locations[0] = new Location(40.7128, -74.0060);
+        for (int i = 1; i < count; i++) {
+            locations[i] = new Location(40.55 + random.nextDouble() * 0.3, -74.15 + random.nextDouble() * 0.3);
+        }
+        return locations;
+    }
+
+    private static Location[] allOf(Location[] locations, Location added) {
+        Location[] all = Arrays.copyOf(locations, locations.length + 1);
+        all[locations.length] = added;
+        return all;
+    }
+
+    private static Map<Location, Integer> indexOf(Location[] locations) {
+        Map<Location, Integer> index = new IdentityHashMap<>();
+        for (int i = 0; i < locations.length; i++) index.put(locations[i], i);
+        return index;
+    }
+
+    private StubMapsService stub(Function<TravelLeg, TravelInfo> answer) {
+        StubMapsService maps = new StubMapsService(answer);
+        services.add(maps);
+        return maps;
+    }
+
+    /**
+     * Answers every leg at once and records which legs were fetched and which read from the cache
+     */
+    private static class StubMapsService extends GoogleMapsService {
+        private final Function<TravelLeg, TravelInfo> answer;
+        final List<TravelLeg> fetched = new ArrayList<>();
+        final List<TravelLeg> cached = new ArrayList<>();
+
+        StubMapsService(Function<TravelLeg, TravelInfo> answer) {
+            super(1);
+            this.answer = answer;
+        }
+
+        @Override
+        public List<TravelInfo> getTravelInfos(List<TravelLeg> legs) {
+            fetched.addAll(legs);
+            return answer(legs);
+        }
+
+        @Override
+        public List<TravelInfo> getCachedTravelInfos(List<TravelLeg> legs) {
+            cached.addAll(legs);
+            return answer(legs);
+        }
+
+        private List<TravelInfo> answer(List<TravelLeg> legs) {
+            List<TravelInfo> travelInfos = new ArrayList<>();
+            for (TravelLeg leg : legs) travelInfos.add(answer.apply(leg));
+            return travelInfos;
+        }
+    }
+}
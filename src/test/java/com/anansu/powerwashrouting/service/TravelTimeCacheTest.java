@@ -0,0 +1,149 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.db.TravelTimeEntryRepository;
+import com.anansu.powerwashrouting.service.GoogleMapsService.TravelLeg;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.TravelInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Each test builds its own cache over the shared database table, so the memory tier starts empty
+ * and its size can be set small.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:travel-cache;DB_CLOSE_DELAY=-1",
+        "spring.jpa.show-sql=false",
+        "routing.prefetch.enabled=false"
+})
+class TravelTimeCacheTest {
+
+    private static final LocalDateTime EIGHT_TEN = LocalDateTime.of(2026, 3, 2, 8, 10);
+    private static final Location DEPOT = new Location(40.7128, -74.0060);
+
+    @Autowired
+    private TravelTimeEntryRepository repository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clearTable() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void nearbyCoordinatesAndDeparturesInTheSameHourShareAnEntry() {
+        TravelTimeCache cache = cache(100);
+        cache.put(new Location(40.71281, -74.00601), DEPOT, EIGHT_TEN, new TravelInfo(5.0, 12));
+
+        // Same to four decimals, same hour bucket
+        TravelInfo nearby = cache.get(new Location(40.71284, -74.00604), DEPOT, EIGHT_TEN.withMinute(50));
+        assertNotNull(nearby);
+        assertEquals(12, nearby.getDurationMinutes());
+
+        // Next hour, or a fourth decimal further away, is another entry
+        assertNull(cache.get(new Location(40.71281, -74.00601), DEPOT, EIGHT_TEN.plusHours(1)));
+        assertNull(cache.get(new Location(40.71291, -74.00601), DEPOT, EIGHT_TEN));
+
+        TravelTimeCache.CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getMemoryHits());
+        assertEquals(2, stats.getMisses());
+    }
+
+    @Test
+    void memoryTierEvictsTheLeastRecentlyUsedEntry() {
+        TravelTimeCache cache = cache(2);
+        Location a = new Location(40.70, -74.00);
+        Location b = new Location(40.71, -74.00);
+        Location c = new Location(40.72, -74.00);
+
+        cache.put(a, DEPOT, EIGHT_TEN, new TravelInfo(1, 1));
+        cache.put(b, DEPOT, EIGHT_TEN, new TravelInfo(2, 2));
+        assertNotNull(cache.get(a, DEPOT, EIGHT_TEN)); // b is now the least recently used
+        cache.put(c, DEPOT, EIGHT_TEN, new TravelInfo(3, 3));
+
+        assertEquals(1, cache.getStats().getEvictions());
+        assertEquals(2, cache.getStats().getMemoryEntries());
+        assertNotNull(cache.get(c, DEPOT, EIGHT_TEN));
+        assertEquals(2, cache.getStats().getMemoryHits());
+
+        // The evicted entry is still in the database
+        assertEquals(2, cache.get(b, DEPOT, EIGHT_TEN).getDurationMinutes());
+        assertEquals(1, cache.getStats().getDiskHits());
+        assertEquals(3, cache.getStats().getDiskEntries());
+    }
+
+    @Test
+    void storedEntriesOlderThanTheTimeToLiveAreMisses() {
+        Location origin = new Location(40.75, -73.98);
+        cache(100).put(origin, DEPOT, EIGHT_TEN, new TravelInfo(8.5, 20));
+
+        setFetchedAt(LocalDateTime.now().minusDays(31));
+        TravelTimeCache expired = cache(100);
+        assertNull(expired.get(origin, DEPOT, EIGHT_TEN));
+        assertEquals(1, expired.getStats().getMisses());
+
+        setFetchedAt(LocalDateTime.now().minusDays(29));
+        TravelTimeCache fresh = cache(100);
+        assertEquals(20, fresh.get(origin, DEPOT, EIGHT_TEN).getDurationMinutes());
+        assertEquals(20, fresh.get(origin, DEPOT, EIGHT_TEN).getDurationMinutes());
+        assertEquals(1, fresh.getStats().getDiskHits());
+        assertEquals(1, fresh.getStats().getMemoryHits());
+    }
+
+    @Test
+    void getAllCombinesMemoryAndDatabaseHits() {
+        TravelLeg inMemory = new TravelLeg(new Location(40.70, -74.00), DEPOT, EIGHT_TEN);
+        TravelLeg stored = new TravelLeg(new Location(40.71, -74.00), DEPOT, EIGHT_TEN);
+        TravelLeg storedNearby = new TravelLeg(new Location(40.710001, -74.000001), DEPOT, EIGHT_TEN.plusMinutes(20));
+        TravelLeg stale = new TravelLeg(new Location(40.72, -74.00), DEPOT, EIGHT_TEN);
+        TravelLeg missing = new TravelLeg(new Location(40.73, -74.00), DEPOT, EIGHT_TEN);
+
+        cache(100).putAll(List.of(stored, stale), List.of(new TravelInfo(2, 22), new TravelInfo(3, 99)));
+        jdbcTemplate.update("UPDATE travel_time_cache SET fetched_at = ? WHERE duration_minutes = 99",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(60)));
+
+        TravelTimeCache cache = cache(100);
+        cache.put(inMemory.getOrigin(), inMemory.getDestination(), inMemory.getDepartureTime(), new TravelInfo(1, 11));
+
+        TravelInfo[] found = cache.getAll(List.of(inMemory, stored, missing, storedNearby, stale));
+        assertEquals(11, found[0].getDurationMinutes());
+        assertEquals(22, found[1].getDurationMinutes());
+        assertNull(found[2]);
+        assertEquals(22, found[3].getDurationMinutes());
+        assertNull(found[4]);
+
+        TravelTimeCache.CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getMemoryHits());
+        assertEquals(2, stats.getDiskHits());
+        assertEquals(2, stats.getMisses());
+
+        // What came from the database is in memory now
+        cache.getAll(List.of(stored));
+        assertEquals(2, cache.getStats().getMemoryHits());
+    }
+
+    private TravelTimeCache cache(int maxMemoryEntries) {
+        return new TravelTimeCache(repository, transactionManager, maxMemoryEntries, 4, 60, 30);
+    }
+
+    private void setFetchedAt(LocalDateTime fetchedAt) {
+        jdbcTemplate.update("UPDATE travel_time_cache SET fetched_at = ?", Timestamp.valueOf(fetchedAt));
+    }
+}
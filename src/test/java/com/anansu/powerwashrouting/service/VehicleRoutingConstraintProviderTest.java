@@ -0,0 +1,168 @@
+package com.anansu.powerwashrouting.service;
+
+import com.anansu.powerwashrouting.model.ServiceType;
+import com.anansu.powerwashrouting.service.RouteOptimizationService.Location;
+import org.junit.jupiter.api.Test;
+import org.optaplanner.core.api.score.buildin.hardmediumsoft.HardMediumSoftScore;
+import org.optaplanner.core.api.score.stream.ConstraintStreamImplType;
+import org.optaplanner.test.api.score.stream.ConstraintVerifier;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Scores of the routing constraints on small hand-built chains. Shadow variables are set by hand:
+ * the verifier scores the given facts as they are.
+ */
+class VehicleRoutingConstraintProviderTest {
+
+    private static final LocalDateTime DEPARTURE = LocalDateTime.of(2026, 3, 2, 8, 0);
+    private static final Location DEPOT = new Location(40.70, -74.00);
+
+    private final ConstraintVerifier<VehicleRoutingConstraintProvider, VehicleRoutingSolution> constraintVerifier =
+            ConstraintVerifier.build(new VehicleRoutingConstraintProvider(), VehicleRoutingSolution.class,
+                            Standstill.class, Customer.class)
+                    .withConstraintStreamImplType(ConstraintStreamImplType.BAVET);
+
+    @Test
+    void capacityIsCheckedPerStopNotSummedOverTheDay() {
+        TravelTimeMatrix travel = travel(3, 0);
+        OptimizationVehicle vehicle = vehicle(1L, 2, travel);
+        Customer tooBig = customer(1L, 1, travel, 60);
+        tooBig.setRequiredCrewSize(3);
+        Customer fits = customer(2L, 2, travel, 60);
+        fits.setRequiredCrewSize(2);
+        chain(vehicle, tooBig, fits);
+
+        // Two stops with crews of 3 and 2 on a crew of 2: only the first one does not fit
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::vehicleCapacity)
+                .given(vehicle, tooBig, fits)
+                .penalizesBy(1);
+    }
+
+    @Test
+    void lateArrivalIsPenalizedByTheMinutesLateAndEarlyArrivalIsNot() {
+        TravelTimeMatrix travel = travel(3, 30);
+        OptimizationVehicle vehicle = vehicle(1L, 2, travel);
+        Customer early = customer(1L, 1, travel, 60);
+        early.setReadyMinute(540);
+        early.setDueMinute(600);
+        Customer late = customer(2L, 2, travel, 60);
+        late.setDueMinute(570);
+        chain(vehicle, early, late);
+
+        // early: arrives 8:30, waits until 9:00, leaves 10:00; late: arrives 10:30, due by 9:30
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::timeWindows)
+                .given(vehicle, early, late)
+                .penalizesBy(60);
+    }
+
+    @Test
+    void workingHoursAreCheckedOnceOnTheLastStop() {
+        TravelTimeMatrix travel = travel(3, 30);
+        OptimizationVehicle vehicle = vehicle(1L, 2, travel);
+        Customer first = customer(1L, 1, travel, 60);
+        Customer last = customer(2L, 2, travel, 600);
+        chain(vehicle, first, last);
+
+        // Leave 8:00, back after 30 + 60 + 30 + 600 + 30 = 750 minutes, beyond 600 + 120
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::workingHours)
+                .given(vehicle, first, last)
+                .penalizesBy(750 - 600);
+    }
+
+    @Test
+    void overtimeWithinTheAllowanceIsNotPenalized() {
+        TravelTimeMatrix travel = travel(3, 30);
+        OptimizationVehicle vehicle = vehicle(1L, 2, travel);
+        Customer first = customer(1L, 1, travel, 60);
+        Customer last = customer(2L, 2, travel, 500);
+        chain(vehicle, first, last);
+
+        // 650 minutes: overtime, but within the two allowed hours
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::workingHours)
+                .given(vehicle, first, last)
+                .penalizesBy(0);
+    }
+
+    @Test
+    void workloadIsPenalizedBySumOfSquaredServiceMinutesOverSixty() {
+        TravelTimeMatrix travel = travel(4, 0);
+        OptimizationVehicle busy = vehicle(1L, 2, travel);
+        OptimizationVehicle light = vehicle(2L, 2, travel);
+        Customer first = customer(1L, 1, travel, 60);
+        Customer second = customer(2L, 2, travel, 60);
+        Customer third = customer(3L, 3, travel, 60);
+        chain(busy, first, second);
+        chain(light, third);
+
+        // 120 * 120 / 60 + 60 * 60 / 60
+        constraintVerifier.verifyThat(VehicleRoutingConstraintProvider::balanceWorkload)
+                .given(busy, light, first, second, third)
+                .penalizesBy(240 + 60);
+    }
+
+    @Test
+    void highValueJobsAreNotRewardedInTheScore() {
+        TravelTimeMatrix travel = travel(2, 0);
+        OptimizationVehicle vehicle = vehicle(1L, 2, travel);
+        Customer valuable = customer(1L, 1, travel, 60);
+        valuable.setPriority(1);
+        valuable.setQuoteValue(new BigDecimal("5000.00"));
+        chain(vehicle, valuable);
+
+        // Only the workload of the one-hour stop counts: priority and value only steer construction order
+        constraintVerifier.verifyThat()
+                .given(vehicle, valuable)
+                .scores(HardMediumSoftScore.ofMedium(-60));
+    }
+
+    private static TravelTimeMatrix travel(int size, int minutes) {
+        TravelTimeMatrix travel = new TravelTimeMatrix(size);
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                if (from != to) {
+                    travel.set(from, to, minutes, 0);
+                }
+            }
+        }
+        return travel;
+    }
+
+    private static OptimizationVehicle vehicle(Long id, int crewSize, TravelTimeMatrix travel) {
+        OptimizationVehicle vehicle = new OptimizationVehicle(id, crewSize);
+        vehicle.setDepot(DEPOT);
+        vehicle.setLocationIndex(0);
+        vehicle.setTravelMatrix(travel);
+        vehicle.setDepartureTime(DEPARTURE);
+        return vehicle;
+    }
+
+    private static Customer customer(Long id, int locationIndex, TravelTimeMatrix travel, int serviceMinutes) {
+        Customer customer = new Customer(id, new Location(40.70 + id * 0.01, -74.00), ServiceType.PRESSURE_WASHING);
+        customer.setLocationIndex(locationIndex);
+        customer.setTravelMatrix(travel);
+        customer.setServiceTimeMinutes(serviceMinutes);
+        customer.setRequiredCrewSize(1);
+        return customer;
+    }
+
+    /**
+     * Link the customers behind the vehicle and fill in the shadow variables the listeners would
+     */
+    private static void chain(OptimizationVehicle vehicle, Customer... customers) {
+        Standstill previous = vehicle;
+        for (Customer customer : customers) {
+            customer.setPreviousStandstill(previous);
+            customer.setVehicle(vehicle);
+            previous.setNextCustomer(customer);
+
+            int arrival = ArrivalTimeUpdatingVariableListener.calculateArrivalMinute(previous, customer);
+            int wait = ArrivalTimeUpdatingVariableListener.calculateWaitMinutes(customer, arrival);
+            customer.setArrivalMinute(arrival);
+            customer.setWaitMinutes(wait);
+            customer.setDepartureMinute(arrival + wait + customer.getServiceTimeMinutes());
+            previous = customer;
+        }
+    }
+}